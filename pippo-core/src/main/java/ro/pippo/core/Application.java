@@ -30,7 +30,12 @@ import ro.pippo.core.route.RouteHandler;
 import ro.pippo.core.route.RoutePostDispatchListenerList;
 import ro.pippo.core.route.RoutePreDispatchListenerList;
 import ro.pippo.core.route.Router;
+import ro.pippo.core.route.SlowRequestSampler;
 import ro.pippo.core.route.WebjarsResourceHandler;
+import ro.pippo.core.tracing.InMemorySpanExporter;
+import ro.pippo.core.tracing.LoggingSpanExporter;
+import ro.pippo.core.tracing.SpanExporter;
+import ro.pippo.core.tracing.Tracer;
 import ro.pippo.core.util.HttpCacheToolkit;
 import ro.pippo.core.util.MimeTypes;
 import ro.pippo.core.util.ServiceLocator;
@@ -61,7 +66,15 @@ public class Application {
     private ContentTypeEngines engines;
     protected Router router;
     private ErrorHandler errorHandler;
+    private FlashTransport flashTransport;
+    private WebServerThreadPool webServerThreadPool;
     private RequestResponseFactory requestResponseFactory;
+    private Boolean requestTimingEnabled;
+    private Boolean serverTimingEnabled;
+    private SlowRequestSampler slowRequestSampler;
+    private boolean slowRequestSamplerResolved;
+    private Tracer tracer;
+    private boolean tracerResolved;
 
     private List<Initializer> initializers;
 
@@ -105,6 +118,12 @@ public class Application {
 
     public final void destroy() {
         onDestroy();
+        if (slowRequestSampler != null) {
+            slowRequestSampler.destroy();
+        }
+        if (requestResponseFactory != null) {
+            requestResponseFactory.destroy();
+        }
         for (Initializer initializer : initializers) {
             log.debug("Destroying '{}'", initializer.getClass().getName());
             try {
@@ -346,6 +365,135 @@ public class Application {
         this.errorHandler = errorHandler;
     }
 
+    /**
+     * Returns the transport of the flash messages.
+     * It's a {@link SessionFlashTransport} unless the setting <code>application.flash.transport</code> is <code>cookie</code>,
+     * in which case the setting <code>application.flash.secretKey</code> (used to sign the cookie) is required.
+     *
+     * @return the flash transport
+     */
+    public FlashTransport getFlashTransport() {
+        if (flashTransport == null) {
+            String transport = pippoSettings.getString(PippoConstants.SETTING_APPLICATION_FLASH_TRANSPORT, "session");
+            if ("cookie".equalsIgnoreCase(transport)) {
+                String cookiePrefix = pippoSettings.getString(PippoConstants.SETTING_APPLICATION_COOKIE_PREFIX, "PIPPO");
+                String secretKey = pippoSettings.getRequiredString(PippoConstants.SETTING_APPLICATION_FLASH_SECRET_KEY);
+                flashTransport = new CookieFlashTransport(cookiePrefix + "_FLASH", secretKey);
+            } else {
+                flashTransport = new SessionFlashTransport();
+            }
+        }
+
+        return flashTransport;
+    }
+
+    public void setFlashTransport(FlashTransport flashTransport) {
+        this.flashTransport = flashTransport;
+    }
+
+    /**
+     * Returns true if the time spent by each request in routing, parameter binding, handlers, rendering and commit
+     * is measured (see {@link RequestTimer}).
+     * It's enabled by the setting <code>application.timing.enabled</code> or by {@link #isServerTimingEnabled()}.
+     *
+     * @return true if the requests are timed
+     */
+    public boolean isRequestTimingEnabled() {
+        if (requestTimingEnabled == null) {
+            requestTimingEnabled = pippoSettings.getBoolean(PippoConstants.SETTING_APPLICATION_TIMING_ENABLED, false)
+                || isServerTimingEnabled();
+        }
+
+        return requestTimingEnabled;
+    }
+
+    public void setRequestTimingEnabled(boolean requestTimingEnabled) {
+        this.requestTimingEnabled = requestTimingEnabled;
+    }
+
+    /**
+     * Returns true if the request timings are sent to the client in a <code>Server-Timing</code> header.
+     * It's enabled by the setting <code>application.timing.serverTiming</code>.
+     *
+     * @return true if the <code>Server-Timing</code> header is added to the responses
+     */
+    public boolean isServerTimingEnabled() {
+        if (serverTimingEnabled == null) {
+            serverTimingEnabled = pippoSettings.getBoolean(PippoConstants.SETTING_APPLICATION_TIMING_SERVER_TIMING, false);
+        }
+
+        return serverTimingEnabled;
+    }
+
+    public void setServerTimingEnabled(boolean serverTimingEnabled) {
+        this.serverTimingEnabled = serverTimingEnabled;
+        if (serverTimingEnabled) {
+            requestTimingEnabled = true;
+        }
+    }
+
+    /**
+     * Returns the sampler of the slow requests or null if it's disabled.
+     * It's enabled by the setting <code>application.slowRequests.threshold</code> (in milliseconds);
+     * <code>application.slowRequests.capacity</code> is the number of slow requests kept and
+     * <code>application.slowRequests.stackSampling</code> enables the stack samples of the running slow requests
+     * and <code>application.slowRequests.captureQuery</code> keeps the values of the query parameters
+     * (<code>application.slowRequests.capturePathParameters</code> the values of the path parameters).
+     *
+     * @return the slow request sampler or null
+     */
+    public SlowRequestSampler getSlowRequestSampler() {
+        if (!slowRequestSamplerResolved) {
+            long threshold = pippoSettings.getLong(PippoConstants.SETTING_APPLICATION_SLOW_REQUESTS_THRESHOLD, 0);
+            if (threshold > 0) {
+                int capacity = pippoSettings.getInteger(PippoConstants.SETTING_APPLICATION_SLOW_REQUESTS_CAPACITY,
+                    SlowRequestSampler.DEFAULT_CAPACITY);
+                boolean stackSampling = pippoSettings.getBoolean(PippoConstants.SETTING_APPLICATION_SLOW_REQUESTS_STACK_SAMPLING, true);
+                slowRequestSampler = new SlowRequestSampler(threshold, capacity, stackSampling);
+                slowRequestSampler.setCaptureQuery(pippoSettings.getBoolean(PippoConstants.SETTING_APPLICATION_SLOW_REQUESTS_CAPTURE_QUERY, false));
+                slowRequestSampler.setCapturePathParameters(pippoSettings.getBoolean(PippoConstants.SETTING_APPLICATION_SLOW_REQUESTS_CAPTURE_PATH_PARAMETERS, false));
+            }
+            slowRequestSamplerResolved = true;
+        }
+
+        return slowRequestSampler;
+    }
+
+    public void setSlowRequestSampler(SlowRequestSampler slowRequestSampler) {
+        this.slowRequestSampler = slowRequestSampler;
+        slowRequestSamplerResolved = true;
+    }
+
+    /**
+     * Returns the tracer of the requests or null if the tracing is disabled.
+     * It's enabled by the setting <code>application.tracing.enabled</code>.
+     * The spans go to the {@link SpanExporter} registered as a service or, if there is none,
+     * to the exporter named by <code>application.tracing.exporter</code>: <code>log</code> (default) or <code>memory</code>.
+     *
+     * @return the tracer or null
+     */
+    public Tracer getTracer() {
+        if (!tracerResolved) {
+            if (pippoSettings.getBoolean(PippoConstants.SETTING_APPLICATION_TRACING_ENABLED, false)) {
+                SpanExporter exporter = ServiceLocator.locate(SpanExporter.class);
+                if (exporter == null) {
+                    String name = pippoSettings.getString(PippoConstants.SETTING_APPLICATION_TRACING_EXPORTER, "log");
+                    exporter = "memory".equalsIgnoreCase(name) ? new InMemorySpanExporter() : new LoggingSpanExporter();
+                }
+                tracer = new Tracer(exporter);
+                log.debug("Tracing the requests with '{}'", exporter.getClass().getName());
+            }
+            tracerResolved = true;
+        }
+
+        return tracer;
+    }
+
+    public void setTracer(Tracer tracer) {
+        this.tracer = tracer;
+        tracerResolved = true;
+    }
+
     public final RequestResponseFactory getRequestResponseFactory() {
         if (requestResponseFactory == null) {
             requestResponseFactory = createRequestResponseFactory();
@@ -389,6 +537,19 @@ public class Application {
         this.maximumUploadSize = maximumUploadSize;
     }
 
+    /**
+     * Returns the thread pool of the embedded web server or null (for example when the application is deployed as a war).
+     *
+     * @return the thread pool of the web server
+     */
+    public WebServerThreadPool getWebServerThreadPool() {
+        return webServerThreadPool;
+    }
+
+    public void setWebServerThreadPool(WebServerThreadPool webServerThreadPool) {
+        this.webServerThreadPool = webServerThreadPool;
+    }
+
     public RoutePreDispatchListenerList getRoutePreDispatchListeners() {
         if (routePreDispatchListeners == null) {
             routePreDispatchListeners = new RoutePreDispatchListenerList();
@@ -21,14 +21,19 @@ import ro.pippo.core.util.StringUtils;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Container for registered content type engines. The main purpose of this
  * object is to gracefully handle mapping a suffix, complex content-type,
  * or an accept header to an engine.
+ * <p/>
+ * Resolved lookups are cached by the raw header value; clients send only a handful of
+ * distinct accept headers, so most lookups are a single hash probe.
  *
  * @author James Moger
  */
@@ -36,13 +41,26 @@ public class ContentTypeEngines {
 
     private static final Logger log = LoggerFactory.getLogger(ContentTypeEngines.class);
 
+    /**
+     * The maximum number of distinct content types/accept headers that are cached.
+     */
+    private static final int MAX_CACHED_LOOKUPS = 512;
+
+    /**
+     * Marker for cached lookups that do not resolve to an engine.
+     */
+    private static final ContentTypeEngine NO_ENGINE = new TextPlainEngine();
+
     private final Map<String, ContentTypeEngine> engines;
 
     private final Map<String, ContentTypeEngine> suffixes;
 
+    private final ConcurrentMap<String, ContentTypeEngine> lookups;
+
     public ContentTypeEngines() {
-        this.engines = new TreeMap<>();
-        this.suffixes = new TreeMap<>();
+        this.engines = new HashMap<>();
+        this.suffixes = new HashMap<>();
+        this.lookups = new ConcurrentHashMap<>();
     }
 
     /**
@@ -52,15 +70,7 @@ public class ContentTypeEngines {
      * @return true if there is an engine for the content type
      */
     public boolean hasContentTypeEngine(String contentTypeOrSuffix) {
-        String sanitizedTypes = sanitizeContentTypes(contentTypeOrSuffix);
-        String[] types = sanitizedTypes.split(",");
-        for (String type : types) {
-            if (engines.containsKey(type)) {
-                return true;
-            }
-        }
-
-        return suffixes.containsKey(contentTypeOrSuffix.toLowerCase());
+        return getContentTypeEngine(contentTypeOrSuffix) != null;
     }
 
     /**
@@ -69,7 +79,10 @@ public class ContentTypeEngines {
      * @return the list of registered content types
      */
     public List<String> getContentTypes() {
-        return Collections.unmodifiableList(new ArrayList<>(engines.keySet()));
+        List<String> contentTypes = new ArrayList<>(engines.keySet());
+        Collections.sort(contentTypes);
+
+        return Collections.unmodifiableList(contentTypes);
     }
 
     /**
@@ -78,7 +91,10 @@ public class ContentTypeEngines {
      * @return the list of registered content type suffixes
      */
     public List<String> getContentTypeSuffixes() {
-        return Collections.unmodifiableList(new ArrayList<>(suffixes.keySet()));
+        List<String> contentTypeSuffixes = new ArrayList<>(suffixes.keySet());
+        Collections.sort(contentTypeSuffixes);
+
+        return Collections.unmodifiableList(contentTypeSuffixes);
     }
 
     /**
@@ -112,6 +128,7 @@ public class ContentTypeEngines {
      * <pre>
      * text/html,application/xhtml+xml,application/xml;q=0.9,image/webp
      * </pre>
+     * The types of an accept header are considered in the order of their quality scores.
      *
      * @param contentTypeOrSuffix
      * @return null or the first matching content type engine
@@ -121,16 +138,17 @@ public class ContentTypeEngines {
             return null;
         }
 
-        String sanitizedTypes = sanitizeContentTypes(contentTypeOrSuffix);
-        String[] types = sanitizedTypes.split(",");
-        for (String type : types) {
-            ContentTypeEngine engine = engines.get(type);
-            if (engine != null) {
-                return engine;
+        ContentTypeEngine engine = lookups.get(contentTypeOrSuffix);
+        if (engine == null) {
+            engine = findContentTypeEngine(contentTypeOrSuffix);
+            if (lookups.size() >= MAX_CACHED_LOOKUPS) {
+                // a flood of distinct values, start over rather than grow without bounds
+                lookups.clear();
             }
+            lookups.put(contentTypeOrSuffix, (engine == null) ? NO_ENGINE : engine);
         }
 
-        return suffixes.get(contentTypeOrSuffix.toLowerCase());
+        return (engine == NO_ENGINE) ? null : engine;
     }
 
     /**
@@ -145,10 +163,53 @@ public class ContentTypeEngines {
 
         engines.put(engine.getContentType(), engine);
         suffixes.put(suffix.toLowerCase(), engine);
+        lookups.clear();
 
         log.debug("'{}' content engine is '{}'", engine.getContentType(), engine.getClass().getName());
     }
 
+    /**
+     * Parses a complex content-type or accept header value into its media types,
+     * ordered by descending quality score. Types with equal scores keep their order
+     * and types with a zero quality score (not acceptable) are dropped.
+     * <p/>
+     * <pre>
+     * text/html,application/xhtml+xml,application/xml;q=0.9,image/webp
+     * </pre>
+     *
+     * @param contentType
+     * @return the list of media types, without parameters
+     */
+    protected List<String> parseContentTypes(String contentType) {
+        List<MediaRange> ranges = new ArrayList<>();
+        int length = contentType.length();
+        int start = 0;
+        while (start < length) {
+            int end = contentType.indexOf(',', start);
+            if (end == -1) {
+                end = length;
+            }
+
+            MediaRange range = MediaRange.parse(contentType, start, end, ranges.size());
+            if (range != null && range.quality > 0) {
+                ranges.add(range);
+            }
+
+            start = end + 1;
+        }
+
+        if (ranges.size() > 1) {
+            Collections.sort(ranges);
+        }
+
+        List<String> types = new ArrayList<>(ranges.size());
+        for (MediaRange range : ranges) {
+            types.add(range.type);
+        }
+
+        return types;
+    }
+
     /**
      * Cleans a complex content-type or accept header value by removing the
      * quality scores.
@@ -159,7 +220,9 @@ public class ContentTypeEngines {
      *
      * @param contentType
      * @return null or the first matching content type engine
+     * @deprecated use {@link #parseContentTypes(String)}, which also honors the quality scores
      */
+    @Deprecated
     protected String sanitizeContentTypes(String contentType) {
         if (StringUtils.isNullOrEmpty(contentType)) {
             return null;
@@ -182,4 +245,75 @@ public class ContentTypeEngines {
         return sb.toString();
     }
 
+    private ContentTypeEngine findContentTypeEngine(String contentTypeOrSuffix) {
+        for (String type : parseContentTypes(contentTypeOrSuffix)) {
+            ContentTypeEngine engine = engines.get(type);
+            if (engine != null) {
+                return engine;
+            }
+        }
+
+        return suffixes.get(contentTypeOrSuffix.toLowerCase());
+    }
+
+    /**
+     * A media type of an accept header, with its quality score.
+     */
+    private static class MediaRange implements Comparable<MediaRange> {
+
+        private final String type;
+        private final float quality;
+        private final int index;
+
+        private MediaRange(String type, float quality, int index) {
+            this.type = type;
+            this.quality = quality;
+            this.index = index;
+        }
+
+        /**
+         * Parses the range [start, end) of the header, e.g. "application/xml;q=0.9".
+         */
+        static MediaRange parse(String header, int start, int end, int index) {
+            int semicolon = header.indexOf(';', start);
+            int typeEnd = (semicolon == -1 || semicolon > end) ? end : semicolon;
+            String type = header.substring(start, typeEnd).trim();
+            if (type.isEmpty()) {
+                return null;
+            }
+
+            float quality = 1;
+            int parameterStart = typeEnd + 1;
+            while (parameterStart < end) {
+                int parameterEnd = header.indexOf(';', parameterStart);
+                if (parameterEnd == -1 || parameterEnd > end) {
+                    parameterEnd = end;
+                }
+
+                String parameter = header.substring(parameterStart, parameterEnd).trim();
+                if (parameter.startsWith("q=") || parameter.startsWith("Q=")) {
+                    try {
+                        quality = Float.parseFloat(parameter.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        // an invalid quality score, keep the default
+                    }
+                    // accept-extension parameters may follow the quality score
+                    break;
+                }
+
+                parameterStart = parameterEnd + 1;
+            }
+
+            return new MediaRange(type, quality, index);
+        }
+
+        @Override
+        public int compareTo(MediaRange other) {
+            int result = Float.compare(other.quality, quality);
+
+            return (result != 0) ? result : Integer.compare(index, other.index);
+        }
+
+    }
+
 }
@@ -0,0 +1,173 @@
+/*
+ * Copyright (C) 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.core;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ro.pippo.core.util.CryptoUtils;
+import ro.pippo.core.util.StringUtils;
+
+import javax.servlet.http.Cookie;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * Keeps the flash in a cookie, so the flash messages don't need a server-side session.
+ * The cookie is written only when a message is added and it's removed when the flash is consumed.
+ * <p/>
+ * The messages are sent back by the browser, so they should be short (a cookie is limited to about 4KB).
+ * The templates render the flash as trusted content, so the cookie is always signed with a secret key
+ * and a cookie with a missing or invalid signature is ignored. The cookie is secure when the request is.
+ */
+public class CookieFlashTransport implements FlashTransport {
+
+    private static final Logger log = LoggerFactory.getLogger(CookieFlashTransport.class);
+
+    private static final String FLASH_ATTRIBUTE = CookieFlashTransport.class.getName() + ".flash";
+
+    private static final int MAX_COOKIE_SIZE = 4000;
+
+    private final String cookieName;
+    private final String secretKey;
+
+    /**
+     * @param cookieName
+     * @param secretKey the key used to sign the cookie
+     */
+    public CookieFlashTransport(String cookieName, String secretKey) {
+        if (StringUtils.isNullOrEmpty(secretKey)) {
+            throw new PippoRuntimeException("The flash cookie '{}' requires a secret key", cookieName);
+        }
+
+        this.cookieName = cookieName;
+        this.secretKey = secretKey;
+    }
+
+    public String getCookieName() {
+        return cookieName;
+    }
+
+    @Override
+    public Flash getIncomingFlash(Request request, Response response) {
+        Cookie cookie = request.getCookie(cookieName);
+        if (cookie == null || StringUtils.isNullOrEmpty(cookie.getValue())) {
+            return null;
+        }
+
+        // consume the flash, unless the current request already wrote a new one
+        if (response.isCommitted()) {
+            log.debug("Cannot remove the flash cookie '{}', the response is committed", cookieName);
+        } else if (response.getCookie(cookieName) == null) {
+            response.removeCookie(cookieName);
+        }
+
+        return decode(cookie.getValue());
+    }
+
+    @Override
+    public Flash getFlash(Request request, Response response) {
+        Flash flash = (Flash) request.getHttpServletRequest().getAttribute(FLASH_ATTRIBUTE);
+        if (flash == null) {
+            flash = new CookieFlash(request, response);
+            request.getHttpServletRequest().setAttribute(FLASH_ATTRIBUTE, flash);
+        }
+
+        return flash;
+    }
+
+    protected String encode(Flash flash) {
+        StringBuilder value = new StringBuilder();
+        try {
+            for (Flash.Message message : flash) {
+                if (value.length() > 0) {
+                    value.append('&');
+                }
+                value.append(message.getLevel()).append('=').append(URLEncoder.encode(message.getMessage(), PippoConstants.UTF8));
+            }
+        } catch (UnsupportedEncodingException e) {
+            throw new PippoRuntimeException(e);
+        }
+
+        value.insert(0, CryptoUtils.getHmacSHA256(value.toString(), secretKey) + "|");
+
+        if (value.length() > MAX_COOKIE_SIZE) {
+            log.warn("The flash cookie '{}' has {} characters, the browser may discard it", cookieName, value.length());
+        }
+
+        return value.toString();
+    }
+
+    protected Flash decode(String value) {
+        int separator = value.indexOf('|');
+        if (separator == -1) {
+            log.debug("Ignoring unsigned flash cookie '{}'", cookieName);
+            return null;
+        }
+
+        String signature = value.substring(0, separator);
+        value = value.substring(separator + 1);
+        String expected = CryptoUtils.getHmacSHA256(value, secretKey);
+        if (!MessageDigest.isEqual(expected.getBytes(StandardCharsets.UTF_8), signature.getBytes(StandardCharsets.UTF_8))) {
+            log.debug("Ignoring flash cookie '{}' with an invalid signature", cookieName);
+            return null;
+        }
+
+        Flash flash = new Flash();
+        try {
+            for (String pair : value.split("&")) {
+                int index = pair.indexOf('=');
+                if (index > 0) {
+                    int level = Integer.parseInt(pair.substring(0, index));
+                    flash.add(level, URLDecoder.decode(pair.substring(index + 1), PippoConstants.UTF8));
+                }
+            }
+        } catch (UnsupportedEncodingException | IllegalArgumentException e) {
+            log.debug("Ignoring malformed flash cookie '{}'", cookieName);
+            return null;
+        }
+
+        return flash;
+    }
+
+    /**
+     * A flash that rewrites the cookie on each new message.
+     */
+    private class CookieFlash extends Flash {
+
+        private final transient Request request;
+        private final transient Response response;
+
+        private CookieFlash(Request request, Response response) {
+            this.request = request;
+            this.response = response;
+        }
+
+        @Override
+        public void add(int level, String message) {
+            super.add(level, message);
+
+            Cookie cookie = new Cookie(cookieName, encode(this));
+            cookie.setHttpOnly(true);
+            cookie.setSecure(request.isSecure());
+            response.cookie(cookie);
+        }
+
+    }
+
+}
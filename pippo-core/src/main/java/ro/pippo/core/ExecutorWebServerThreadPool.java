@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.core;
+
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.function.Supplier;
+
+/**
+ * A {@link WebServerThreadPool} backed by a {@link ThreadPoolExecutor}.
+ * The executor is resolved each time, so it can be created after this instance
+ * (for example when the web server starts).
+ */
+public class ExecutorWebServerThreadPool implements WebServerThreadPool {
+
+    private final Supplier<ThreadPoolExecutor> executorSupplier;
+
+    /**
+     * @param executorSupplier supplies the executor or null if it's not available
+     */
+    public ExecutorWebServerThreadPool(Supplier<ThreadPoolExecutor> executorSupplier) {
+        this.executorSupplier = executorSupplier;
+    }
+
+    @Override
+    public int getThreads() {
+        ThreadPoolExecutor executor = executorSupplier.get();
+
+        return (executor != null) ? executor.getPoolSize() : -1;
+    }
+
+    @Override
+    public int getBusyThreads() {
+        ThreadPoolExecutor executor = executorSupplier.get();
+
+        return (executor != null) ? executor.getActiveCount() : -1;
+    }
+
+    @Override
+    public int getIdleThreads() {
+        ThreadPoolExecutor executor = executorSupplier.get();
+
+        return (executor != null) ? Math.max(executor.getPoolSize() - executor.getActiveCount(), 0) : -1;
+    }
+
+    @Override
+    public int getMaxThreads() {
+        ThreadPoolExecutor executor = executorSupplier.get();
+
+        return (executor != null) ? executor.getMaximumPoolSize() : -1;
+    }
+
+    @Override
+    public int getQueueSize() {
+        ThreadPoolExecutor executor = executorSupplier.get();
+
+        return (executor != null) ? executor.getQueue().size() : -1;
+    }
+
+}
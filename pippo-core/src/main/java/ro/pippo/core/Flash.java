@@ -40,10 +40,11 @@ public class Flash implements Iterable<Flash.Message>, Serializable {
     }
 
     public void add(int level, String message) {
-        messages.add(new Message(level, message));
+        getMessages().add(new Message(level, message));
     }
 
     public List<String> get(int level) {
+        List<Message> messages = getMessages();
         if (messages.isEmpty()) {
             return Collections.emptyList();
         }
@@ -59,7 +60,7 @@ public class Flash implements Iterable<Flash.Message>, Serializable {
     }
 
     public boolean isEmpty() {
-        return messages.isEmpty();
+        return getMessages().isEmpty();
     }
 
     public boolean isEmpty(int level) {
@@ -68,7 +69,11 @@ public class Flash implements Iterable<Flash.Message>, Serializable {
 
     @Override
     public Iterator<Flash.Message> iterator() {
-        return messages.iterator();
+        return getMessages().iterator();
+    }
+
+    protected List<Message> getMessages() {
+        return messages;
     }
 
     // some helpers
@@ -156,7 +161,7 @@ public class Flash implements Iterable<Flash.Message>, Serializable {
     @Override
     public String toString() {
         return "FlashMessages{" +
-            "messages=" + messages +
+            "messages=" + getMessages() +
             '}';
     }
 
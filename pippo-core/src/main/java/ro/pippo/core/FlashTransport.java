@@ -0,0 +1,48 @@
+/*
+ * Copyright (C) 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.core;
+
+/**
+ * Carries the flash messages from a request to the next one.
+ * The default transport is {@link SessionFlashTransport}; {@link CookieFlashTransport}
+ * doesn't need a server-side session at all.
+ *
+ * @see Application#setFlashTransport(FlashTransport)
+ */
+public interface FlashTransport {
+
+    /**
+     * Returns the flash of the previous request, consuming it, or null.
+     * It's called once per dispatched request, before the routes, so a flash lives for exactly one request.
+     * It must not create a session.
+     *
+     * @param request
+     * @param response
+     * @return the flash of the previous request or null
+     */
+    Flash getIncomingFlash(Request request, Response response);
+
+    /**
+     * Returns the flash of the current request, the one available to the next request.
+     * The same instance is returned for a request and it's written only if it's not empty.
+     *
+     * @param request
+     * @param response
+     * @return the flash of the current request
+     */
+    Flash getFlash(Request request, Response response);
+
+}
@@ -98,6 +98,7 @@ public final class HttpConstants {
         public static final String HOST = "Host";
         public static final String LAST_MODIFIED = "Last-Modified";
         public static final String LOCATION = "Location";
+        public static final String SERVER_TIMING = "Server-Timing";
 
         private Header() {
             // restrict instantiation
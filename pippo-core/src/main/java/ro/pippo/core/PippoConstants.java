@@ -39,6 +39,28 @@ public final class PippoConstants {
 
     public static final String SETTING_APPLICATION_COOKIE_PREFIX = "application.cookie.prefix";
 
+    public static final String SETTING_APPLICATION_FLASH_TRANSPORT = "application.flash.transport";
+
+    public static final String SETTING_APPLICATION_FLASH_SECRET_KEY = "application.flash.secretKey";
+
+    public static final String SETTING_APPLICATION_TIMING_ENABLED = "application.timing.enabled";
+
+    public static final String SETTING_APPLICATION_TIMING_SERVER_TIMING = "application.timing.serverTiming";
+
+    public static final String SETTING_APPLICATION_SLOW_REQUESTS_THRESHOLD = "application.slowRequests.threshold";
+
+    public static final String SETTING_APPLICATION_SLOW_REQUESTS_CAPACITY = "application.slowRequests.capacity";
+
+    public static final String SETTING_APPLICATION_SLOW_REQUESTS_STACK_SAMPLING = "application.slowRequests.stackSampling";
+
+    public static final String SETTING_APPLICATION_SLOW_REQUESTS_CAPTURE_QUERY = "application.slowRequests.captureQuery";
+
+    public static final String SETTING_APPLICATION_SLOW_REQUESTS_CAPTURE_PATH_PARAMETERS = "application.slowRequests.capturePathParameters";
+
+    public static final String SETTING_APPLICATION_TRACING_ENABLED = "application.tracing.enabled";
+
+    public static final String SETTING_APPLICATION_TRACING_EXPORTER = "application.tracing.exporter";
+
     public static final String SETTING_HTTP_CACHE_CONTROL = "http.cacheControl";
 
     public static final String SETTING_HTTP_USE_ETAG = "http.useETag";
@@ -28,10 +28,14 @@ import javax.servlet.http.Cookie;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpSession;
 import javax.servlet.http.Part;
+import java.io.IOException;
+import java.io.PushbackInputStream;
 import java.lang.reflect.Field;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.net.URI;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Enumeration;
@@ -302,6 +306,14 @@ public final class Request {
 
     public <T> T createEntityFromBody(Class<T> entityClass) {
         try {
+            if (body == null && !isFormPost()) {
+                // the body was not consumed yet, let a streaming engine read it directly
+                ContentTypeEngine engine = getBodyContentTypeEngine();
+                if (engine instanceof StreamingContentTypeEngine) {
+                    return createEntityFromStream((StreamingContentTypeEngine) engine, entityClass);
+                }
+            }
+
             String body = getBody();
             if (StringUtils.isNullOrEmpty(body)) {
                 log.warn("Can not create entity '{}' from null or empty request body!", entityClass.getName());
@@ -309,12 +321,7 @@ public final class Request {
             }
 
             // try to determine the body content-type
-            String contentType = getContentType();
-            if (StringUtils.isNullOrEmpty(contentType)) {
-                // sloppy client, try the accept header
-                contentType = getAcceptType();
-            }
-
+            String contentType = getBodyContentType();
             if (StringUtils.isNullOrEmpty(contentType)) {
                 throw new PippoRuntimeException(
                     "Failed to create entity '{}' from request body because 'content-type' is not specified!",
@@ -338,6 +345,37 @@ public final class Request {
         }
     }
 
+    private <T> T createEntityFromStream(StreamingContentTypeEngine engine, Class<T> entityClass) throws IOException {
+        PushbackInputStream input = new PushbackInputStream(httpServletRequest.getInputStream());
+        int first = input.read();
+        if (first == -1) {
+            log.warn("Can not create entity '{}' from null or empty request body!", entityClass.getName());
+            return null;
+        }
+        input.unread(first);
+
+        String encoding = httpServletRequest.getCharacterEncoding();
+        Charset charset = (encoding == null) ? StandardCharsets.UTF_8 : Charset.forName(encoding);
+
+        return engine.fromStream(input, charset, entityClass);
+    }
+
+    private String getBodyContentType() {
+        String contentType = getContentType();
+        if (StringUtils.isNullOrEmpty(contentType)) {
+            // sloppy client, try the accept header
+            contentType = getAcceptType();
+        }
+
+        return contentType;
+    }
+
+    private ContentTypeEngine getBodyContentTypeEngine() {
+        String contentType = getBodyContentType();
+
+        return StringUtils.isNullOrEmpty(contentType) ? null : contentTypeEngines.getContentTypeEngine(contentType);
+    }
+
     public String getHost() {
         return httpServletRequest.getHeader(HttpConstants.Header.HOST);
     }
@@ -380,9 +418,7 @@ public final class Request {
     public String getContentType() {
         if (contentType == null) {
             String httpServletRequestContentType = httpServletRequest.getHeader(HttpConstants.Header.CONTENT_TYPE);
-            if (HttpConstants.Method.POST.equals(httpServletRequest.getMethod())
-                && (HttpConstants.ContentType.APPLICATION_FORM_URLENCODED.equals(httpServletRequestContentType)
-                || HttpConstants.ContentType.MULTIPART_FORM_DATA.equals(httpServletRequestContentType))) {
+            if (isFormPost()) {
                 // Allow forms to exercise RESTful API endpoints by POSTing content like 'application/json'.
                 // This parameter is usually paired with '_method' and '_content' parameters.
                 contentType = getParameter("_content_type").toString(httpServletRequestContentType);
@@ -395,10 +431,7 @@ public final class Request {
 
     public String getBody() {
         if (body == null) {
-            String httpServletRequestContentType = httpServletRequest.getHeader(HttpConstants.Header.CONTENT_TYPE);
-            if (HttpConstants.Method.POST.equals(httpServletRequest.getMethod())
-                && (HttpConstants.ContentType.APPLICATION_FORM_URLENCODED.equals(httpServletRequestContentType)
-                || HttpConstants.ContentType.MULTIPART_FORM_DATA.equals(httpServletRequestContentType))) {
+            if (isFormPost()) {
                 // Allow forms to exercise RESTful API endpoints by POSTing content like 'application/json'.
                 // This parameter is usually paired with '_method' and '_content_type' parameters.
                 body = getParameter("_content").toString(null);
@@ -413,6 +446,14 @@ public final class Request {
         return body;
     }
 
+    private boolean isFormPost() {
+        String httpServletRequestContentType = httpServletRequest.getHeader(HttpConstants.Header.CONTENT_TYPE);
+
+        return HttpConstants.Method.POST.equals(httpServletRequest.getMethod())
+            && (HttpConstants.ContentType.APPLICATION_FORM_URLENCODED.equals(httpServletRequestContentType)
+            || HttpConstants.ContentType.MULTIPART_FORM_DATA.equals(httpServletRequestContentType));
+    }
+
     public String getHeader(String name) {
         return httpServletRequest.getHeader(name);
     }
@@ -544,9 +585,13 @@ public final class Request {
         if (session == null) {
             return;
         }
+
+        // the flash of the previous request is still available to this request
+        Flash incomingFlash = session.getIncomingFlash();
+
         session.invalidate();
         session = null;
-        getSession();
+        getSession().setIncomingFlash(incomingFlash);
     }
 
     public void recreateSession() {
@@ -554,7 +599,10 @@ public final class Request {
             return;
         }
 
-        // preserve the session data
+        // the flash of the previous request is carried over by resetSession
+        session.getIncomingFlash();
+
+        // preserve the session data (including the flash of the current request)
         Map<String, Object> values = new HashMap<>();
         Enumeration<String> names = getSession().getNames();
         while (names.hasMoreElements()) {
@@ -562,9 +610,6 @@ public final class Request {
             values.put(name, getSession().get(name));
         }
 
-        // preserve the flash data
-        Flash flash = session.getFlash();
-
         // create a new session
         resetSession();
 
@@ -572,11 +617,6 @@ public final class Request {
         for (Map.Entry<String, Object> entry : values.entrySet()) {
             getSession().put(entry.getKey(), entry.getValue());
         }
-
-        // restore the flash instance
-        if (flash != null) {
-            getSession().put("flash", flash);
-        }
     }
 
     public Map<String, FileItem> getFiles() {
@@ -33,11 +33,28 @@ public class RequestResponseFactory {
     }
 
     public Request createRequest(HttpServletRequest httpServletRequest, Response response) {
-        return new Request(httpServletRequest, application);
+        RequestTimer requestTimer = response.getRequestTimer();
+        if (requestTimer == null) {
+            return new Request(httpServletRequest, application);
+        }
+
+        // the query&post parameters are parsed when the request is created
+        long start = System.nanoTime();
+        Request request = new Request(httpServletRequest, application);
+        requestTimer.record(RequestTimer.Phase.BINDING, start);
+
+        return request;
     }
 
     public Response createResponse(HttpServletResponse httpServletResponse) {
         return new Response(httpServletResponse, application);
     }
 
+    /**
+     * Called when the application is destroyed.
+     * Override this method to release the resources of your factory.
+     */
+    public void destroy() {
+    }
+
 }
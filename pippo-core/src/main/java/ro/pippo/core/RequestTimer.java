@@ -0,0 +1,177 @@
+/*
+ * Copyright (C) 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.core;
+
+/**
+ * Measures the time spent by a request in each phase of its processing.
+ * A timer is created for each request only if the request timing is enabled
+ * (see {@link Application#isRequestTimingEnabled()}), otherwise {@link Response#getRequestTimer()} returns null.
+ * <p/>
+ * The handler phase is exclusive: the rendering and the commit done by the handlers are not part of it.
+ * The timer is not thread safe, it's used by the thread that processes the request.
+ */
+public final class RequestTimer {
+
+    public enum Phase {
+
+        /**
+         * Finding the routes that match the request.
+         */
+        ROUTING("routing"),
+
+        /**
+         * Parsing the query and post parameters.
+         */
+        BINDING("binding"),
+
+        /**
+         * Running the route handlers, without rendering and commit.
+         */
+        HANDLER("handler"),
+
+        /**
+         * Rendering templates and converting objects to text.
+         */
+        RENDERING("render"),
+
+        /**
+         * Writing the response (including the streaming of objects).
+         */
+        COMMIT("commit");
+
+        private final String name;
+
+        Phase(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Returns the name used in metric names and in the <code>Server-Timing</code> header.
+         */
+        public String getName() {
+            return name;
+        }
+
+    }
+
+    private static final Phase[] PHASES = Phase.values();
+
+    private final long[] durations = new long[PHASES.length];
+    private final boolean serverTiming;
+
+    private long handlerStart = -1;
+    private long nestedAtHandlerStart;
+
+    public RequestTimer(boolean serverTiming) {
+        this.serverTiming = serverTiming;
+    }
+
+    /**
+     * Returns true if a <code>Server-Timing</code> header is added to the response.
+     */
+    public boolean isServerTiming() {
+        return serverTiming;
+    }
+
+    /**
+     * Adds the time elapsed since <code>start</code> (a {@link System#nanoTime()} value) to the phase.
+     *
+     * @param phase
+     * @param start
+     */
+    public void record(Phase phase, long start) {
+        durations[phase.ordinal()] += System.nanoTime() - start;
+    }
+
+    /**
+     * Marks the start of the route handlers chain.
+     */
+    public void startHandler() {
+        handlerStart = System.nanoTime();
+        nestedAtHandlerStart = getNested();
+    }
+
+    /**
+     * Marks the end of the route handlers chain.
+     */
+    public void stopHandler() {
+        if (handlerStart >= 0) {
+            durations[Phase.HANDLER.ordinal()] += getRunningHandlerDuration();
+            handlerStart = -1;
+        }
+    }
+
+    /**
+     * Returns the time in nanoseconds spent in a phase.
+     * For a running handler chain it's the time spent until now.
+     *
+     * @param phase
+     * @return the duration in nanoseconds
+     */
+    public long getDuration(Phase phase) {
+        long duration = durations[phase.ordinal()];
+        if (phase == Phase.HANDLER && handlerStart >= 0) {
+            duration += getRunningHandlerDuration();
+        }
+
+        return duration;
+    }
+
+    /**
+     * Returns the value of the <code>Server-Timing</code> header (e.g. <code>routing;dur=0.012, handler;dur=2.5</code>),
+     * with the durations in milliseconds. Only the phases with a duration are listed.
+     */
+    public String toServerTiming() {
+        StringBuilder sb = new StringBuilder(96);
+        for (Phase phase : PHASES) {
+            long duration = getDuration(phase);
+            if (duration > 0) {
+                if (sb.length() > 0) {
+                    sb.append(", ");
+                }
+                sb.append(phase.getName()).append(";dur=");
+                appendMillis(sb, duration);
+            }
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * Appends the duration in milliseconds with three decimals, without the cost of a formatter.
+     */
+    private static void appendMillis(StringBuilder sb, long nanos) {
+        long micros = nanos / 1000;
+        sb.append(micros / 1000).append('.');
+        long fraction = micros % 1000;
+        if (fraction < 100) {
+            sb.append('0');
+        }
+        if (fraction < 10) {
+            sb.append('0');
+        }
+        sb.append(fraction);
+    }
+
+    private long getRunningHandlerDuration() {
+        return Math.max(0, System.nanoTime() - handlerStart - (getNested() - nestedAtHandlerStart));
+    }
+
+    private long getNested() {
+        return durations[Phase.RENDERING.ordinal()] + durations[Phase.COMMIT.ordinal()];
+    }
+
+}
@@ -19,6 +19,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import ro.pippo.core.route.RouteContext;
 import ro.pippo.core.route.RouteDispatcher;
+import ro.pippo.core.tracing.Span;
+import ro.pippo.core.tracing.Tracer;
 import ro.pippo.core.util.DateUtils;
 import ro.pippo.core.util.IoUtils;
 import ro.pippo.core.util.MimeTypes;
@@ -29,10 +31,14 @@ import javax.servlet.http.HttpServletResponse;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.Collection;
 import java.util.Date;
@@ -55,9 +61,12 @@ public final class Response {
     private String contextPath;
     private String applicationPath;
     private ResponseFinalizeListenerList finalizeListeners;
+    private RequestTimer requestTimer;
+    private Tracer tracer;
     private MimeTypes mimeTypes;
 
     private int status;
+    private long contentSize = -1;
 
     public Response(HttpServletResponse httpServletResponse, Application application) {
         this.httpServletResponse = httpServletResponse;
@@ -67,10 +76,23 @@ public final class Response {
         this.contextPath = application.getRouter().getContextPath();
         this.applicationPath = StringUtils.removeEnd(application.getRouter().getApplicationPath(), "/");
         this.mimeTypes = application.getMimeTypes();
+        this.tracer = application.getTracer();
+        if (application.isRequestTimingEnabled()) {
+            this.requestTimer = new RequestTimer(application.isServerTimingEnabled());
+        }
 
         this.status = 0;
     }
 
+    /**
+     * Returns the timer of the request phases or null if the request timing is disabled.
+     *
+     * @return the request timer or null
+     */
+    public RequestTimer getRequestTimer() {
+        return requestTimer;
+    }
+
     /**
      * Map of bound objects which can be stored and shared between all handlers
      * for the current request/response cycle.
@@ -865,7 +887,39 @@ public final class Response {
         }
 
         header(HttpConstants.Header.CONTENT_TYPE, contentTypeEngine.getContentType());
-        send(contentTypeEngine.toString(object));
+        Span span = startSpan("serialize " + contentTypeEngine.getContentType());
+        if (contentTypeEngine instanceof StreamingContentTypeEngine) {
+            try {
+                commit((StreamingContentTypeEngine) contentTypeEngine, object);
+            } finally {
+                endSpan(span);
+            }
+        } else {
+            long start = (requestTimer != null) ? System.nanoTime() : 0;
+            String content;
+            try {
+                content = contentTypeEngine.toString(object);
+            } finally {
+                endSpan(span);
+            }
+            if (requestTimer != null) {
+                requestTimer.record(RequestTimer.Phase.RENDERING, start);
+            }
+            send(content);
+        }
+    }
+
+    /**
+     * Starts a child span of the active span or returns null if the tracing is disabled.
+     */
+    private Span startSpan(String name) {
+        return (tracer != null) ? tracer.startSpan(name) : null;
+    }
+
+    private void endSpan(Span span) {
+        if (span != null) {
+            tracer.endSpan(span);
+        }
     }
 
     /**
@@ -885,7 +939,7 @@ public final class Response {
 
         try {
             // by calling httpServletResponse.getOutputStream() we are committing the response
-            IoUtils.copy(input, httpServletResponse.getOutputStream());
+            IoUtils.copy(input, getCountingOutputStream());
 
             // flushing the buffer forces chunked-encoding
             httpServletResponse.flushBuffer();
@@ -937,7 +991,7 @@ public final class Response {
 
         try {
             // by calling httpServletResponse.getOutputStream() we are committing the response
-            IoUtils.copy(input, httpServletResponse.getOutputStream());
+            IoUtils.copy(input, getCountingOutputStream());
 
             // flushing the buffer forces chunked-encoding
             httpServletResponse.flushBuffer();
@@ -983,7 +1037,16 @@ public final class Response {
 
         // render the template using the merged model
         StringWriter stringWriter = new StringWriter();
-        templateEngine.renderResource(templateName, model, stringWriter);
+        long start = (requestTimer != null) ? System.nanoTime() : 0;
+        Span span = startSpan("render " + templateName);
+        try {
+            templateEngine.renderResource(templateName, model, stringWriter);
+        } finally {
+            endSpan(span);
+        }
+        if (requestTimer != null) {
+            requestTimer.record(RequestTimer.Phase.RENDERING, start);
+        }
         send(stringWriter.toString());
     }
 
@@ -1011,6 +1074,7 @@ public final class Response {
 
     private void commit(CharSequence content) {
         checkCommitted();
+        long start = (requestTimer != null) ? System.nanoTime() : 0;
         finalizeResponse();
 
         // content type to TEXT_HTML if it's not set
@@ -1020,12 +1084,39 @@ public final class Response {
 
         try {
             if (content != null) {
-                httpServletResponse.getWriter().append(content);
+                // count the bytes actually written instead of encoding the content twice
+                Writer writer = new OutputStreamWriter(getCountingOutputStream(), getCharacterEncoding());
+                writer.append(content);
+                writer.flush();
+            }
+            log.trace("Response committed");
+            httpServletResponse.flushBuffer();
+        } catch (IOException e) {
+            throw new PippoRuntimeException(e);
+        } finally {
+            if (requestTimer != null) {
+                requestTimer.record(RequestTimer.Phase.COMMIT, start);
             }
+        }
+    }
+
+    private void commit(StreamingContentTypeEngine contentTypeEngine, Object object) {
+        checkCommitted();
+        long start = (requestTimer != null) ? System.nanoTime() : 0;
+        finalizeResponse();
+
+        try {
+            // by calling httpServletResponse.getOutputStream() we are committing the response
+            Charset charset = Charset.forName(getCharacterEncoding());
+            contentTypeEngine.toStream(object, getCountingOutputStream(), charset);
             log.trace("Response committed");
             httpServletResponse.flushBuffer();
         } catch (IOException e) {
             throw new PippoRuntimeException(e);
+        } finally {
+            if (requestTimer != null) {
+                requestTimer.record(RequestTimer.Phase.COMMIT, start);
+            }
         }
     }
 
@@ -1049,6 +1140,11 @@ public final class Response {
         if ((finalizeListeners != null) && !finalizeListeners.isEmpty()) {
             finalizeListeners.onFinalize(this);
         }
+
+        // the commit is not done yet so it cannot be part of the header
+        if (requestTimer != null && requestTimer.isServerTiming()) {
+            httpServletResponse.setHeader(HttpConstants.Header.SERVER_TIMING, requestTimer.toServerTiming());
+        }
     }
 
     public ResponseFinalizeListenerList getFinalizeListeners() {
@@ -1069,12 +1165,45 @@ public final class Response {
         }
 
         try {
-            return httpServletResponse.getOutputStream();
+            return getCountingOutputStream();
         } catch (IOException e) {
             throw new PippoRuntimeException(e);
         }
     }
 
+    /**
+     * Returns the size in bytes of the content sent by this response
+     * or -1 if no content was sent (yet).
+     *
+     * @return the size of the content
+     */
+    public long getContentSize() {
+        return contentSize;
+    }
+
+    private OutputStream getCountingOutputStream() throws IOException {
+        // the bytes written through a previously returned stream are kept
+        if (contentSize < 0) {
+            contentSize = 0;
+        }
+
+        return new FilterOutputStream(httpServletResponse.getOutputStream()) {
+
+            @Override
+            public void write(int b) throws IOException {
+                out.write(b);
+                contentSize++;
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+                contentSize += len;
+            }
+
+        };
+    }
+
     public static Response get() {
         RouteContext routeContext = RouteDispatcher.getRouteContext();
 
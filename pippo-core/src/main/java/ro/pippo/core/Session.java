@@ -21,6 +21,7 @@ import ro.pippo.core.route.RouteDispatcher;
 import javax.servlet.http.HttpSession;
 import java.util.Enumeration;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -30,6 +31,10 @@ public class Session {
 
     private HttpSession httpSession;
 
+    private Flash incomingFlash;
+    private boolean incomingFlashRemoved;
+    private Flash flash;
+
     public Session(HttpSession httpSession) {
         this.httpSession = httpSession;
     }
@@ -68,15 +73,74 @@ public class Session {
         remove("__touch");
     }
 
+    /**
+     * Returns the flash of the current request, the one available to the next request.
+     * The flash is put in session only when the first message is added,
+     * so an empty flash never modifies the session.
+     *
+     * @return the flash
+     */
     public Flash getFlash() {
-        Flash flash = get("flash");
         if (flash == null) {
-            put("flash", flash = new Flash());
+            // the messages added now must not go to the flash of the previous request
+            getIncomingFlash();
+
+            Flash stored = get("flash");
+            flash = (stored != null) ? stored : new PendingFlash(this);
         }
 
         return flash;
     }
 
+    /**
+     * Returns the flash stored in session by the previous request or null.
+     * The flash is removed from session on first call.
+     *
+     * @return the flash of the previous request
+     */
+    public Flash getIncomingFlash() {
+        if (!incomingFlashRemoved) {
+            incomingFlash = remove("flash");
+            incomingFlashRemoved = true;
+        }
+
+        return incomingFlash;
+    }
+
+    void setIncomingFlash(Flash incomingFlash) {
+        this.incomingFlash = incomingFlash;
+        incomingFlashRemoved = true;
+    }
+
+    /**
+     * A flash that puts itself in session when the first message is added.
+     */
+    private static class PendingFlash extends Flash {
+
+        private final transient Session session;
+        private final Flash flash = new Flash();
+        private boolean stored;
+
+        private PendingFlash(Session session) {
+            this.session = session;
+        }
+
+        @Override
+        public void add(int level, String message) {
+            if (!stored) {
+                session.put("flash", flash);
+                stored = true;
+            }
+            flash.add(level, message);
+        }
+
+        @Override
+        protected List<Message> getMessages() {
+            return flash.getMessages();
+        }
+
+    }
+
     public boolean isNew() {
         return httpSession.isNew();
     }
@@ -0,0 +1,36 @@
+/*
+ * Copyright (C) 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.core;
+
+/**
+ * Keeps the flash in session.
+ * A session is created only when a flash message is added.
+ */
+public class SessionFlashTransport implements FlashTransport {
+
+    @Override
+    public Flash getIncomingFlash(Request request, Response response) {
+        Session session = request.getSession(false);
+
+        return (session != null) ? session.getIncomingFlash() : null;
+    }
+
+    @Override
+    public Flash getFlash(Request request, Response response) {
+        return request.getSession().getFlash();
+    }
+
+}
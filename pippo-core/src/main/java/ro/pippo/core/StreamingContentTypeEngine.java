@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.core;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+
+/**
+ * A {@link ContentTypeEngine} that is able to write and read its content type directly
+ * to/from a byte stream, without an intermediate {@link String}.
+ * {@link Response} and {@link Request} prefer the stream methods when an engine implements this interface.
+ * <p/>
+ * Binary formats ignore the charset and must still implement {@link #toString(Object)}
+ * and {@link #fromString(String, Class)} (for example with a Base64 representation).
+ */
+public interface StreamingContentTypeEngine extends ContentTypeEngine {
+
+    /**
+     * Serializes the object to the output stream. The stream is not closed.
+     *
+     * @param object
+     * @param output
+     * @param charset the charset used by text formats
+     */
+    void toStream(Object object, OutputStream output, Charset charset);
+
+    /**
+     * Deserializes an object from the input stream. The stream is not closed.
+     *
+     * @param input
+     * @param charset the charset used by text formats
+     * @param classOfT
+     * @return the object
+     */
+    <T> T fromStream(InputStream input, Charset charset, Class<T> classOfT);
+
+}
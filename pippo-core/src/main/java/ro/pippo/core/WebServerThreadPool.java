@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.core;
+
+/**
+ * The statistics of the thread pool that serves the requests of an embedded {@link WebServer}.
+ * The web servers register their thread pool with {@link Application#setWebServerThreadPool(WebServerThreadPool)},
+ * for example to be monitored by pippo-metrics.
+ * The methods return -1 if the value is not available (for example before the server is started).
+ */
+public interface WebServerThreadPool {
+
+    /**
+     * Returns the number of threads of the pool.
+     */
+    int getThreads();
+
+    /**
+     * Returns the number of threads that are serving requests.
+     */
+    int getBusyThreads();
+
+    /**
+     * Returns the number of threads waiting for requests.
+     */
+    int getIdleThreads();
+
+    /**
+     * Returns the maximum number of threads of the pool.
+     */
+    int getMaxThreads();
+
+    /**
+     * Returns the number of tasks waiting for a thread.
+     */
+    int getQueueSize();
+
+}
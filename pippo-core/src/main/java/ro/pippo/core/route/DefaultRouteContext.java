@@ -18,10 +18,13 @@ package ro.pippo.core.route;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import ro.pippo.core.Application;
+import ro.pippo.core.Flash;
 import ro.pippo.core.ParameterValue;
 import ro.pippo.core.Request;
 import ro.pippo.core.Response;
 import ro.pippo.core.Session;
+import ro.pippo.core.tracing.Span;
+import ro.pippo.core.tracing.Tracer;
 import ro.pippo.core.util.StringUtils;
 
 import java.io.File;
@@ -163,22 +166,26 @@ public class DefaultRouteContext implements RouteContext {
 
     @Override
     public void flashError(String message, Object... args) {
-        request.getSession().getFlash().error(message, args);
+        getFlash().error(message, args);
     }
 
     @Override
     public void flashWarning(String message, Object... args) {
-        request.getSession().getFlash().warning(message, args);
+        getFlash().warning(message, args);
     }
 
     @Override
     public void flashInfo(String message, Object... args) {
-        request.getSession().getFlash().info(message, args);
+        getFlash().info(message, args);
     }
 
     @Override
     public void flashSuccess(String message, Object... args) {
-        request.getSession().getFlash().success(message, args);
+        getFlash().success(message, args);
+    }
+
+    private Flash getFlash() {
+        return application.getFlashTransport().getFlash(request, response);
     }
 
     @Override
@@ -259,7 +266,7 @@ public class DefaultRouteContext implements RouteContext {
             // remove route from chain
             iterator.remove();
 
-            handleRoute(route);
+            invokeRoute(route);
         }
     }
 
@@ -272,7 +279,7 @@ public class DefaultRouteContext implements RouteContext {
             Route route = iterator.next().getRoute();
             if (route.isRunAsFinally()) {
                 try {
-                    handleRoute(route);
+                    invokeRoute(route);
                 } catch (Exception e) {
                     log.error("Unexpected error in Finally Route", e);
                 }
@@ -342,6 +349,32 @@ public class DefaultRouteContext implements RouteContext {
         return application.getRouter().uriFor(nameOrUriPattern, parameters);
     }
 
+    /**
+     * Handles the route in a child span of the active span, if the tracing is enabled.
+     * The handlers called by <code>next()</code> inside this handler get nested spans.
+     */
+    private void invokeRoute(Route route) {
+        Tracer tracer = application.getTracer();
+        if (tracer == null) {
+            handleRoute(route);
+            return;
+        }
+
+        String name = StringUtils.isNullOrEmpty(route.getName())
+            ? route.getRequestMethod() + " " + route.getUriPattern() : route.getName();
+        Span span = tracer.startSpan(name);
+        span.setAttribute("route.pattern", route.getUriPattern());
+        span.setAttribute("route.handler", route.getRouteHandler().getClass().getName());
+        try {
+            handleRoute(route);
+        } catch (RuntimeException e) {
+            span.setError(e);
+            throw e;
+        } finally {
+            tracer.endSpan(span);
+        }
+    }
+
     @SuppressWarnings("unchecked")
     protected void handleRoute(Route route) {
         if (StringUtils.isNullOrEmpty(route.getName())) {
@@ -20,9 +20,13 @@ import org.slf4j.LoggerFactory;
 import ro.pippo.core.Application;
 import ro.pippo.core.ErrorHandler;
 import ro.pippo.core.Flash;
+import ro.pippo.core.FlashTransport;
 import ro.pippo.core.HttpConstants;
 import ro.pippo.core.Request;
+import ro.pippo.core.RequestTimer;
 import ro.pippo.core.Response;
+import ro.pippo.core.tracing.Span;
+import ro.pippo.core.tracing.Tracer;
 import ro.pippo.core.util.ServiceLocator;
 
 import javax.servlet.ServletException;
@@ -51,6 +55,8 @@ public class RouteDispatcher {
     protected Application application;
     protected Router router;
     protected ErrorHandler errorHandler;
+    protected SlowRequestSampler slowRequestSampler;
+    protected Tracer tracer;
 
     @SuppressWarnings("unchecked")
     public static <T extends RouteContext> T getRouteContext() {
@@ -71,6 +77,8 @@ public class RouteDispatcher {
 
         router = application.getRouter();
         errorHandler = application.getErrorHandler();
+        slowRequestSampler = application.getSlowRequestSampler();
+        tracer = application.getTracer();
 
         routeContextFactory = getRouteContextFactory();
         routeContextFactory.init(application);
@@ -95,13 +103,36 @@ public class RouteDispatcher {
      * @throws ServletException
      */
     public void dispatch(Request request, Response response) throws IOException, ServletException {
-        onPreDispatch(request, response);
-        onRouteDispatch(request, response);
-        onPostDispatch(request, response);
+        Span span = null;
+        if (tracer != null) {
+            span = tracer.startRequestSpan(request.getMethod() + " " + request.getPath(),
+                request.getHeader(Tracer.TRACEPARENT_HEADER));
+            span.setAttribute("http.method", request.getMethod());
+            span.setAttribute("http.path", request.getPath());
+        }
+
+        try {
+            onPreDispatch(request, response);
+            // a pre-dispatch listener may answer the request itself (e.g. to reject it)
+            if (!response.isCommitted()) {
+                onRouteDispatch(request, response);
+            }
+        } finally {
+            try {
+                // the post-dispatch listeners release what the pre-dispatch listeners acquired, even on failure
+                onPostDispatch(request, response);
+            } finally {
+                if (span != null) {
+                    span.setAttribute("http.status", response.getStatus());
+                    tracer.endSpan(span);
+                }
+            }
+        }
     }
 
     /**
      * Executes onPreDispatch of registered route pre-dispatch listeners.
+     * If a listener commits the response, the routes are not dispatched.
      *
      * @param request
      * @param response
@@ -131,9 +162,16 @@ public class RouteDispatcher {
             return;
         }
 
+        RequestTimer requestTimer = response.getRequestTimer();
+        long start = (requestTimer != null) ? System.nanoTime() : 0;
         List<RouteMatch> routeMatches = router.findRoutes(requestMethod, requestPath);
+        if (requestTimer != null) {
+            requestTimer.record(RequestTimer.Phase.ROUTING, start);
+            requestTimer.startHandler();
+        }
         RouteContext routeContext = routeContextFactory.createRouteContext(application, request, response, routeMatches);
         ROUTE_CONTEXT_THREAD_LOCAL.set(routeContext);
+        SlowRequestSampler.InFlight inFlight = (slowRequestSampler != null) ? slowRequestSampler.start(request) : null;
 
         try {
             if (routeMatches.isEmpty()) {
@@ -164,6 +202,12 @@ public class RouteDispatcher {
             errorHandler.handle(e, routeContext);
         } finally {
             routeContext.runFinallyRoutes();
+            if (requestTimer != null) {
+                requestTimer.stopHandler();
+            }
+            if (inFlight != null) {
+                slowRequestSampler.stop(inFlight, routeMatches, response);
+            }
             log.debug("Returned status code {} for {} '{}'", response.getStatus(), requestMethod, requestPath);
             ROUTE_CONTEXT_THREAD_LOCAL.remove();
         }
@@ -197,21 +241,16 @@ public class RouteDispatcher {
     }
 
     /**
-     * Removes a Flash instance from the session, binds it to the RouteContext,
-     * and creates a new Flash instance.
+     * Consumes the Flash instance of the previous request and binds it to the RouteContext.
+     * The flash lives for exactly one request, even if this request doesn't use it.
+     * The transport doesn't create a session for that (and an empty flash is never written back),
+     * so the requests without flash don't modify the session.
      *
      * @param routeContext
      */
     private void processFlash(RouteContext routeContext) {
-        Flash flash = null;
-
-        if (routeContext.hasSession()) {
-            // get flash from session
-            flash = routeContext.removeSession("flash");
-            // put an empty flash (outgoing flash) in session; defense against session.get("flash")
-            routeContext.setSession("flash", new Flash());
-        }
-
+        FlashTransport flashTransport = application.getFlashTransport();
+        Flash flash = flashTransport.getIncomingFlash(routeContext.getRequest(), routeContext.getResponse());
         if (flash == null) {
             flash = new Flash();
         }
@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.core.route;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * A request that took longer than the threshold of the {@link SlowRequestSampler}.
+ */
+public class SlowRequest {
+
+    private final long timestamp;
+    private final String method;
+    private final String path;
+    private final String uriPattern;
+    private final Map<String, String> pathParameters;
+    private final String query;
+    private final long duration;
+    private final Map<String, Long> phases;
+    private final int status;
+    private final StackTraceElement[] stackTrace;
+
+    public SlowRequest(long timestamp, String method, String path, String uriPattern, Map<String, String> pathParameters,
+                       String query, long duration, Map<String, Long> phases, int status, StackTraceElement[] stackTrace) {
+        this.timestamp = timestamp;
+        this.method = method;
+        this.path = path;
+        this.uriPattern = uriPattern;
+        this.pathParameters = Collections.unmodifiableMap(pathParameters);
+        this.query = query;
+        this.duration = duration;
+        this.phases = Collections.unmodifiableMap(phases);
+        this.status = status;
+        this.stackTrace = stackTrace;
+    }
+
+    /**
+     * Returns the time (in milliseconds since the epoch) when the request started.
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    /**
+     * Returns the path or the uri pattern of the route when the values of the path parameters are redacted
+     * (see {@link SlowRequestSampler#setCapturePathParameters(boolean)}).
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * Returns the uri pattern of the route that served the request or null if no route matched.
+     */
+    public String getUriPattern() {
+        return uriPattern;
+    }
+
+    /**
+     * Returns the path parameters. The values are redacted unless
+     * {@link SlowRequestSampler#setCapturePathParameters(boolean)} is enabled.
+     */
+    public Map<String, String> getPathParameters() {
+        return pathParameters;
+    }
+
+    /**
+     * Returns the query string or null.
+     * The values of the parameters are redacted unless {@link SlowRequestSampler#setCaptureQuery(boolean)} is enabled.
+     * The post parameters are not captured because they usually carry sensitive data.
+     */
+    public String getQuery() {
+        return query;
+    }
+
+    /**
+     * Returns the duration of the request in nanoseconds.
+     */
+    public long getDuration() {
+        return duration;
+    }
+
+    /**
+     * Returns the duration in nanoseconds of each request phase,
+     * empty if the request timing is disabled (see {@link ro.pippo.core.RequestTimer}).
+     */
+    public Map<String, Long> getPhases() {
+        return phases;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * Returns the stack of the request thread, sampled while the request was still running,
+     * or null if the stack sampling is disabled or the request finished before it was sampled.
+     */
+    public StackTraceElement[] getStackTrace() {
+        return stackTrace;
+    }
+
+}
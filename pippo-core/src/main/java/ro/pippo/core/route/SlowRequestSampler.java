@@ -0,0 +1,354 @@
+/*
+ * Copyright (C) 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.core.route;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ro.pippo.core.Request;
+import ro.pippo.core.RequestTimer;
+import ro.pippo.core.Response;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Keeps the last requests that took longer than a threshold in a bounded ring buffer.
+ * <p/>
+ * Optionally a background thread watches the in-flight requests and takes a sample of the stack
+ * of the requests that are still running when they cross the threshold, which usually shows
+ * where a slow request is waiting.
+ * <p/>
+ * The sampler is enabled by the setting <code>application.slowRequests.threshold</code> (see
+ * {@link ro.pippo.core.Application#getSlowRequestSampler()}) and the records can be exposed
+ * with a {@link SlowRequestsHandler} route.
+ * <p/>
+ * The values of the query parameters are redacted (they may carry tokens or personal data),
+ * unless {@link #setCaptureQuery(boolean)} is enabled. The same goes for the values of the path parameters
+ * (the path of a request with path parameters is replaced by the uri pattern of the route),
+ * unless {@link #setCapturePathParameters(boolean)} is enabled.
+ */
+public class SlowRequestSampler {
+
+    private static final Logger log = LoggerFactory.getLogger(SlowRequestSampler.class);
+
+    public static final int DEFAULT_CAPACITY = 50;
+
+    private static final int MAX_PARAMETER_LENGTH = 200;
+
+    private static final String REDACTED = "***";
+
+    private final long threshold;
+    private final AtomicReferenceArray<Slot> slowRequests;
+    private final AtomicLong slowRequestCount = new AtomicLong();
+    private final Set<InFlight> inFlights;
+    private final ScheduledExecutorService watcher;
+
+    private volatile boolean captureQuery;
+    private volatile boolean capturePathParameters;
+
+    /**
+     * @param threshold the duration in milliseconds from which a request is slow
+     * @param capacity the number of slow requests kept
+     * @param stackSampling true to take a stack sample of the slow requests while they are running
+     */
+    public SlowRequestSampler(long threshold, int capacity, boolean stackSampling) {
+        this.threshold = TimeUnit.MILLISECONDS.toNanos(threshold);
+        slowRequests = new AtomicReferenceArray<>(Math.max(capacity, 1));
+
+        if (stackSampling) {
+            inFlights = ConcurrentHashMap.newKeySet();
+            // check twice per threshold, so a request is sampled before it's 1.5 x threshold old
+            long period = Math.max(threshold / 2, 10);
+            watcher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "pippo-slow-request-sampler");
+                thread.setDaemon(true);
+
+                return thread;
+            });
+            watcher.scheduleAtFixedRate(this::sampleStacks, period, period, TimeUnit.MILLISECONDS);
+        } else {
+            inFlights = null;
+            watcher = null;
+        }
+    }
+
+    /**
+     * Starts watching a request. It's called by the {@link RouteDispatcher} on the request thread.
+     *
+     * @param request
+     * @return the in-flight request that must be passed to {@link #stop(InFlight, List, Response)}
+     */
+    public InFlight start(Request request) {
+        return start(request.getMethod(), request.getPath(), request.getQuery());
+    }
+
+    InFlight start(String method, String path, String query) {
+        InFlight inFlight = new InFlight(method, path, query);
+        if (inFlights != null) {
+            inFlights.add(inFlight);
+        }
+
+        return inFlight;
+    }
+
+    /**
+     * Stops watching a request and records it if it was slow.
+     *
+     * @param inFlight
+     * @param routeMatches the routes that matched the request
+     * @param response
+     */
+    public void stop(InFlight inFlight, List<RouteMatch> routeMatches, Response response) {
+        stop(inFlight, routeMatches, response.getStatus(), response.getRequestTimer());
+    }
+
+    void stop(InFlight inFlight, List<RouteMatch> routeMatches, int status, RequestTimer requestTimer) {
+        long duration = System.nanoTime() - inFlight.start;
+        if (inFlights != null) {
+            inFlights.remove(inFlight);
+        }
+
+        if (duration >= threshold) {
+            add(createSlowRequest(inFlight, routeMatches, status, requestTimer, duration));
+        }
+    }
+
+    /**
+     * Returns the threshold in milliseconds.
+     */
+    public long getThreshold() {
+        return TimeUnit.NANOSECONDS.toMillis(threshold);
+    }
+
+    public boolean isCaptureQuery() {
+        return captureQuery;
+    }
+
+    /**
+     * Keeps the query string of the slow requests as is, with the values of the parameters.
+     * By default the values are replaced with <code>***</code>.
+     *
+     * @param captureQuery
+     * @return this sampler
+     */
+    public SlowRequestSampler setCaptureQuery(boolean captureQuery) {
+        this.captureQuery = captureQuery;
+
+        return this;
+    }
+
+    public boolean isCapturePathParameters() {
+        return capturePathParameters;
+    }
+
+    /**
+     * Keeps the path and the values of the path parameters of the slow requests as is.
+     * By default the values are replaced with <code>***</code> and the path with the uri pattern of the route.
+     *
+     * @param capturePathParameters
+     * @return this sampler
+     */
+    public SlowRequestSampler setCapturePathParameters(boolean capturePathParameters) {
+        this.capturePathParameters = capturePathParameters;
+
+        return this;
+    }
+
+    /**
+     * Returns the number of slow requests seen since the start, including the ones no longer kept.
+     */
+    public long getSlowRequestCount() {
+        return slowRequestCount.get();
+    }
+
+    /**
+     * Returns the kept slow requests, the most recent first.
+     */
+    public List<SlowRequest> getSlowRequests() {
+        int capacity = slowRequests.length();
+        long count = slowRequestCount.get();
+        int size = (int) Math.min(count, capacity);
+        List<SlowRequest> list = new ArrayList<>(size);
+        for (long i = count - 1; i >= count - size; i--) {
+            Slot slot = slowRequests.get((int) (i % capacity));
+            // a slot reserved by a concurrent add may not be written yet or may be already overwritten
+            if (slot != null && slot.index == i) {
+                list.add(slot.slowRequest);
+            }
+        }
+
+        return list;
+    }
+
+    /**
+     * Stops the stack sampling thread.
+     */
+    public void destroy() {
+        if (watcher != null) {
+            watcher.shutdownNow();
+        }
+    }
+
+    private void add(SlowRequest slowRequest) {
+        long index = slowRequestCount.getAndIncrement();
+        slowRequests.set((int) (index % slowRequests.length()), new Slot(index, slowRequest));
+
+        log.debug("Slow request {} '{}' ({} ms)", slowRequest.getMethod(), slowRequest.getPath(),
+            TimeUnit.NANOSECONDS.toMillis(slowRequest.getDuration()));
+    }
+
+    private void sampleStacks() {
+        long now = System.nanoTime();
+        for (InFlight inFlight : inFlights) {
+            if (inFlight.stackTrace == null && now - inFlight.start >= threshold) {
+                try {
+                    inFlight.stackTrace = inFlight.thread.getStackTrace();
+                } catch (SecurityException e) {
+                    log.warn("Cannot sample the stack of a slow request", e);
+                }
+            }
+        }
+    }
+
+    private SlowRequest createSlowRequest(InFlight inFlight, List<RouteMatch> routeMatches, int status,
+                                          RequestTimer requestTimer, long duration) {
+        String path = inFlight.path;
+        String uriPattern = null;
+        Map<String, String> pathParameters = new LinkedHashMap<>();
+        RouteMatch routeMatch = getMainRouteMatch(routeMatches);
+        if (routeMatch != null) {
+            uriPattern = routeMatch.getRoute().getUriPattern();
+            if (routeMatch.getPathParameters() != null && !routeMatch.getPathParameters().isEmpty()) {
+                boolean redact = !capturePathParameters;
+                for (Map.Entry<String, String> entry : routeMatch.getPathParameters().entrySet()) {
+                    pathParameters.put(entry.getKey(), redact ? REDACTED : abbreviate(entry.getValue()));
+                }
+                if (redact) {
+                    // the path carries the values of the path parameters
+                    path = uriPattern;
+                }
+            }
+        }
+        String query = abbreviate(captureQuery ? inFlight.query : redact(inFlight.query));
+
+        Map<String, Long> phases = Collections.emptyMap();
+        if (requestTimer != null) {
+            phases = new LinkedHashMap<>();
+            for (RequestTimer.Phase phase : RequestTimer.Phase.values()) {
+                phases.put(phase.getName(), requestTimer.getDuration(phase));
+            }
+        }
+
+        return new SlowRequest(inFlight.timestamp, inFlight.method, path, uriPattern, pathParameters,
+            query, duration, phases, status, inFlight.stackTrace);
+    }
+
+    /**
+     * Keeps the names of the query parameters and replaces their values.
+     */
+    static String redact(String query) {
+        if (query == null || query.isEmpty()) {
+            return query;
+        }
+
+        StringBuilder sb = new StringBuilder(query.length());
+        for (String parameter : query.split("&")) {
+            if (sb.length() > 0) {
+                sb.append('&');
+            }
+            int index = parameter.indexOf('=');
+            if (index < 0) {
+                sb.append(parameter);
+            } else {
+                sb.append(parameter, 0, index + 1).append(REDACTED);
+            }
+        }
+
+        return sb.toString();
+    }
+
+    private static String abbreviate(String value) {
+        if (value == null || value.length() <= MAX_PARAMETER_LENGTH) {
+            return value;
+        }
+
+        return value.substring(0, MAX_PARAMETER_LENGTH) + "...";
+    }
+
+    /**
+     * Returns the last route that is not a finally route (the filters come before the main route).
+     */
+    private static RouteMatch getMainRouteMatch(List<RouteMatch> routeMatches) {
+        for (int i = routeMatches.size() - 1; i >= 0; i--) {
+            RouteMatch routeMatch = routeMatches.get(i);
+            if (!routeMatch.getRoute().isRunAsFinally()) {
+                return routeMatch;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * A request that is being processed.
+     */
+    public static class InFlight {
+
+        private final String method;
+        private final String path;
+        private final String query;
+        private final Thread thread;
+        private final long timestamp;
+        private final long start;
+        private volatile StackTraceElement[] stackTrace;
+
+        private InFlight(String method, String path, String query) {
+            this.method = method;
+            this.path = path;
+            this.query = query;
+            thread = Thread.currentThread();
+            timestamp = System.currentTimeMillis();
+            start = System.nanoTime();
+        }
+
+    }
+
+    /**
+     * A slot of the ring buffer, with the index of the slow request (a slot is reused every capacity requests).
+     */
+    private static class Slot {
+
+        private final long index;
+        private final SlowRequest slowRequest;
+
+        private Slot(long index, SlowRequest slowRequest) {
+            this.index = index;
+            this.slowRequest = slowRequest;
+        }
+
+    }
+
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.core.route;
+
+import ro.pippo.core.Response;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lists (as plain text) the slow requests kept by the {@link SlowRequestSampler} of the application.
+ * Register it on a protected path, the output reveals the internals of the application.
+ * <pre>
+ * GET("/admin/slow-requests", new SlowRequestsHandler());
+ * </pre>
+ */
+public class SlowRequestsHandler implements RouteHandler {
+
+    @Override
+    public void handle(RouteContext routeContext) {
+        Response response = routeContext.getResponse();
+        SlowRequestSampler sampler = routeContext.getApplication().getSlowRequestSampler();
+        if (sampler == null) {
+            response.notFound().text().send("The slow request sampler is disabled (see 'application.slowRequests.threshold')");
+            return;
+        }
+
+        List<SlowRequest> slowRequests = sampler.getSlowRequests();
+        StringBuilder sb = new StringBuilder(1024);
+        sb.append("Slow requests (threshold ").append(sampler.getThreshold()).append(" ms, ")
+            .append(sampler.getSlowRequestCount()).append(" seen, ").append(slowRequests.size()).append(" kept)\n");
+        for (SlowRequest slowRequest : slowRequests) {
+            append(sb, slowRequest);
+        }
+
+        response.header("Cache-Control", "no-cache");
+        response.text().send(sb);
+    }
+
+    protected void append(StringBuilder sb, SlowRequest slowRequest) {
+        sb.append('\n').append(Instant.ofEpochMilli(slowRequest.getTimestamp())).append(' ')
+            .append(slowRequest.getMethod()).append(' ').append(slowRequest.getPath())
+            .append(" status=").append(slowRequest.getStatus())
+            .append(" duration=").append(toMillis(slowRequest.getDuration())).append(" ms\n");
+
+        if (slowRequest.getUriPattern() != null) {
+            sb.append("  route: ").append(slowRequest.getUriPattern()).append('\n');
+        }
+        if (!slowRequest.getPathParameters().isEmpty()) {
+            sb.append("  path parameters: ").append(slowRequest.getPathParameters()).append('\n');
+        }
+        if (slowRequest.getQuery() != null) {
+            sb.append("  query: ").append(slowRequest.getQuery()).append('\n');
+        }
+        if (!slowRequest.getPhases().isEmpty()) {
+            sb.append("  phases:");
+            for (Map.Entry<String, Long> phase : slowRequest.getPhases().entrySet()) {
+                sb.append(' ').append(phase.getKey()).append('=').append(toMillis(phase.getValue())).append(" ms");
+            }
+            sb.append('\n');
+        }
+        if (slowRequest.getStackTrace() != null) {
+            sb.append("  stack sample:\n");
+            for (StackTraceElement element : slowRequest.getStackTrace()) {
+                sb.append("    at ").append(element).append('\n');
+            }
+        }
+    }
+
+    private static long toMillis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+}
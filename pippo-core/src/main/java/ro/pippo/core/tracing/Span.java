@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.core.tracing;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A timed operation of a trace, e.g. a request, a route handler or a template rendering.
+ * The spans of a request form a tree through their parent span id.
+ * Use {@link Tracer#startSpan(String)} and {@link Tracer#endSpan(Span)} to create and end spans.
+ */
+public final class Span {
+
+    private final String traceId;
+    private final String spanId;
+    private final String parentSpanId;
+    private final Span parent;
+    private final String name;
+    private final boolean sampled;
+    private final long timestamp;
+    private final long start;
+
+    private Map<String, String> attributes;
+    private Throwable error;
+    private long duration = -1;
+
+    Span(String traceId, String spanId, String parentSpanId, Span parent, String name, boolean sampled) {
+        this.traceId = traceId;
+        this.spanId = spanId;
+        this.parentSpanId = parentSpanId;
+        this.parent = parent;
+        this.name = name;
+        this.sampled = sampled;
+        this.timestamp = System.currentTimeMillis();
+        this.start = System.nanoTime();
+    }
+
+    /**
+     * Returns the trace id (32 lowercase hex characters).
+     */
+    public String getTraceId() {
+        return traceId;
+    }
+
+    /**
+     * Returns the span id (16 lowercase hex characters).
+     */
+    public String getSpanId() {
+        return spanId;
+    }
+
+    /**
+     * Returns the id of the parent span (maybe a remote one, from the <code>traceparent</code> header) or null.
+     */
+    public String getParentSpanId() {
+        return parentSpanId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns true if the span is exported.
+     */
+    public boolean isSampled() {
+        return sampled;
+    }
+
+    /**
+     * Returns the start time in milliseconds since the epoch.
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Returns the duration in nanoseconds or -1 if the span is not ended.
+     */
+    public long getDuration() {
+        return duration;
+    }
+
+    public boolean isEnded() {
+        return duration >= 0;
+    }
+
+    public Span setAttribute(String key, Object value) {
+        if (attributes == null) {
+            attributes = new LinkedHashMap<>();
+        }
+        attributes.put(key, String.valueOf(value));
+
+        return this;
+    }
+
+    public Map<String, String> getAttributes() {
+        return (attributes == null) ? Collections.<String, String>emptyMap() : Collections.unmodifiableMap(attributes);
+    }
+
+    public Span setError(Throwable error) {
+        this.error = error;
+
+        return this;
+    }
+
+    public Throwable getError() {
+        return error;
+    }
+
+    /**
+     * Returns the W3C <code>traceparent</code> header value of this span,
+     * to propagate the trace to the services called while the span is active.
+     */
+    public String toTraceparent() {
+        return "00-" + traceId + '-' + spanId + (sampled ? "-01" : "-00");
+    }
+
+    Span getParent() {
+        return parent;
+    }
+
+    void end() {
+        if (duration < 0) {
+            duration = System.nanoTime() - start;
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Span{name='").append(name).append('\'')
+            .append(", traceId=").append(traceId)
+            .append(", spanId=").append(spanId)
+            .append(", parentSpanId=").append(parentSpanId);
+        if (duration >= 0) {
+            sb.append(", duration=").append(TimeUnit.NANOSECONDS.toMicros(duration)).append("us");
+        }
+        if (attributes != null) {
+            sb.append(", attributes=").append(attributes);
+        }
+        if (error != null) {
+            sb.append(", error=").append(error);
+        }
+        sb.append('}');
+
+        return sb.toString();
+    }
+
+}
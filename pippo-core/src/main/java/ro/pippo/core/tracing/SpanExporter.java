@@ -0,0 +1,29 @@
+/*
+ * Copyright (C) 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.core.tracing;
+
+/**
+ * Receives the ended (and sampled) spans.
+ * It's called on the request threads so it must be fast and thread safe;
+ * an exporter that sends the spans to a remote collector should queue them.
+ * <p/>
+ * A custom exporter can be registered with {@link ro.pippo.core.util.ServiceLocator} (META-INF/services).
+ */
+public interface SpanExporter {
+
+    void export(Span span);
+
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright (C) 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.core.tracing;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Creates the spans of the requests and keeps the active span of the current thread,
+ * so the spans opened while a span is active (e.g. by the next handler of the chain) become its children.
+ * <p/>
+ * The request span continues the trace of a valid W3C <code>traceparent</code> header
+ * (<code>00-&lt;trace-id&gt;-&lt;parent-id&gt;-&lt;flags&gt;</code>), otherwise it starts a new trace.
+ * <p/>
+ * The tracer of the application is enabled by the setting <code>application.tracing.enabled</code>
+ * (see {@link ro.pippo.core.Application#getTracer()}).
+ */
+public class Tracer {
+
+    private static final Logger log = LoggerFactory.getLogger(Tracer.class);
+
+    public static final String TRACEPARENT_HEADER = "traceparent";
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final ThreadLocal<Span> activeSpan = new ThreadLocal<>();
+
+    private final SpanExporter exporter;
+
+    public Tracer(SpanExporter exporter) {
+        this.exporter = exporter;
+    }
+
+    public SpanExporter getExporter() {
+        return exporter;
+    }
+
+    /**
+     * Returns the active span of the current thread or null.
+     */
+    public Span getActiveSpan() {
+        return activeSpan.get();
+    }
+
+    /**
+     * Starts the span of a request and makes it active.
+     *
+     * @param name
+     * @param traceparent the value of the <code>traceparent</code> request header or null
+     * @return the span
+     */
+    public Span startRequestSpan(String name, String traceparent) {
+        String traceId = null;
+        String parentSpanId = null;
+        boolean sampled = true;
+        if (traceparent != null) {
+            if (isValidTraceparent(traceparent)) {
+                traceId = traceparent.substring(3, 35);
+                parentSpanId = traceparent.substring(36, 52);
+                sampled = (Character.digit(traceparent.charAt(54), 16) & 1) == 1;
+            } else {
+                log.debug("Ignoring the invalid traceparent '{}'", traceparent);
+            }
+        }
+        if (traceId == null) {
+            traceId = newId(32);
+        }
+
+        return activate(new Span(traceId, newId(16), parentSpanId, activeSpan.get(), name, sampled));
+    }
+
+    /**
+     * Starts a child of the active span and makes it active.
+     * Without an active span it starts a new trace.
+     *
+     * @param name
+     * @return the span
+     */
+    public Span startSpan(String name) {
+        Span parent = activeSpan.get();
+        if (parent == null) {
+            return activate(new Span(newId(32), newId(16), null, null, name, true));
+        }
+
+        return activate(new Span(parent.getTraceId(), newId(16), parent.getSpanId(), parent, name, parent.isSampled()));
+    }
+
+    /**
+     * Ends the span, exports it and makes its parent active again.
+     *
+     * @param span
+     */
+    public void endSpan(Span span) {
+        span.end();
+        if (activeSpan.get() == span) {
+            Span parent = span.getParent();
+            if (parent == null) {
+                activeSpan.remove();
+            } else {
+                activeSpan.set(parent);
+            }
+        }
+
+        if (span.isSampled()) {
+            try {
+                exporter.export(span);
+            } catch (Exception e) {
+                log.error("Failed to export {}", span, e);
+            }
+        }
+    }
+
+    private Span activate(Span span) {
+        activeSpan.set(span);
+
+        return span;
+    }
+
+    /**
+     * Returns true for a version 00 traceparent with non zero ids.
+     */
+    static boolean isValidTraceparent(String traceparent) {
+        // 00-<32 hex>-<16 hex>-<2 hex>
+        if (traceparent.length() != 55 || !traceparent.startsWith("00-")
+            || traceparent.charAt(35) != '-' || traceparent.charAt(52) != '-') {
+            return false;
+        }
+
+        return isHex(traceparent, 3, 35) && isHex(traceparent, 36, 52) && isHex(traceparent, 53, 55)
+            && !isZero(traceparent, 3, 35) && !isZero(traceparent, 36, 52);
+    }
+
+    private static boolean isHex(String s, int from, int to) {
+        for (int i = from; i < to; i++) {
+            char c = s.charAt(i);
+            if ((c < '0' || c > '9') && (c < 'a' || c > 'f')) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static boolean isZero(String s, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (s.charAt(i) != '0') {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static String newId(int length) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        char[] id = new char[length];
+        for (int i = 0; i < length; i += 16) {
+            long bits = random.nextLong();
+            // a zero id is invalid
+            if (bits == 0) {
+                bits = 1;
+            }
+            for (int j = 0; j < 16; j++) {
+                id[i + j] = HEX[(int) (bits >>> (60 - 4 * j)) & 0xf];
+            }
+        }
+
+        return new String(id);
+    }
+
+}
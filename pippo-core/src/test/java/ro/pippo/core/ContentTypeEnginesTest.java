@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class ContentTypeEnginesTest {
+
+    private ContentTypeEngines engines;
+
+    @Before
+    public void before() {
+        engines = new ContentTypeEngines();
+        engines.registerContentTypeEngine(JsonEngine.class);
+        engines.registerContentTypeEngine(XmlEngine.class);
+    }
+
+    @Test
+    public void testSimpleContentType() {
+        assertTrue(engines.getContentTypeEngine("application/json") instanceof JsonEngine);
+        assertTrue(engines.getContentTypeEngine("application/json; charset=UTF-8") instanceof JsonEngine);
+        assertNull(engines.getContentTypeEngine("text/html"));
+    }
+
+    @Test
+    public void testSuffix() {
+        assertTrue(engines.getContentTypeEngine("json") instanceof JsonEngine);
+        assertTrue(engines.getContentTypeEngine("XML") instanceof XmlEngine);
+        assertFalse(engines.hasContentTypeEngine("yaml"));
+    }
+
+    @Test
+    public void testAcceptHeader() {
+        String accept = "text/html,application/xhtml+xml,application/xml;q=0.9,image/webp,*/*;q=0.8";
+        assertTrue(engines.getContentTypeEngine(accept) instanceof XmlEngine);
+        // the cached lookup resolves to the same engine
+        assertTrue(engines.getContentTypeEngine(accept) instanceof XmlEngine);
+    }
+
+    @Test
+    public void testQualityOrdering() {
+        assertTrue(engines.getContentTypeEngine("application/xml;q=0.5, application/json") instanceof JsonEngine);
+        assertTrue(engines.getContentTypeEngine("application/json;q=0.4, application/xml;q=0.6") instanceof XmlEngine);
+        assertNull(engines.getContentTypeEngine("application/json;q=0"));
+    }
+
+    @Test
+    public void testParseContentTypes() {
+        assertEquals(Arrays.asList("c", "a", "b"), engines.parseContentTypes("a;q=0.5,b;level=1;q=0.5, c ,d;q=0"));
+    }
+
+    @Test
+    public void testRegistrationResetsCache() {
+        assertNull(engines.getContentTypeEngine("text/plain"));
+        engines.setContentTypeEngine(new TextPlainEngine());
+        assertTrue(engines.getContentTypeEngine("text/plain") instanceof TextPlainEngine);
+    }
+
+    public static class JsonEngine extends TextPlainEngine {
+
+        @Override
+        public String getContentType() {
+            return HttpConstants.ContentType.APPLICATION_JSON;
+        }
+
+    }
+
+    public static class XmlEngine extends TextPlainEngine {
+
+        @Override
+        public String getContentType() {
+            return HttpConstants.ContentType.APPLICATION_XML;
+        }
+
+    }
+
+}
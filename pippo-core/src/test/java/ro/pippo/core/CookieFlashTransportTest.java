@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CookieFlashTransportTest {
+
+    private final CookieFlashTransport transport = new CookieFlashTransport("PIPPO_FLASH", "secret");
+
+    @Test
+    public void testRoundTrip() {
+        Flash flash = new Flash();
+        flash.success("Saved & done");
+        flash.error("Check the form");
+
+        Flash decoded = transport.decode(transport.encode(flash));
+        assertNotNull(decoded);
+        assertEquals("Saved & done", decoded.getSuccess());
+        assertEquals("Check the form", decoded.getError());
+    }
+
+    @Test
+    public void testUnsignedCookieIsIgnored() {
+        Flash flash = new Flash();
+        flash.success("<script>alert(1)</script>");
+        String encoded = transport.encode(flash);
+
+        assertNull(transport.decode(encoded.substring(encoded.indexOf('|') + 1)));
+    }
+
+    @Test
+    public void testForeignSignatureIsIgnored() {
+        Flash flash = new Flash();
+        flash.success("Saved");
+
+        assertNull(transport.decode(new CookieFlashTransport("PIPPO_FLASH", "another secret").encode(flash)));
+    }
+
+    @Test(expected = PippoRuntimeException.class)
+    public void testSecretKeyIsRequired() {
+        new CookieFlashTransport("PIPPO_FLASH", null);
+    }
+
+}
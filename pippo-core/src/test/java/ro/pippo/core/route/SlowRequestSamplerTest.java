@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.core.route;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SlowRequestSamplerTest {
+
+    private SlowRequestSampler sampler;
+
+    @After
+    public void after() {
+        if (sampler != null) {
+            sampler.destroy();
+        }
+    }
+
+    @Test
+    public void testRingBufferWraparound() {
+        sampler = new SlowRequestSampler(0, 3, false);
+        for (int i = 1; i <= 5; i++) {
+            record("/" + i, null);
+        }
+
+        List<SlowRequest> slowRequests = sampler.getSlowRequests();
+        assertEquals(5, sampler.getSlowRequestCount());
+        assertEquals(3, slowRequests.size());
+        // the most recent first
+        assertEquals("/5", slowRequests.get(0).getPath());
+        assertEquals("/4", slowRequests.get(1).getPath());
+        assertEquals("/3", slowRequests.get(2).getPath());
+    }
+
+    @Test
+    public void testThreshold() throws InterruptedException {
+        sampler = new SlowRequestSampler(50, 10, false);
+
+        record("/fast", null);
+        assertEquals(0, sampler.getSlowRequestCount());
+
+        SlowRequestSampler.InFlight inFlight = sampler.start("GET", "/slow", null);
+        Thread.sleep(60);
+        Route route = Route.GET("/{name}", routeContext -> {});
+        sampler.stop(inFlight, Arrays.asList(new RouteMatch(route, Collections.singletonMap("name", "slow"))), 200, null);
+
+        assertEquals(1, sampler.getSlowRequestCount());
+        SlowRequest slowRequest = sampler.getSlowRequests().get(0);
+        assertEquals("/{name}", slowRequest.getUriPattern());
+        assertEquals(200, slowRequest.getStatus());
+        assertTrue(slowRequest.getDuration() >= 50_000_000);
+        // without stack sampling
+        assertNull(slowRequest.getStackTrace());
+    }
+
+    @Test
+    public void testStackSampling() throws InterruptedException {
+        sampler = new SlowRequestSampler(20, 10, true);
+
+        SlowRequestSampler.InFlight inFlight = sampler.start("GET", "/slow", null);
+        // the watcher runs every 10 ms
+        Thread.sleep(200);
+        sampler.stop(inFlight, Collections.emptyList(), 200, null);
+
+        StackTraceElement[] stackTrace = sampler.getSlowRequests().get(0).getStackTrace();
+        assertNotNull(stackTrace);
+        boolean found = false;
+        for (StackTraceElement element : stackTrace) {
+            found |= "testStackSampling".equals(element.getMethodName());
+        }
+        assertTrue(found);
+    }
+
+    @Test
+    public void testRedactQuery() {
+        sampler = new SlowRequestSampler(0, 10, false);
+
+        record("/", "user=admin&token=secret&debug");
+        assertEquals("user=***&token=***&debug", sampler.getSlowRequests().get(0).getQuery());
+
+        sampler.setCaptureQuery(true);
+        record("/", "user=admin&token=secret&debug");
+        assertEquals("user=admin&token=secret&debug", sampler.getSlowRequests().get(0).getQuery());
+    }
+
+    @Test
+    public void testRedactPathParameters() {
+        sampler = new SlowRequestSampler(0, 10, false);
+        Route route = Route.GET("/users/{token}", routeContext -> {});
+        List<RouteMatch> routeMatches = Arrays.asList(new RouteMatch(route, Collections.singletonMap("token", "secret")));
+
+        sampler.stop(sampler.start("GET", "/users/secret", null), routeMatches, 200, null);
+        SlowRequest slowRequest = sampler.getSlowRequests().get(0);
+        assertEquals("/users/{token}", slowRequest.getPath());
+        assertEquals("***", slowRequest.getPathParameters().get("token"));
+
+        sampler.setCapturePathParameters(true);
+        sampler.stop(sampler.start("GET", "/users/secret", null), routeMatches, 200, null);
+        slowRequest = sampler.getSlowRequests().get(0);
+        assertEquals("/users/secret", slowRequest.getPath());
+        assertEquals("secret", slowRequest.getPathParameters().get("token"));
+    }
+
+    private void record(String path, String query) {
+        sampler.stop(sampler.start("GET", path, query), Collections.emptyList(), 200, null);
+    }
+
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.core.tracing;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TracerTest {
+
+    private static final String TRACEPARENT = "00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01";
+
+    private InMemorySpanExporter exporter;
+    private Tracer tracer;
+
+    @Before
+    public void before() {
+        exporter = new InMemorySpanExporter();
+        tracer = new Tracer(exporter);
+    }
+
+    @Test
+    public void testContinueIncomingTrace() {
+        Span span = tracer.startRequestSpan("GET /", TRACEPARENT);
+        tracer.endSpan(span);
+
+        assertEquals("4bf92f3577b34da6a3ce929d0e0e4736", span.getTraceId());
+        assertEquals("00f067aa0ba902b7", span.getParentSpanId());
+        assertEquals(16, span.getSpanId().length());
+        assertTrue(span.isSampled());
+        assertEquals(1, exporter.getSpans().size());
+    }
+
+    @Test
+    public void testIgnoreInvalidTraceparent() {
+        Span span = tracer.startRequestSpan("GET /", "00-00000000000000000000000000000000-00f067aa0ba902b7-01");
+        tracer.endSpan(span);
+
+        assertNotEquals("00000000000000000000000000000000", span.getTraceId());
+        assertEquals(32, span.getTraceId().length());
+        assertNull(span.getParentSpanId());
+        assertFalse(Tracer.isValidTraceparent("01-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01"));
+        assertFalse(Tracer.isValidTraceparent("00-4BF92F3577B34DA6A3CE929D0E0E4736-00f067aa0ba902b7-01"));
+    }
+
+    @Test
+    public void testNotSampledTraceIsNotExported() {
+        Span span = tracer.startRequestSpan("GET /", TRACEPARENT.substring(0, 53) + "00");
+        Span child = tracer.startSpan("handler");
+        tracer.endSpan(child);
+        tracer.endSpan(span);
+
+        assertFalse(child.isSampled());
+        assertTrue(exporter.getSpans().isEmpty());
+    }
+
+    @Test
+    public void testNestedSpans() {
+        Span request = tracer.startRequestSpan("GET /", null);
+        Span filter = tracer.startSpan("filter");
+        Span handler = tracer.startSpan("handler");
+        tracer.endSpan(handler);
+        assertSame(filter, tracer.getActiveSpan());
+        tracer.endSpan(filter);
+        tracer.endSpan(request);
+
+        assertNull(tracer.getActiveSpan());
+        assertEquals(request.getSpanId(), filter.getParentSpanId());
+        assertEquals(filter.getSpanId(), handler.getParentSpanId());
+
+        List<Span> spans = exporter.getSpans(request.getTraceId());
+        assertEquals(3, spans.size());
+        assertSame(handler, spans.get(0));
+        assertSame(request, spans.get(2));
+        assertEquals("00-" + request.getTraceId() + "-" + request.getSpanId() + "-01", request.toTraceparent());
+    }
+
+}
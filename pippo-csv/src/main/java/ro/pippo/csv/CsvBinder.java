@@ -0,0 +1,204 @@
+/*
+ * Copyright (C) 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.csv;
+
+import ro.pippo.core.ParameterValue;
+import ro.pippo.core.util.ClassUtils;
+import ro.pippo.core.util.StringUtils;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAccessor;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * A compiled description of how CSV columns are bound to the fields of a class.
+ * The reflection work (field discovery, accessibility, setter and converter resolution)
+ * is done once per class, so that parsing a record is just a sequence of handle invocations.
+ */
+class CsvBinder {
+
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private static final MethodHandle FIELD_SET;
+
+    static {
+        try {
+            FIELD_SET = MethodHandles.lookup().findVirtual(Field.class, "set", SETTER_TYPE);
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final Class<?> objectType;
+    private final Constructor<?> constructor;
+    private final Map<String, FieldBinding> bindings;
+    private final boolean caseSensitiveFieldNames;
+
+    CsvBinder(Class<?> objectType, boolean caseSensitiveFieldNames, DateTimeFormatter dateFormatter) {
+        this.objectType = objectType;
+        this.caseSensitiveFieldNames = caseSensitiveFieldNames;
+
+        try {
+            constructor = objectType.getConstructor();
+        } catch (NoSuchMethodException e) {
+            throw new RuntimeException("A default constructor is required for " + objectType.getName());
+        }
+
+        bindings = new HashMap<>();
+        for (Field field : ClassUtils.getAllFields(objectType)) {
+            if (Modifier.isStatic(field.getModifiers())) {
+                continue;
+            }
+
+            field.setAccessible(true);
+            String name = caseSensitiveFieldNames ? field.getName() : field.getName().toLowerCase();
+            if (!bindings.containsKey(name)) {
+                // fields of the class win over the hidden fields of the superclasses
+                bindings.put(name, new FieldBinding(createSetter(field), createConverter(field.getType(), dateFormatter)));
+            }
+        }
+    }
+
+    /**
+     * Resolves the bindings for the columns of a CSV header, in column order.
+     */
+    FieldBinding[] bind(String[] columns) {
+        FieldBinding[] resolved = new FieldBinding[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            String column = columns[i];
+            FieldBinding binding = bindings.get(caseSensitiveFieldNames ? column : column.toLowerCase());
+            if (binding == null) {
+                throw new RuntimeException(String.format("Column '%s' does not match a field of %s", column, objectType.getName()));
+            }
+            resolved[i] = binding;
+        }
+
+        return resolved;
+    }
+
+    Object newInstance() throws ReflectiveOperationException {
+        return constructor.newInstance();
+    }
+
+    static Object convert(String value, Class<?> objectClass, DateTimeFormatter dateFormatter) throws Exception {
+        if (value == null) {
+            return null;
+        }
+
+        return createConverter(objectClass, dateFormatter).fromString(value);
+    }
+
+    static Date parseDate(String value, DateTimeFormatter dateFormatter) {
+        TemporalAccessor temporal = dateFormatter.parseBest(value, ZonedDateTime::from, LocalDateTime::from, LocalDate::from);
+        if (temporal instanceof ZonedDateTime) {
+            return Date.from(((ZonedDateTime) temporal).toInstant());
+        } else if (temporal instanceof LocalDateTime) {
+            return Date.from(((LocalDateTime) temporal).atZone(ZoneId.systemDefault()).toInstant());
+        }
+
+        return Date.from(((LocalDate) temporal).atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+
+    private static MethodHandle createSetter(Field field) {
+        try {
+            if (!Modifier.isFinal(field.getModifiers())) {
+                return MethodHandles.lookup().unreflectSetter(field).asType(SETTER_TYPE);
+            }
+        } catch (IllegalAccessException e) {
+            // fall back to Field.set below
+        }
+
+        // final fields may only be written through reflection
+        return FIELD_SET.bindTo(field);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Converter createConverter(Class<?> type, DateTimeFormatter dateFormatter) {
+        if (type.isAssignableFrom(String.class)) {
+            return value -> value;
+        } else if (type.isEnum()) {
+            return value -> new ParameterValue(value).toEnum((Class) type);
+        } else if (java.sql.Date.class.isAssignableFrom(type)) {
+            return value -> StringUtils.isNullOrEmpty(value) ? null : java.sql.Date.valueOf(value);
+        } else if (Time.class.isAssignableFrom(type)) {
+            return value -> StringUtils.isNullOrEmpty(value) ? null : Time.valueOf(value);
+        } else if (Timestamp.class.isAssignableFrom(type)) {
+            return value -> StringUtils.isNullOrEmpty(value) ? null : Timestamp.valueOf(value);
+        } else if (Date.class.isAssignableFrom(type)) {
+            return value -> StringUtils.isNullOrEmpty(value) ? null : parseDate(value, dateFormatter);
+        } else if (type == Integer.TYPE || type == Integer.class) {
+            return value -> value.isEmpty() ? 0 : Integer.parseInt(value);
+        } else if (type == Long.TYPE || type == Long.class) {
+            return value -> value.isEmpty() ? 0L : Long.parseLong(value);
+        } else if (type == Short.TYPE || type == Short.class) {
+            return value -> value.isEmpty() ? (short) 0 : Short.parseShort(value);
+        } else if (type == Byte.TYPE || type == Byte.class) {
+            return value -> value.isEmpty() ? (byte) 0 : Byte.parseByte(value);
+        } else if (type == Double.TYPE || type == Double.class) {
+            return value -> value.isEmpty() ? 0D : Double.parseDouble(value);
+        } else if (type == Float.TYPE || type == Float.class) {
+            return value -> value.isEmpty() ? 0F : Float.parseFloat(value);
+        } else if (type == BigDecimal.class) {
+            return value -> value.isEmpty() ? BigDecimal.ZERO : new BigDecimal(Double.parseDouble(value));
+        } else if (type == UUID.class) {
+            return value -> value.isEmpty() ? null : UUID.fromString(value);
+        }
+
+        // re-use the infinitely useful ParameterValue class for everything else
+        return value -> new ParameterValue(value).to(type);
+    }
+
+    @FunctionalInterface
+    interface Converter {
+
+        Object fromString(String value) throws Exception;
+
+    }
+
+    static class FieldBinding {
+
+        private final MethodHandle setter;
+        private final Converter converter;
+
+        FieldBinding(MethodHandle setter, Converter converter) {
+            this.setter = setter;
+            this.converter = converter;
+        }
+
+        void set(Object object, String value) throws Throwable {
+            Object fieldValue = (value == null) ? null : converter.fromString(value);
+            setter.invokeExact(object, fieldValue);
+        }
+
+    }
+
+}
@@ -25,24 +25,21 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import ro.pippo.core.Application;
 import ro.pippo.core.ContentTypeEngine;
-import ro.pippo.core.ParameterValue;
-import ro.pippo.core.util.ClassUtils;
 
 import java.io.IOException;
 import java.io.StringReader;
 import java.io.StringWriter;
 import java.lang.reflect.Array;
-import java.lang.reflect.Constructor;
-import java.lang.reflect.Field;
 import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * @author James Moger
@@ -57,7 +54,6 @@ public class CsvEngine implements ContentTypeEngine {
     private final static String YYYYMMDDHHMMSS = "yyyy-MM-dd HH:mm:ss";
 
     private boolean caseSensitiveFieldNames;
-    private String datePattern = YYYYMMDDHHMMSS;
     private Character delimiter = ',';
     private Character escapeCharacter;
     private Character quoteCharacter = '\"';
@@ -65,6 +61,9 @@ public class CsvEngine implements ContentTypeEngine {
     private String nullString;
     private String recordSeparator = "\r\n";
 
+    private DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern(YYYYMMDDHHMMSS);
+    private final ConcurrentMap<Class<?>, CsvBinder> binders = new ConcurrentHashMap<>();
+
     /**
      * Controls case-sensitivity when mapping CSV column names to object fields during deserialization from CSV.
      *
@@ -72,10 +71,18 @@ public class CsvEngine implements ContentTypeEngine {
      */
     public void setCaseSensitiveFieldNames(boolean caseSensitiveFieldNames) {
         this.caseSensitiveFieldNames = caseSensitiveFieldNames;
+        binders.clear();
     }
 
+    /**
+     * Sets the pattern used to format and parse {@link Date} values.
+     * The pattern is interpreted by {@link DateTimeFormatter}, in the default time zone.
+     *
+     * @param datePattern
+     */
     public void setDatePattern(String datePattern) {
-        this.datePattern = datePattern;
+        this.dateFormatter = DateTimeFormatter.ofPattern(datePattern);
+        binders.clear();
     }
 
     public void setDelimiter(char delimiter) {
@@ -183,26 +190,26 @@ public class CsvEngine implements ContentTypeEngine {
         Class<?> objectType = classOfT.getComponentType();
         int currentLine = 0;
         try (CSVParser parser = new CSVParser(new StringReader(content), getCSVFormat().withHeader())) {
-            Set<String> columns = parser.getHeaderMap().keySet();
-            Map<String, Field> fieldMap = getFieldMap(objectType);
-
-            Constructor<?> objectConstructor;
-            try {
-                objectConstructor = objectType.getConstructor();
-            } catch (NoSuchMethodException e) {
-                throw new RuntimeException("A default constructor is required for " + objectType.getName());
+            Map<String, Integer> headerMap = parser.getHeaderMap();
+            String[] columns = new String[headerMap.size()];
+            int[] indexes = new int[headerMap.size()];
+            int column = 0;
+            for (Map.Entry<String, Integer> entry : headerMap.entrySet()) {
+                columns[column] = entry.getKey();
+                indexes[column] = entry.getValue();
+                column++;
             }
 
+            CsvBinder binder = getBinder(objectType);
+            CsvBinder.FieldBinding[] bindings = binder.bind(columns);
+
             List objects = new ArrayList<>();
             for (CSVRecord record : parser) {
                 currentLine++;
 
-                Object o = objectConstructor.newInstance();
-                for (String column : columns) {
-                    Field field = fieldMap.get(caseSensitiveFieldNames ? column : column.toLowerCase());
-                    String value = record.get(column);
-                    Object object = objectFromString(value, field.getType());
-                    field.set(o, object);
+                Object o = binder.newInstance();
+                for (int i = 0; i < bindings.length; i++) {
+                    bindings[i].set(o, record.get(indexes[i]));
                 }
 
                 objects.add(o);
@@ -214,8 +221,8 @@ public class CsvEngine implements ContentTypeEngine {
             }
 
             return (T) array;
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to parse CSV near line #" + currentLine, e);
+        } catch (Throwable t) {
+            throw new RuntimeException("Failed to parse CSV near line #" + currentLine, t);
         }
     }
 
@@ -234,50 +241,33 @@ public class CsvEngine implements ContentTypeEngine {
         } else if (object instanceof java.sql.Timestamp) {
             return object.toString();
         } else if (object instanceof Date) {
-            return new SimpleDateFormat(datePattern).format((Date) object);
+            return dateFormatter.format(((Date) object).toInstant().atZone(ZoneId.systemDefault()));
         }
 
         return object.toString();
     }
 
     public Object objectFromString(String value, Class<?> objectClass) throws ParseException {
-        if (value == null) {
-            return null;
-        } else if (objectClass.isAssignableFrom(value.getClass())) {
-            return value;
-        }
-
-        // re-use the infinitely useful ParameterValue class
-        ParameterValue pv = new ParameterValue(value);
-        if (objectClass.isEnum()) {
-            return pv.toEnum((Class) objectClass);
-        } else if (java.sql.Date.class.isAssignableFrom(objectClass)) {
-            return pv.toSqlDate();
-        } else if (java.sql.Time.class.isAssignableFrom(objectClass)) {
-            return pv.toSqlTime();
-        } else if (java.sql.Timestamp.class.isAssignableFrom(objectClass)) {
-            return pv.toSqlTimestamp();
-        } else if (Date.class.isAssignableFrom(objectClass)) {
-            return pv.toDate(datePattern);
+        try {
+            return CsvBinder.convert(value, objectClass, dateFormatter);
+        } catch (ParseException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
         }
-
-        return pv.to(objectClass);
     }
 
-    private Map<String, Field> getFieldMap(Class<?> classOfT) {
-        Map<String, Field> map = new HashMap<>();
-        for (Field field : ClassUtils.getAllFields(classOfT)) {
-            field.setAccessible(true);
-            String name;
-            if (caseSensitiveFieldNames) {
-                name = field.getName();
-            } else {
-                name = field.getName().toLowerCase();
+    private CsvBinder getBinder(Class<?> objectType) {
+        CsvBinder binder = binders.get(objectType);
+        if (binder == null) {
+            binder = new CsvBinder(objectType, caseSensitiveFieldNames, dateFormatter);
+            CsvBinder existing = binders.putIfAbsent(objectType, binder);
+            if (existing != null) {
+                binder = existing;
             }
-            map.put(name, field);
         }
 
-        return map;
+        return binder;
     }
 
 }
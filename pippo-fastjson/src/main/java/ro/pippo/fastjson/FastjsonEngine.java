@@ -2,52 +2,194 @@
  * Copyright (C) 2014 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
- * you may not use this file eTcept in compliance with the License.
+ * you may not use this file except in compliance with the License.
  * You may obtain a copy of the License at
  *
  *     http://www.apache.org/licenses/LICENSE-2.0
  *
  * Unless required by applicable law or agreed to in writing, software
  * distributed under the License is distributed on an "AS IS" BASIS,
- * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either eTpress or implied.
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
 package ro.pippo.fastjson;
 
+import com.alibaba.fastjson.JSONException;
+import com.alibaba.fastjson.parser.DefaultJSONParser;
+import com.alibaba.fastjson.parser.JSONReaderScanner;
+import com.alibaba.fastjson.parser.ParserConfig;
+import com.alibaba.fastjson.parser.deserializer.ObjectDeserializer;
+import com.alibaba.fastjson.serializer.JSONSerializer;
+import com.alibaba.fastjson.serializer.SerializeConfig;
+import com.alibaba.fastjson.serializer.SerializeWriter;
 import com.alibaba.fastjson.serializer.SerializerFeature;
 import org.kohsuke.MetaInfServices;
 import ro.pippo.core.Application;
 import ro.pippo.core.ContentTypeEngine;
 import ro.pippo.core.HttpConstants;
+import ro.pippo.core.PippoRuntimeException;
+import ro.pippo.core.PippoSettings;
+import ro.pippo.core.StreamingContentTypeEngine;
 
-import com.alibaba.fastjson.JSON;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * A JsonEngine based on Fastjson.
+ * <p/>
+ * The engine owns its {@link SerializeConfig} and {@link ParserConfig} (instead of the global ones)
+ * and caches the deserializer of each type. The behavior can be tuned with these settings:
+ * <pre>
+ * fastjson.serializerFeatures = UseISO8601DateFormat, WriteEnumUsingToString
+ * fastjson.asmEnabled = true
+ * </pre>
  *
  * @author James Moger
  */
 @MetaInfServices(ContentTypeEngine.class)
-public class FastjsonEngine implements ContentTypeEngine {
+public class FastjsonEngine implements StreamingContentTypeEngine {
 
-	@Override
-	public void init(Application application) {
-	}
+    public static final String SETTING_SERIALIZER_FEATURES = "fastjson.serializerFeatures";
+    public static final String SETTING_ASM_ENABLED = "fastjson.asmEnabled";
+
+    private SerializeConfig serializeConfig = new SerializeConfig();
+    private ParserConfig parserConfig = new ParserConfig();
+    private SerializerFeature[] serializerFeatures = { SerializerFeature.UseISO8601DateFormat };
+
+    private final ConcurrentMap<Class<?>, ObjectDeserializer> deserializers = new ConcurrentHashMap<>();
+
+    @Override
+    public void init(Application application) {
+        if (application == null) {
+            return;
+        }
+
+        PippoSettings pippoSettings = application.getPippoSettings();
+
+        List<String> featureNames = pippoSettings.getStrings(SETTING_SERIALIZER_FEATURES);
+        if (!featureNames.isEmpty()) {
+            List<SerializerFeature> features = new ArrayList<>();
+            for (String featureName : featureNames) {
+                features.add(SerializerFeature.valueOf(featureName));
+            }
+            serializerFeatures = features.toArray(new SerializerFeature[features.size()]);
+        }
+
+        boolean asmEnabled = pippoSettings.getBoolean(SETTING_ASM_ENABLED, true);
+        serializeConfig = new SerializeConfig();
+        serializeConfig.setAsmEnable(asmEnabled);
+        parserConfig = new ParserConfig();
+        parserConfig.setAsmEnable(asmEnabled);
+        deserializers.clear();
+    }
+
+    public SerializeConfig getSerializeConfig() {
+        return serializeConfig;
+    }
+
+    public ParserConfig getParserConfig() {
+        return parserConfig;
+    }
 
     @Override
     public String getContentType() {
         return HttpConstants.ContentType.APPLICATION_JSON;
     }
 
-	@Override
-	public String toString(Object object) {
-		return JSON.toJSONString(object, SerializerFeature.UseISO8601DateFormat);
-	}
+    @Override
+    public String toString(Object object) {
+        SerializeWriter out = new SerializeWriter();
+        try {
+            createSerializer(out).write(object);
+
+            return out.toString();
+        } finally {
+            out.close();
+        }
+    }
+
+    @Override
+    public <T> T fromString(String content, Class<T> classOfT) {
+        return parse(new DefaultJSONParser(content, parserConfig), classOfT);
+    }
+
+    @Override
+    public void toStream(Object object, OutputStream output, Charset charset) {
+        Writer writer = new OutputStreamWriter(output, charset);
+        SerializeWriter out = new SerializeWriter(writer);
+        try {
+            createSerializer(out).write(object);
+            // close flushes the buffered content to the writer (the writer remains open)
+            out.close();
+            writer.flush();
+        } catch (IOException e) {
+            throw new PippoRuntimeException(e, "Error serializing object to {}", getContentType());
+        }
+    }
+
+    @Override
+    public <T> T fromStream(InputStream input, Charset charset, Class<T> classOfT) {
+        // the lexer closes its reader, the stream belongs to the caller
+        InputStream nonClosingInput = new FilterInputStream(input) {
+
+            @Override
+            public void close() {
+            }
+
+        };
+        JSONReaderScanner lexer = new JSONReaderScanner(new InputStreamReader(nonClosingInput, charset));
+
+        return parse(new DefaultJSONParser(lexer, parserConfig), classOfT);
+    }
+
+    private JSONSerializer createSerializer(SerializeWriter out) {
+        JSONSerializer serializer = new JSONSerializer(out, serializeConfig);
+        for (SerializerFeature feature : serializerFeatures) {
+            serializer.config(feature, true);
+        }
+
+        return serializer;
+    }
+
+    private <T> T parse(DefaultJSONParser parser, Class<T> classOfT) {
+        boolean closed = false;
+        try {
+            T value = getDeserializer(classOfT).deserialze(parser, classOfT, null);
+            parser.handleResovleTask(value);
+
+            // close fails if the content doesn't end with the value, and it always closes the lexer
+            closed = true;
+            parser.close();
 
-	@Override
-	public <T> T fromString(String content, Class<T> classOfT) {
-		return JSON.parseObject(content, classOfT);
-	}
+            return value;
+        } catch (JSONException e) {
+            throw new PippoRuntimeException(e, "Error deserializing {}", getContentType());
+        } finally {
+            if (!closed) {
+                parser.getLexer().close();
+            }
+        }
+    }
+
+    private ObjectDeserializer getDeserializer(Class<?> type) {
+        ObjectDeserializer deserializer = deserializers.get(type);
+        if (deserializer == null) {
+            deserializer = parserConfig.getDeserializer(type);
+            deserializers.putIfAbsent(type, deserializer);
+        }
+
+        return deserializer;
+    }
 
 }
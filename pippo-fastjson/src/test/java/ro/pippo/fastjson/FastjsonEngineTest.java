@@ -17,7 +17,11 @@ package ro.pippo.fastjson;
 
 import org.junit.Assert;
 import org.junit.Test;
+import ro.pippo.core.PippoRuntimeException;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Calendar;
 import java.util.Date;
 
@@ -55,6 +59,41 @@ public class FastjsonEngineTest extends Assert {
         assertTrue(test.date.equals(result.date));
     }
 
+    @Test
+    public void testStream() {
+        MyTest test = new MyTest();
+
+        FastjsonEngine engine = new FastjsonEngine();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        engine.toStream(test, output, StandardCharsets.UTF_8);
+
+        MyTest result = engine.fromStream(new ByteArrayInputStream(output.toByteArray()), StandardCharsets.UTF_8, MyTest.class);
+        assertEquals(test.message, result.message);
+        assertEquals(test.date, result.date);
+    }
+
+    @Test
+    public void testStreamIsNotClosed() {
+        final boolean[] closed = { false };
+        ByteArrayInputStream input = new ByteArrayInputStream("{\"message\":\"Hello\"}".getBytes(StandardCharsets.UTF_8)) {
+
+            @Override
+            public void close() {
+                closed[0] = true;
+            }
+
+        };
+
+        MyTest result = new FastjsonEngine().fromStream(input, StandardCharsets.UTF_8, MyTest.class);
+        assertEquals("Hello", result.message);
+        assertFalse(closed[0]);
+    }
+
+    @Test(expected = PippoRuntimeException.class)
+    public void testTrailingContent() {
+        new FastjsonEngine().fromString("{\"message\":\"Hello\"} {", MyTest.class);
+    }
+
     public static class MyTest {
 
         public String message = "Hooray!";
@@ -15,35 +15,58 @@
  */
 package ro.pippo.jackson;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.module.afterburner.AfterburnerModule;
 import ro.pippo.core.Application;
-import ro.pippo.core.ContentTypeEngine;
-import ro.pippo.core.HttpConstants;
 import ro.pippo.core.PippoRuntimeException;
+import ro.pippo.core.StreamingContentTypeEngine;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Base class for ContentTypeEngines based on Jackson.
+ * The {@link ObjectReader}s and {@link ObjectWriter}s are cached per type and
+ * UTF-8 content is streamed as bytes, without an intermediate String.
  *
  * @author James Moger
  */
-public abstract class JacksonBaseEngine implements ContentTypeEngine {
+public abstract class JacksonBaseEngine implements StreamingContentTypeEngine {
 
     protected ObjectMapper objectMapper;
 
+    private final ConcurrentMap<Class<?>, ObjectReader> readers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Class<?>, ObjectWriter> writers = new ConcurrentHashMap<>();
+
     @Override
     public void init(Application application) {
         objectMapper = getObjectMapper();
         objectMapper.configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false);
+        objectMapper.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+        objectMapper.configure(JsonParser.Feature.AUTO_CLOSE_SOURCE, false);
         objectMapper.setTimeZone(TimeZone.getDefault());
         objectMapper.registerModule(new AfterburnerModule());
+
+        // the cached readers and writers are bound to the previous configuration
+        readers.clear();
+        writers.clear();
     }
 
     protected abstract ObjectMapper getObjectMapper();
@@ -51,7 +74,7 @@ public abstract class JacksonBaseEngine implements ContentTypeEngine {
     @Override
     public String toString(Object object) {
         try {
-            return objectMapper.writeValueAsString(object);
+            return getWriter(object).writeValueAsString(object);
         } catch (JsonProcessingException e) {
             throw new PippoRuntimeException(e, "Error serializing object to {}", getContentType());
         }
@@ -60,7 +83,7 @@ public abstract class JacksonBaseEngine implements ContentTypeEngine {
     @Override
     public <T> T fromString(String content, Class<T> classOfT) {
         try {
-            return objectMapper.readValue(content, classOfT);
+            return getReader(classOfT).readValue(content);
         } catch (JsonParseException | JsonMappingException e) {
             throw new PippoRuntimeException(e, "Error deserializing {}", getContentType());
         } catch (IOException e) {
@@ -68,4 +91,69 @@ public abstract class JacksonBaseEngine implements ContentTypeEngine {
         }
     }
 
+    @Override
+    public void toStream(Object object, OutputStream output, Charset charset) {
+        try {
+            ObjectWriter writer = getWriter(object);
+            if (isBinary() || StandardCharsets.UTF_8.equals(charset)) {
+                writer.writeValue(output, object);
+            } else {
+                Writer outputWriter = new OutputStreamWriter(output, charset);
+                writer.writeValue(outputWriter, object);
+                outputWriter.flush();
+            }
+        } catch (IOException e) {
+            throw new PippoRuntimeException(e, "Error serializing object to {}", getContentType());
+        }
+    }
+
+    @Override
+    public <T> T fromStream(InputStream input, Charset charset, Class<T> classOfT) {
+        try {
+            ObjectReader reader = getReader(classOfT);
+            if (isBinary() || StandardCharsets.UTF_8.equals(charset)) {
+                return reader.readValue(input);
+            }
+
+            return reader.readValue(new InputStreamReader(input, charset));
+        } catch (JsonParseException | JsonMappingException e) {
+            throw new PippoRuntimeException(e, "Error deserializing {}", getContentType());
+        } catch (IOException e) {
+            throw new PippoRuntimeException(e, "Invalid {} document", getContentType());
+        }
+    }
+
+    /**
+     * Returns true if the content type is a binary format.
+     * Binary formats ignore the charset when streaming.
+     */
+    protected boolean isBinary() {
+        return false;
+    }
+
+    protected ObjectReader getReader(Class<?> type) {
+        ObjectReader reader = readers.get(type);
+        if (reader == null) {
+            reader = objectMapper.readerFor(type);
+            readers.putIfAbsent(type, reader);
+        }
+
+        return reader;
+    }
+
+    protected ObjectWriter getWriter(Object object) {
+        if (object == null) {
+            return objectMapper.writer();
+        }
+
+        Class<?> type = object.getClass();
+        ObjectWriter writer = writers.get(type);
+        if (writer == null) {
+            writer = objectMapper.writerFor(type);
+            writers.putIfAbsent(type, writer);
+        }
+
+        return writer;
+    }
+
 }
@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.jackson;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import ro.pippo.core.PippoRuntimeException;
+
+import java.io.IOException;
+import java.util.Base64;
+
+/**
+ * Base class for ContentTypeEngines based on a binary Jackson data format.
+ * The response and the request body are streamed as bytes, the String representation
+ * of the content ({@link #toString(Object)}, {@link #fromString(String, Class)}) is Base64.
+ */
+public abstract class JacksonBinaryEngine extends JacksonBaseEngine {
+
+    @Override
+    public String toString(Object object) {
+        try {
+            return Base64.getEncoder().encodeToString(getWriter(object).writeValueAsBytes(object));
+        } catch (JsonProcessingException e) {
+            throw new PippoRuntimeException(e, "Error serializing object to {}", getContentType());
+        }
+    }
+
+    @Override
+    public <T> T fromString(String content, Class<T> classOfT) {
+        try {
+            return getReader(classOfT).readValue(Base64.getDecoder().decode(content));
+        } catch (JsonParseException | JsonMappingException e) {
+            throw new PippoRuntimeException(e, "Error deserializing {}", getContentType());
+        } catch (IOException | IllegalArgumentException e) {
+            throw new PippoRuntimeException(e, "Invalid {} document", getContentType());
+        }
+    }
+
+    @Override
+    protected boolean isBinary() {
+        return true;
+    }
+
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright (C) 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.jackson;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.kohsuke.MetaInfServices;
+import ro.pippo.core.ContentTypeEngine;
+
+/**
+ * A CBOR (RFC 7049) ContentTypeEngine based on Jackson.
+ */
+@MetaInfServices(ContentTypeEngine.class)
+public class JacksonCborEngine extends JacksonBinaryEngine {
+
+    public static final String APPLICATION_CBOR = "application/cbor";
+
+    @Override
+    protected ObjectMapper getObjectMapper() {
+        return new ObjectMapper(new CBORFactory());
+    }
+
+    @Override
+    public String getContentType() {
+        return APPLICATION_CBOR;
+    }
+
+}
@@ -39,6 +39,12 @@ public class JacksonInitializer implements Initializer {
         if (ClasspathUtils.hasClass("com.fasterxml.jackson.dataformat.yaml.YAMLMapper")) {
             application.registerContentTypeEngine(JacksonYamlEngine.class);
         }
+        if (ClasspathUtils.hasClass("com.fasterxml.jackson.dataformat.smile.SmileFactory")) {
+            application.registerContentTypeEngine(JacksonSmileEngine.class);
+        }
+        if (ClasspathUtils.hasClass("com.fasterxml.jackson.dataformat.cbor.CBORFactory")) {
+            application.registerContentTypeEngine(JacksonCborEngine.class);
+        }
     }
 
     @Override
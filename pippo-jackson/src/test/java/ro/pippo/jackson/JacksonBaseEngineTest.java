@@ -18,6 +18,9 @@ package ro.pippo.jackson;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Calendar;
 import java.util.Date;
 
@@ -61,6 +64,21 @@ public abstract class JacksonBaseEngineTest extends Assert {
         assertTrue(test.date.equals(result.date));
     }
 
+    @Test
+    public void testStream() {
+        MyTest test = new MyTest();
+
+        JacksonBaseEngine engine = getEngine();
+        engine.init(null);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        engine.toStream(test, output, StandardCharsets.UTF_8);
+
+        MyTest result = engine.fromStream(new ByteArrayInputStream(output.toByteArray()), StandardCharsets.UTF_8, MyTest.class);
+        assertEquals(test.message, result.message);
+        assertTrue(test.date.equals(result.date));
+    }
+
     public static class MyTest {
 
         public String message = "Hooray!";
@@ -30,6 +30,7 @@ import ro.pippo.core.AbstractWebServer;
 import ro.pippo.core.HttpConstants;
 import ro.pippo.core.PippoRuntimeException;
 import ro.pippo.core.WebServer;
+import ro.pippo.core.WebServerThreadPool;
 
 import javax.servlet.DispatcherType;
 import javax.servlet.MultipartConfigElement;
@@ -53,6 +54,10 @@ public class JettyServer extends AbstractWebServer<JettySettings> {
     @Override
     public void start() {
         server = createServer();
+        if (server.getThreadPool() instanceof QueuedThreadPool) {
+            QueuedThreadPool threadPool = (QueuedThreadPool) server.getThreadPool();
+            pippoFilter.getApplication().setWebServerThreadPool(new JettyThreadPool(threadPool));
+        }
 
         ServerConnector serverConnector = createServerConnector(server);
         serverConnector.setIdleTimeout(TimeUnit.HOURS.toMillis(1));
@@ -151,6 +156,44 @@ public class JettyServer extends AbstractWebServer<JettySettings> {
         return handler;
     }
 
+    /**
+     * Exposes the statistics of the Jetty thread pool.
+     */
+    private static class JettyThreadPool implements WebServerThreadPool {
+
+        private final QueuedThreadPool threadPool;
+
+        private JettyThreadPool(QueuedThreadPool threadPool) {
+            this.threadPool = threadPool;
+        }
+
+        @Override
+        public int getThreads() {
+            return threadPool.getThreads();
+        }
+
+        @Override
+        public int getBusyThreads() {
+            return threadPool.getBusyThreads();
+        }
+
+        @Override
+        public int getIdleThreads() {
+            return threadPool.getIdleThreads();
+        }
+
+        @Override
+        public int getMaxThreads() {
+            return threadPool.getMaxThreads();
+        }
+
+        @Override
+        public int getQueueSize() {
+            return threadPool.getQueueSize();
+        }
+
+    }
+
     /**
      * Inject a MultipartConfig in a filter.
      */
@@ -27,6 +27,9 @@ import org.slf4j.LoggerFactory;
 
 import ro.pippo.core.PippoSettings;
 import ro.pippo.metrics.MetricsReporter;
+import ro.pippo.metrics.MetricsSink;
+import ro.pippo.metrics.MetricsSinkReporter;
+import ro.pippo.metrics.ScheduledReporterSink;
 
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.ganglia.GangliaReporter;
@@ -38,7 +41,7 @@ import com.codahale.metrics.ganglia.GangliaReporter;
  *
  */
 @MetaInfServices(MetricsReporter.class)
-public class Reporter implements MetricsReporter {
+public class Reporter implements MetricsSinkReporter {
 
 	private final Logger log = LoggerFactory.getLogger(Reporter.class);
 
@@ -49,14 +52,10 @@ public class Reporter implements MetricsReporter {
 		if (settings.getBoolean("metrics.ganglia.enabled", false)) {
 
 			final String hostname = settings.getLocalHostname();
-			final String address = settings.getRequiredString("metrics.ganglia.address");
-			final int port = settings.getInteger("metrics.ganglia.port", 8649);
 			final long period = settings.getDurationInSeconds("metrics.ganglia.period", 60);
 
 			try {
-				GMetric ganglia = new GMetric(address, port, UDPAddressingMode.MULTICAST, 1);
-				reporter = GangliaReporter.forRegistry(metricRegistry).convertRatesTo(TimeUnit.SECONDS)
-						.convertDurationsTo(TimeUnit.MILLISECONDS).build(ganglia);
+				reporter = createReporter(settings, metricRegistry);
 				reporter.start(period, TimeUnit.SECONDS);
 
 				log.info("Started Ganglia Metrics reporter for '{}', updating every {} seconds", hostname, period);
@@ -70,6 +69,38 @@ public class Reporter implements MetricsReporter {
 		}
 	}
 
+	@Override
+	public MetricsSink createSink(PippoSettings settings, MetricRegistry metricRegistry) {
+		if (settings.getBoolean("metrics.ganglia.enabled", false)) {
+
+			try {
+				reporter = createReporter(settings, metricRegistry);
+
+				log.info("Added Ganglia Metrics sink for '{}' to the reporting pipeline", settings.getLocalHostname());
+
+				return new ScheduledReporterSink("ganglia", reporter);
+
+			} catch (IOException e) {
+				log.error("Failed to create Ganglia reporter!", e);
+			}
+
+		} else {
+			log.debug("Ganglia Metrics reporter is disabled");
+		}
+
+		return null;
+	}
+
+	private GangliaReporter createReporter(PippoSettings settings, MetricRegistry metricRegistry) throws IOException {
+		final String address = settings.getRequiredString("metrics.ganglia.address");
+		final int port = settings.getInteger("metrics.ganglia.port", 8649);
+
+		GMetric ganglia = new GMetric(address, port, UDPAddressingMode.MULTICAST, 1);
+
+		return GangliaReporter.forRegistry(metricRegistry).convertRatesTo(TimeUnit.SECONDS)
+				.convertDurationsTo(TimeUnit.MILLISECONDS).build(ganglia);
+	}
+
 	@Override
 	public void close() throws IOException {
 		if (reporter != null) {
@@ -25,6 +25,9 @@ import org.slf4j.LoggerFactory;
 
 import ro.pippo.core.PippoSettings;
 import ro.pippo.metrics.MetricsReporter;
+import ro.pippo.metrics.MetricsSink;
+import ro.pippo.metrics.MetricsSinkReporter;
+import ro.pippo.metrics.ScheduledReporterSink;
 
 import com.codahale.metrics.MetricFilter;
 import com.codahale.metrics.MetricRegistry;
@@ -40,7 +43,7 @@ import com.codahale.metrics.graphite.PickledGraphite;
  *
  */
 @MetaInfServices(MetricsReporter.class)
-public class Reporter implements MetricsReporter {
+public class Reporter implements MetricsSinkReporter {
 
 	private final Logger log = LoggerFactory.getLogger(Reporter.class);
 
@@ -51,24 +54,9 @@ public class Reporter implements MetricsReporter {
 		if (settings.getBoolean("metrics.graphite.enabled", false)) {
 
 			final String hostname = settings.getLocalHostname();
-			final String address = settings.getRequiredString("metrics.graphite.address");
-			final int port = settings.getInteger("metrics.graphite.port", 2003);
-			final boolean isPickled = settings.getBoolean("metrics.graphite.pickled", false);
 			final long period = settings.getDurationInSeconds("metrics.graphite.period", 60);
 
-			final InetSocketAddress graphiteAddress = new InetSocketAddress(address, port);
-
-			final GraphiteSender sender;
-			if (isPickled) {
-				sender = new PickledGraphite(graphiteAddress);
-			} else {
-				sender = new Graphite(graphiteAddress);
-			}
-
-			reporter = GraphiteReporter.forRegistry(metricRegistry).prefixedWith(hostname)
-					.convertRatesTo(TimeUnit.SECONDS).convertDurationsTo(TimeUnit.MILLISECONDS)
-					.filter(MetricFilter.ALL).build(sender);
-
+			reporter = createReporter(settings, metricRegistry);
 			reporter.start(period, TimeUnit.SECONDS);
 
 			log.debug("Started Graphite Metrics reporter for '{}', updating every {} seconds", hostname, period);
@@ -78,6 +66,42 @@ public class Reporter implements MetricsReporter {
 		}
 	}
 
+	@Override
+	public MetricsSink createSink(PippoSettings settings, MetricRegistry metricRegistry) {
+		if (settings.getBoolean("metrics.graphite.enabled", false)) {
+
+			reporter = createReporter(settings, metricRegistry);
+
+			log.debug("Added Graphite Metrics sink for '{}' to the reporting pipeline", settings.getLocalHostname());
+
+			return new ScheduledReporterSink("graphite", reporter);
+		}
+
+		log.debug("Graphite Metrics reporter is disabled");
+
+		return null;
+	}
+
+	private GraphiteReporter createReporter(PippoSettings settings, MetricRegistry metricRegistry) {
+		final String hostname = settings.getLocalHostname();
+		final String address = settings.getRequiredString("metrics.graphite.address");
+		final int port = settings.getInteger("metrics.graphite.port", 2003);
+		final boolean isPickled = settings.getBoolean("metrics.graphite.pickled", false);
+
+		final InetSocketAddress graphiteAddress = new InetSocketAddress(address, port);
+
+		final GraphiteSender sender;
+		if (isPickled) {
+			sender = new PickledGraphite(graphiteAddress);
+		} else {
+			sender = new Graphite(graphiteAddress);
+		}
+
+		return GraphiteReporter.forRegistry(metricRegistry).prefixedWith(hostname)
+				.convertRatesTo(TimeUnit.SECONDS).convertDurationsTo(TimeUnit.MILLISECONDS)
+				.filter(MetricFilter.ALL).build(sender);
+	}
+
 	@Override
 	public void close() throws IOException {
 		if (reporter != null) {
@@ -27,6 +27,9 @@ import org.slf4j.LoggerFactory;
 
 import ro.pippo.core.PippoSettings;
 import ro.pippo.metrics.MetricsReporter;
+import ro.pippo.metrics.MetricsSink;
+import ro.pippo.metrics.MetricsSinkReporter;
+import ro.pippo.metrics.ScheduledReporterSink;
 
 import com.codahale.metrics.MetricFilter;
 import com.codahale.metrics.MetricRegistry;
@@ -38,7 +41,7 @@ import com.codahale.metrics.MetricRegistry;
  *
  */
 @MetaInfServices(MetricsReporter.class)
-public class Reporter implements MetricsReporter {
+public class Reporter implements MetricsSinkReporter {
 
 	private final Logger log = LoggerFactory.getLogger(Reporter.class);
 
@@ -49,20 +52,11 @@ public class Reporter implements MetricsReporter {
 		if (settings.getBoolean("metrics.influxdb.enabled", false)) {
 
 			final String hostname = settings.getLocalHostname();
-			final String address = settings.getRequiredString("metrics.influxdb.address");
-			final int port = settings.getInteger("metrics.influxdb.port", 8086);
-			final String database = settings.getRequiredString("metrics.influxdb.database");
-			final String username = settings.getRequiredString("metrics.influxdb.username");
-			final String password = settings.getRequiredString("metrics.influxdb.password");
 			final long period = settings.getDurationInSeconds("metrics.influxdb.period", 60);
 
 			try {
 
-				InfluxdbHttp influxdb = new InfluxdbHttp(address, port, database, username, password);
-				reporter = InfluxdbReporter.forRegistry(metricRegistry).prefixedWith(hostname)
-						.convertRatesTo(TimeUnit.SECONDS).convertDurationsTo(TimeUnit.MILLISECONDS)
-						.filter(MetricFilter.ALL).build(influxdb);
-
+				reporter = createReporter(settings, metricRegistry);
 				reporter.start(period, TimeUnit.SECONDS);
 
 				log.debug("Started InfluxDB Metrics reporter for '{}', updating every {} seconds", hostname, period);
@@ -75,6 +69,43 @@ public class Reporter implements MetricsReporter {
 		}
 	}
 
+	@Override
+	public MetricsSink createSink(PippoSettings settings, MetricRegistry metricRegistry) {
+		if (settings.getBoolean("metrics.influxdb.enabled", false)) {
+
+			try {
+
+				reporter = createReporter(settings, metricRegistry);
+
+				log.debug("Added InfluxDB Metrics sink for '{}' to the reporting pipeline", settings.getLocalHostname());
+
+				return new ScheduledReporterSink("influxdb", reporter);
+
+			} catch (Exception e) {
+				log.error("Failed to create InfluxDB reporter!", e);
+			}
+		} else {
+			log.debug("InfluxDB Metrics reporter is disabled");
+		}
+
+		return null;
+	}
+
+	private InfluxdbReporter createReporter(PippoSettings settings, MetricRegistry metricRegistry) throws Exception {
+		final String hostname = settings.getLocalHostname();
+		final String address = settings.getRequiredString("metrics.influxdb.address");
+		final int port = settings.getInteger("metrics.influxdb.port", 8086);
+		final String database = settings.getRequiredString("metrics.influxdb.database");
+		final String username = settings.getRequiredString("metrics.influxdb.username");
+		final String password = settings.getRequiredString("metrics.influxdb.password");
+
+		InfluxdbHttp influxdb = new InfluxdbHttp(address, port, database, username, password);
+
+		return InfluxdbReporter.forRegistry(metricRegistry).prefixedWith(hostname)
+				.convertRatesTo(TimeUnit.SECONDS).convertDurationsTo(TimeUnit.MILLISECONDS)
+				.filter(MetricFilter.ALL).build(influxdb);
+	}
+
 	@Override
 	public void close() throws IOException {
 		if (reporter != null) {
@@ -24,6 +24,9 @@ import org.slf4j.LoggerFactory;
 
 import ro.pippo.core.PippoSettings;
 import ro.pippo.metrics.MetricsReporter;
+import ro.pippo.metrics.MetricsSink;
+import ro.pippo.metrics.MetricsSinkReporter;
+import ro.pippo.metrics.ScheduledReporterSink;
 
 import com.codahale.metrics.MetricRegistry;
 import com.librato.metrics.LibratoReporter;
@@ -35,21 +38,21 @@ import com.librato.metrics.LibratoReporter;
  *
  */
 @MetaInfServices(MetricsReporter.class)
-public class Reporter implements MetricsReporter {
+public class Reporter implements MetricsSinkReporter {
 
 	private final Logger log = LoggerFactory.getLogger(Reporter.class);
 
+	private LibratoReporter reporter;
+
 	@Override
 	public void start(PippoSettings settings, MetricRegistry metricRegistry) {
 		if (settings.getBoolean("metrics.librato.enabled", false)) {
 
 			final String hostname = settings.getLocalHostname();
-			final String username = settings.getRequiredString("metrics.librato.username");
-			final String apiKey = settings.getRequiredString("metrics.librato.apikey");
 			final long period = settings.getDurationInSeconds("metrics.librato.period", 60);
 
-			LibratoReporter.enable(LibratoReporter.builder(metricRegistry, username, apiKey, hostname), period,
-					TimeUnit.SECONDS);
+			reporter = createReporter(settings, metricRegistry);
+			reporter.start(period, TimeUnit.SECONDS);
 
 			log.info("Started Librato Metrics reporter for '{}', updating every {} seconds", hostname, period);
 
@@ -58,7 +61,35 @@ public class Reporter implements MetricsReporter {
 		}
 	}
 
+	@Override
+	public MetricsSink createSink(PippoSettings settings, MetricRegistry metricRegistry) {
+		if (settings.getBoolean("metrics.librato.enabled", false)) {
+
+			reporter = createReporter(settings, metricRegistry);
+
+			log.info("Added Librato Metrics sink for '{}' to the reporting pipeline", settings.getLocalHostname());
+
+			return new ScheduledReporterSink("librato", reporter);
+		}
+
+		log.debug("Librato Metrics reporter is disabled");
+
+		return null;
+	}
+
+	private LibratoReporter createReporter(PippoSettings settings, MetricRegistry metricRegistry) {
+		final String hostname = settings.getLocalHostname();
+		final String username = settings.getRequiredString("metrics.librato.username");
+		final String apiKey = settings.getRequiredString("metrics.librato.apikey");
+
+		return LibratoReporter.builder(metricRegistry, username, apiKey, hostname).build();
+	}
+
 	@Override
 	public void close() throws IOException {
+		if (reporter != null) {
+			reporter.stop();
+			log.debug("Stopped Librato Metrics reporter");
+		}
 	}
 }
@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.prometheus;
+
+import com.codahale.metrics.MetricRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ro.pippo.core.PippoRuntimeException;
+import ro.pippo.core.Response;
+import ro.pippo.core.route.RouteContext;
+import ro.pippo.core.route.RouteHandler;
+import ro.pippo.metrics.MetricsRouteContext;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes the metrics of the {@link MetricRegistry} in the Prometheus text exposition format.
+ * The rendered metrics are cached for a short interval, so frequent (or concurrent) scrapes are cheap.
+ */
+public class PrometheusHandler implements RouteHandler {
+
+    private static final Logger log = LoggerFactory.getLogger(PrometheusHandler.class);
+
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    public static final long DEFAULT_CACHE_TTL = 5000;
+
+    private final long cacheTtl;
+
+    private volatile byte[] content;
+    private volatile long contentTime;
+
+    public PrometheusHandler() {
+        this(DEFAULT_CACHE_TTL);
+    }
+
+    /**
+     * @param cacheTtl the time in milliseconds the rendered metrics are reused
+     */
+    public PrometheusHandler(long cacheTtl) {
+        this.cacheTtl = cacheTtl;
+    }
+
+    @Override
+    public void handle(RouteContext routeContext) {
+        Response response = routeContext.getResponse();
+        if (!(routeContext instanceof MetricsRouteContext)) {
+            log.error("Pippo Metrics is not the RouteContextFactory of the application, there are no metrics to expose");
+            response.serviceUnavailable().commit();
+            return;
+        }
+
+        byte[] content = getContent(((MetricsRouteContext) routeContext).getMetricRegistry());
+
+        response.contentType(CONTENT_TYPE);
+        response.contentLength(content.length);
+        response.header("Cache-Control", "no-cache");
+        try (OutputStream output = response.getOutputStream()) {
+            output.write(content);
+        } catch (IOException e) {
+            throw new PippoRuntimeException(e);
+        }
+    }
+
+    byte[] getContent(MetricRegistry metricRegistry) {
+        if (isStale()) {
+            synchronized (this) {
+                // another scrape may have rendered the metrics meanwhile
+                if (isStale()) {
+                    content = render(metricRegistry);
+                    contentTime = System.currentTimeMillis();
+                }
+            }
+        }
+
+        return content;
+    }
+
+    private boolean isStale() {
+        return (content == null) || (System.currentTimeMillis() - contentTime >= cacheTtl);
+    }
+
+    private byte[] render(MetricRegistry metricRegistry) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream(content != null ? content.length : 8192);
+        try (Writer writer = new OutputStreamWriter(output, StandardCharsets.UTF_8)) {
+            new PrometheusTextFormat(writer).write(metricRegistry);
+        } catch (IOException e) {
+            throw new PippoRuntimeException(e);
+        }
+
+        return output.toByteArray();
+    }
+
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.prometheus;
+
+import org.kohsuke.MetaInfServices;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ro.pippo.core.Application;
+import ro.pippo.core.Initializer;
+import ro.pippo.core.PippoSettings;
+
+/**
+ * Registers the route that exposes the metrics in the Prometheus text format,
+ * if <code>metrics.prometheus.enabled</code> is true.
+ */
+@MetaInfServices(Initializer.class)
+public class PrometheusInitializer implements Initializer {
+
+    private static final Logger log = LoggerFactory.getLogger(PrometheusInitializer.class);
+
+    @Override
+    public void init(Application application) {
+        PippoSettings settings = application.getPippoSettings();
+        if (settings.getBoolean("metrics.prometheus.enabled", false)) {
+            String path = settings.getString("metrics.prometheus.path", "/metrics");
+            long cacheTtl = settings.getDurationInMilliseconds("metrics.prometheus.cacheTtl", PrometheusHandler.DEFAULT_CACHE_TTL);
+
+            application.GET(path, new PrometheusHandler(cacheTtl));
+
+            log.debug("Exposing the metrics for Prometheus on '{}'", path);
+        } else {
+            log.debug("Prometheus metrics endpoint is disabled");
+        }
+    }
+
+    @Override
+    public void destroy(Application application) {
+    }
+
+}
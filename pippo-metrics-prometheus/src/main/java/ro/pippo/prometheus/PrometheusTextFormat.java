@@ -0,0 +1,261 @@
+/*
+ * Copyright (C) 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.prometheus;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.Timer;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes the metrics of a {@link MetricRegistry} in the Prometheus text format (version 0.0.4).
+ * <ul>
+ *     <li>gauges and counters (which can decrease) are gauges</li>
+ *     <li>meters are counters named <code>&lt;name&gt;_total</code></li>
+ *     <li>histograms are summaries</li>
+ *     <li>timers are summaries in seconds named <code>&lt;name&gt;_seconds</code></li>
+ *     <li>the route timers (<code>routes.&lt;method&gt;.&lt;pattern&gt;</code>) are the single
+ *     <code>routes_seconds</code> summary, with the <code>method</code> and <code>route</code> labels</li>
+ * </ul>
+ * The metric names are sanitized, e.g. <code>dispatcher.requests.allRequests</code> becomes
+ * <code>dispatcher_requests_allRequests</code>. Two metrics with the same sanitized name
+ * are told apart by a numeric suffix (<code>_2</code>, <code>_3</code>, ...), so each name has exactly one
+ * <code># TYPE</code> line.
+ * The <code>_sum</code> of a summary is computed from the mean of the sampled values,
+ * so it is an approximation when the reservoir does not keep all the values.
+ */
+class PrometheusTextFormat {
+
+    static final String ROUTES_PREFIX = "routes.";
+
+    static final String ROUTES_NAME = "routes_seconds";
+
+    private static final double[] QUANTILES = {0.5, 0.75, 0.95, 0.98, 0.99, 0.999};
+
+    private static final double SECONDS_PER_NANO = 1.0 / TimeUnit.SECONDS.toNanos(1);
+
+    private final Writer writer;
+
+    private final List<Family> families = new ArrayList<>();
+
+    // the names of all the samples, a family name must not clash with any of them
+    private final Set<String> sampleNames = new HashSet<>();
+
+    private Family routes;
+
+    PrometheusTextFormat(Writer writer) {
+        this.writer = writer;
+    }
+
+    @SuppressWarnings("rawtypes")
+    void write(MetricRegistry metricRegistry) throws IOException {
+        for (Map.Entry<String, Gauge> entry : metricRegistry.getGauges().entrySet()) {
+            addGauge(sanitize(entry.getKey()), entry.getValue());
+        }
+        for (Map.Entry<String, Counter> entry : metricRegistry.getCounters().entrySet()) {
+            addCounter(sanitize(entry.getKey()), entry.getValue());
+        }
+        for (Map.Entry<String, Meter> entry : metricRegistry.getMeters().entrySet()) {
+            addMeter(sanitize(entry.getKey()), entry.getValue());
+        }
+        for (Map.Entry<String, Histogram> entry : metricRegistry.getHistograms().entrySet()) {
+            addHistogram(sanitize(entry.getKey()), entry.getValue());
+        }
+        for (Map.Entry<String, Timer> entry : metricRegistry.getTimers().entrySet()) {
+            addTimer(entry.getKey(), entry.getValue());
+        }
+
+        for (Family family : families) {
+            writer.write("# TYPE ");
+            writer.write(family.name);
+            writer.write(' ');
+            writer.write(family.type);
+            writer.write('\n');
+            writer.write(family.samples.toString());
+        }
+        writer.flush();
+    }
+
+    private void addGauge(String name, Gauge<?> gauge) {
+        Object value = gauge.getValue();
+        double number;
+        if (value instanceof Number) {
+            number = ((Number) value).doubleValue();
+        } else if (value instanceof Boolean) {
+            number = ((Boolean) value) ? 1 : 0;
+        } else {
+            // not a number, nothing to expose
+            return;
+        }
+
+        Family family = newFamily(name, "gauge");
+        family.addSample(family.name, null, number);
+    }
+
+    private void addCounter(String name, Counter counter) {
+        Family family = newFamily(name, "gauge");
+        family.addSample(family.name, null, counter.getCount());
+    }
+
+    private void addMeter(String name, Meter meter) {
+        Family family = newFamily(name + "_total", "counter");
+        family.addSample(family.name, null, meter.getCount());
+    }
+
+    private void addHistogram(String name, Histogram histogram) {
+        addSummary(newFamily(name, "summary"), null, histogram.getSnapshot(), histogram.getCount(), 1);
+    }
+
+    private void addTimer(String name, Timer timer) {
+        Family family;
+        String labels = null;
+        if (name.startsWith(ROUTES_PREFIX)) {
+            // all the route timers share one family, told apart by labels
+            if (routes == null) {
+                routes = newFamily(ROUTES_NAME, "summary");
+            }
+            family = routes;
+            labels = getRouteLabels(name.substring(ROUTES_PREFIX.length()));
+        } else {
+            family = newFamily(sanitize(name) + "_seconds", "summary");
+        }
+
+        addSummary(family, labels, timer.getSnapshot(), timer.getCount(), SECONDS_PER_NANO);
+    }
+
+    private void addSummary(Family family, String labels, Snapshot snapshot, long count, double factor) {
+        for (double quantile : QUANTILES) {
+            String quantileLabel = "quantile=\"" + quantile + "\"";
+            family.addSample(family.name, (labels != null) ? labels + "," + quantileLabel : quantileLabel,
+                snapshot.getValue(quantile) * factor);
+        }
+        family.addSample(family.name + "_sum", labels, snapshot.getMean() * count * factor);
+        family.addSample(family.name + "_count", labels, count);
+    }
+
+    /**
+     * Creates the family of a metric; a name that clashes with the name of a sample
+     * of another family gets a numeric suffix.
+     */
+    private Family newFamily(String name, String type) {
+        String[] suffixes = "summary".equals(type) ? new String[] {"", "_sum", "_count"} : new String[] {""};
+        String uniqueName = name;
+        for (int i = 2; isTaken(uniqueName, suffixes); i++) {
+            uniqueName = name + "_" + i;
+        }
+        for (String suffix : suffixes) {
+            sampleNames.add(uniqueName + suffix);
+        }
+
+        Family family = new Family(uniqueName, type);
+        families.add(family);
+
+        return family;
+    }
+
+    private boolean isTaken(String name, String[] suffixes) {
+        for (String suffix : suffixes) {
+            if (sampleNames.contains(name + suffix)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Returns the labels of a route timer, from <code>&lt;method&gt;.&lt;pattern&gt;</code>
+     * or <code>other</code> (the routes over the cap).
+     */
+    static String getRouteLabels(String route) {
+        int index = route.indexOf('.');
+        if (index == -1) {
+            return "route=\"" + escape(route) + "\"";
+        }
+
+        return "method=\"" + escape(route.substring(0, index)) + "\",route=\"" + escape(route.substring(index + 1)) + "\"";
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static String format(double value) {
+        if (Double.isNaN(value)) {
+            return "NaN";
+        } else if (Double.isInfinite(value)) {
+            return (value > 0) ? "+Inf" : "-Inf";
+        } else if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+
+        return Double.toString(value);
+    }
+
+    /**
+     * Returns a valid Prometheus metric name ([a-zA-Z_:][a-zA-Z0-9_:]*).
+     */
+    static String sanitize(String name) {
+        StringBuilder sanitized = new StringBuilder(name.length() + 1);
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            boolean valid = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_' || c == ':'
+                || (c >= '0' && c <= '9' && i > 0);
+            if (!valid && c >= '0' && c <= '9') {
+                // a name cannot start with a digit
+                sanitized.append('_').append(c);
+            } else {
+                sanitized.append(valid ? c : '_');
+            }
+        }
+
+        return sanitized.toString();
+    }
+
+    private static class Family {
+
+        private final String name;
+        private final String type;
+        private final StringBuilder samples = new StringBuilder();
+
+        private Family(String name, String type) {
+            this.name = name;
+            this.type = type;
+        }
+
+        private void addSample(String name, String labels, double value) {
+            samples.append(name);
+            if (labels != null) {
+                samples.append('{').append(labels).append('}');
+            }
+            samples.append(' ').append(format(value)).append('\n');
+        }
+
+    }
+
+}
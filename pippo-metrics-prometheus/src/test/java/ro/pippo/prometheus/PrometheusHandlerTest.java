@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.prometheus;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class PrometheusHandlerTest {
+
+    @Test
+    public void testContent() {
+        MetricRegistry metricRegistry = new MetricRegistry();
+        metricRegistry.meter("dispatcher.requests.200").mark();
+
+        String content = new String(new PrometheusHandler().getContent(metricRegistry), StandardCharsets.UTF_8);
+
+        assertTrue(content.contains("# TYPE dispatcher_requests_200_total counter\n"));
+        assertTrue(content.contains("dispatcher_requests_200_total 1\n"));
+    }
+
+    @Test
+    public void testContentIsCached() {
+        MetricRegistry metricRegistry = new MetricRegistry();
+        PrometheusHandler handler = new PrometheusHandler(60000);
+
+        byte[] content = handler.getContent(metricRegistry);
+        metricRegistry.counter("late").inc();
+
+        assertSame(content, handler.getContent(metricRegistry));
+    }
+
+    @Test
+    public void testStaleContentIsRendered() {
+        MetricRegistry metricRegistry = new MetricRegistry();
+        PrometheusHandler handler = new PrometheusHandler(0);
+
+        byte[] content = handler.getContent(metricRegistry);
+        metricRegistry.counter("late").inc();
+
+        byte[] fresh = handler.getContent(metricRegistry);
+        assertNotSame(content, fresh);
+        assertTrue(new String(fresh, StandardCharsets.UTF_8).contains("late 1\n"));
+    }
+
+}
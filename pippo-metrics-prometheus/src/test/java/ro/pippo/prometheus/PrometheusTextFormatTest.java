@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.prometheus;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PrometheusTextFormatTest {
+
+    @Test
+    public void testRouteTimersAreLabels() throws IOException {
+        MetricRegistry metricRegistry = new MetricRegistry();
+        metricRegistry.timer(MetricRegistry.name("routes", "GET", "/a-b")).update(1, TimeUnit.SECONDS);
+        metricRegistry.timer(MetricRegistry.name("routes", "GET", "/a/b")).update(2, TimeUnit.SECONDS);
+        metricRegistry.timer("routes.other").update(3, TimeUnit.SECONDS);
+
+        String text = write(metricRegistry);
+
+        assertUniqueTypes(text);
+        assertTrue(text.contains("# TYPE routes_seconds summary\n"));
+        assertTrue(text.contains("routes_seconds{method=\"GET\",route=\"/a-b\",quantile=\"0.5\"} 1\n"));
+        assertTrue(text.contains("routes_seconds_count{method=\"GET\",route=\"/a/b\"} 1\n"));
+        assertTrue(text.contains("routes_seconds_sum{method=\"GET\",route=\"/a/b\"} 2\n"));
+        assertTrue(text.contains("routes_seconds_sum{route=\"other\"} 3\n"));
+    }
+
+    @Test
+    public void testSummarySum() throws IOException {
+        MetricRegistry metricRegistry = new MetricRegistry();
+        metricRegistry.histogram("response.size").update(10);
+        metricRegistry.histogram("response.size").update(30);
+
+        String text = write(metricRegistry);
+
+        assertTrue(text.contains("# TYPE response_size summary\n"));
+        assertTrue(text.contains("response_size_sum 40\n"));
+        assertTrue(text.contains("response_size_count 2\n"));
+    }
+
+    @Test
+    public void testCollidingNames() throws IOException {
+        MetricRegistry metricRegistry = new MetricRegistry();
+        metricRegistry.counter("a.b").inc();
+        metricRegistry.counter("a-b").inc(2);
+        metricRegistry.histogram("c");
+        metricRegistry.counter("c_count").inc(3);
+
+        String text = write(metricRegistry);
+
+        assertUniqueTypes(text);
+        // the registry returns the metrics sorted by name
+        assertTrue(text.contains("a_b 2\n"));
+        assertTrue(text.contains("a_b_2 1\n"));
+        assertTrue(text.contains("c_count 3\n"));
+        assertTrue(text.contains("# TYPE c_2 summary\n"));
+        assertTrue(text.contains("c_2_count 0\n"));
+    }
+
+    @Test
+    public void testSanitize() {
+        assertEquals("dispatcher_requests_allRequests", PrometheusTextFormat.sanitize("dispatcher.requests.allRequests"));
+        assertEquals("_1xx", PrometheusTextFormat.sanitize("1xx"));
+        assertEquals("method=\"GET\",route=\"/a/\\\"b\\\"\"", PrometheusTextFormat.getRouteLabels("GET./a/\"b\""));
+    }
+
+    private static String write(MetricRegistry metricRegistry) throws IOException {
+        StringWriter writer = new StringWriter();
+        new PrometheusTextFormat(writer).write(metricRegistry);
+
+        return writer.toString();
+    }
+
+    private static void assertUniqueTypes(String text) {
+        List<String> lines = Arrays.asList(text.split("\n"));
+        Set<String> types = new HashSet<>();
+        for (String line : lines) {
+            if (line.startsWith("# TYPE ")) {
+                assertTrue("Duplicate " + line, types.add(line.split(" ")[2]));
+            }
+        }
+    }
+
+}
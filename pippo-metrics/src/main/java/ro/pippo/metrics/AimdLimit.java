@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A concurrency limit adjusted by additive increase / multiplicative decrease (AIMD).
+ * <p/>
+ * A request slower than the latency threshold makes the limit shrink by the backoff ratio,
+ * at most once per latency threshold: the slow responses of a burst come from requests that overlapped,
+ * so they count as a single congestion signal instead of driving the limit down to the minimum at once.
+ * A faster request grows the limit by one, but only if the limit was actually in use
+ * (at least half of it in flight), so an idle service doesn't inflate its limit.
+ */
+public class AimdLimit {
+
+    public static final double DEFAULT_BACKOFF_RATIO = 0.9;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThreshold;
+    private final double backoffRatio;
+
+    private final AtomicInteger limit;
+    // the time (System.nanoTime) from which the limit can be decreased again
+    private final AtomicLong nextDecrease;
+
+    /**
+     * @param initialLimit
+     * @param minLimit
+     * @param maxLimit
+     * @param latencyThreshold the latency in milliseconds over which the limit is decreased
+     * @param backoffRatio the factor applied to the limit on decrease, between 0.5 and 1
+     */
+    public AimdLimit(int initialLimit, int minLimit, int maxLimit, long latencyThreshold, double backoffRatio) {
+        this.minLimit = Math.max(minLimit, 1);
+        this.maxLimit = Math.max(maxLimit, this.minLimit);
+        this.latencyThreshold = TimeUnit.MILLISECONDS.toNanos(latencyThreshold);
+        this.backoffRatio = Math.min(Math.max(backoffRatio, 0.5), 1);
+        this.limit = new AtomicInteger(Math.min(Math.max(initialLimit, this.minLimit), this.maxLimit));
+        this.nextDecrease = new AtomicLong(System.nanoTime());
+    }
+
+    public int getLimit() {
+        return limit.get();
+    }
+
+    /**
+     * Adjusts the limit with the outcome of a request.
+     *
+     * @param latency the duration of the request in nanoseconds
+     * @param inFlight the number of requests in flight when the request started (including it)
+     */
+    public void onSample(long latency, int inFlight) {
+        onSample(latency, inFlight, System.nanoTime());
+    }
+
+    void onSample(long latency, int inFlight, long now) {
+        if (latency > latencyThreshold) {
+            long decreaseAt = nextDecrease.get();
+            if (now - decreaseAt >= 0 && nextDecrease.compareAndSet(decreaseAt, now + latencyThreshold)) {
+                limit.updateAndGet(current -> Math.max(minLimit, (int) (current * backoffRatio)));
+            }
+        } else {
+            limit.updateAndGet(current -> (inFlight * 2 >= current) ? Math.min(maxLimit, current + 1) : current);
+        }
+    }
+
+}
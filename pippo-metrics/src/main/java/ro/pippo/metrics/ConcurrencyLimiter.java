@@ -0,0 +1,238 @@
+/*
+ * Copyright (C) 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.metrics;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ro.pippo.core.PippoSettings;
+import ro.pippo.core.Request;
+import ro.pippo.core.Response;
+import ro.pippo.core.route.RoutePostDispatchListener;
+import ro.pippo.core.route.RoutePreDispatchListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sheds load with a <code>503 Service Unavailable</code> when the number of requests in flight
+ * reaches an adaptive limit ({@link AimdLimit}), before the thread pool of the web server saturates.
+ * <p/>
+ * The requests are split in groups by path prefix and each group has its own limit, so a flood of
+ * slow requests on one part of the application doesn't starve the others.
+ * The requests that don't match a group are not limited, unless the <code>default</code> group
+ * (that needs no path) is configured.
+ * <p/>
+ * For each group the limiter exports the <code>limiter.&lt;group&gt;.limit</code> and
+ * <code>limiter.&lt;group&gt;.inFlight</code> gauges and the <code>limiter.&lt;group&gt;.rejected</code> meter.
+ * <pre>
+ * metrics.limiter.enabled = true
+ * metrics.limiter.latencyThreshold = 500ms
+ * metrics.limiter.groups = api, default
+ * metrics.limiter.api.path = /api
+ * metrics.limiter.api.maxLimit = 50
+ * metrics.limiter.default.maxLimit = 100
+ * </pre>
+ */
+public class ConcurrencyLimiter implements RoutePreDispatchListener, RoutePostDispatchListener {
+
+    private static final Logger log = LoggerFactory.getLogger(ConcurrencyLimiter.class);
+
+    public static final String DEFAULT_GROUP = "default";
+
+    private static final String PERMIT_ATTRIBUTE = ConcurrencyLimiter.class.getName() + ".permit";
+
+    private final MetricRegistry metricRegistry;
+    private final List<Group> groups;
+    private Group defaultGroup;
+
+    public ConcurrencyLimiter(MetricRegistry metricRegistry) {
+        this.metricRegistry = metricRegistry;
+        this.groups = new ArrayList<>();
+    }
+
+    /**
+     * Creates a limiter configured by the <code>metrics.limiter.*</code> settings.
+     *
+     * @param pippoSettings
+     * @param metricRegistry
+     * @return the limiter
+     */
+    public static ConcurrencyLimiter create(PippoSettings pippoSettings, MetricRegistry metricRegistry) {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(metricRegistry);
+        for (String group : pippoSettings.getStrings("metrics.limiter.groups")) {
+            if (DEFAULT_GROUP.equals(group)) {
+                limiter.setDefaultLimit(createLimit(pippoSettings, group));
+            } else {
+                String path = pippoSettings.getRequiredString("metrics.limiter." + group + ".path");
+                limiter.addGroup(group, path, createLimit(pippoSettings, group));
+            }
+        }
+
+        return limiter;
+    }
+
+    private static AimdLimit createLimit(PippoSettings pippoSettings, String group) {
+        String prefix = "metrics.limiter.";
+        String groupPrefix = prefix + group + ".";
+
+        int initialLimit = pippoSettings.getInteger(prefix + "initialLimit", 20);
+        int minLimit = pippoSettings.getInteger(prefix + "minLimit", 1);
+        int maxLimit = pippoSettings.getInteger(prefix + "maxLimit", 200);
+        long latencyThreshold = pippoSettings.getDurationInMilliseconds(prefix + "latencyThreshold", 1000);
+        double backoffRatio = pippoSettings.getDouble(prefix + "backoffRatio", AimdLimit.DEFAULT_BACKOFF_RATIO);
+
+        return new AimdLimit(
+            pippoSettings.getInteger(groupPrefix + "initialLimit", initialLimit),
+            pippoSettings.getInteger(groupPrefix + "minLimit", minLimit),
+            pippoSettings.getInteger(groupPrefix + "maxLimit", maxLimit),
+            pippoSettings.getDurationInMilliseconds(groupPrefix + "latencyThreshold", latencyThreshold),
+            pippoSettings.getDouble(groupPrefix + "backoffRatio", backoffRatio));
+    }
+
+    /**
+     * Adds a group of requests. The groups are matched in the order they are added.
+     *
+     * @param name
+     * @param pathPrefix the prefix of the request paths of the group
+     * @param limit
+     */
+    public void addGroup(String name, String pathPrefix, AimdLimit limit) {
+        groups.add(new Group(name, pathPrefix, limit));
+        log.debug("Limiting the concurrency of '{}' requests ({}*) to {}", name, pathPrefix, limit.getLimit());
+    }
+
+    /**
+     * Sets the limit of the requests that don't match a group.
+     *
+     * @param limit
+     */
+    public void setDefaultLimit(AimdLimit limit) {
+        defaultGroup = new Group(DEFAULT_GROUP, "", limit);
+    }
+
+    @Override
+    public void onPreDispatch(Request request, Response response) {
+        Permit permit = acquire(request.getPath());
+        if (permit == null) {
+            log.debug("Rejected {} '{}', the requests of its group reached the limit", request.getMethod(),
+                request.getPath());
+
+            // committing the response skips the routes
+            response.serviceUnavailable().header("Retry-After", "1").text().send("Service Unavailable");
+            return;
+        }
+
+        if (permit != Permit.UNLIMITED) {
+            request.getHttpServletRequest().setAttribute(PERMIT_ATTRIBUTE, permit);
+        }
+    }
+
+    @Override
+    public void onPostDispatch(Request request, Response response) {
+        Permit permit = (Permit) request.getHttpServletRequest().getAttribute(PERMIT_ATTRIBUTE);
+        if (permit != null) {
+            request.getHttpServletRequest().removeAttribute(PERMIT_ATTRIBUTE);
+            release(permit);
+        }
+    }
+
+    /**
+     * Returns a permit for a request path or null if the group of the path reached its limit.
+     */
+    Permit acquire(String path) {
+        Group group = getGroup(path);
+        if (group == null) {
+            return Permit.UNLIMITED;
+        }
+
+        int inFlight = group.inFlight.incrementAndGet();
+        if (inFlight > group.limit.getLimit()) {
+            group.inFlight.decrementAndGet();
+            group.rejected.mark();
+
+            return null;
+        }
+
+        return new Permit(group, inFlight);
+    }
+
+    void release(Permit permit) {
+        if (permit.group != null) {
+            permit.group.inFlight.decrementAndGet();
+            permit.group.limit.onSample(System.nanoTime() - permit.start, permit.inFlight);
+        }
+    }
+
+    private Group getGroup(String path) {
+        for (Group group : groups) {
+            if (path.startsWith(group.pathPrefix)) {
+                return group;
+            }
+        }
+
+        return defaultGroup;
+    }
+
+    private class Group {
+
+        private final String name;
+        private final String pathPrefix;
+        private final AimdLimit limit;
+        private final AtomicInteger inFlight;
+        private final Meter rejected;
+
+        private Group(String name, String pathPrefix, AimdLimit limit) {
+            this.name = name;
+            this.pathPrefix = pathPrefix;
+            this.limit = limit;
+            this.inFlight = new AtomicInteger();
+
+            String prefix = MetricRegistry.name("limiter", name);
+            rejected = metricRegistry.meter(MetricRegistry.name(prefix, "rejected"));
+            register(MetricRegistry.name(prefix, "limit"), limit::getLimit);
+            register(MetricRegistry.name(prefix, "inFlight"), inFlight::get);
+        }
+
+        private void register(String name, Gauge<Integer> gauge) {
+            // the gauge of a previous limiter (e.g. after a reload) is replaced
+            metricRegistry.remove(name);
+            metricRegistry.register(name, gauge);
+        }
+
+    }
+
+    static class Permit {
+
+        // the permit of the requests that don't belong to a group
+        private static final Permit UNLIMITED = new Permit(null, 0);
+
+        private final Group group;
+        private final int inFlight;
+        private final long start;
+
+        private Permit(Group group, int inFlight) {
+            this.group = group;
+            this.inFlight = inFlight;
+            start = System.nanoTime();
+        }
+
+    }
+
+}
@@ -29,17 +29,18 @@ public class CountedRouteHandler implements RouteHandler {
     final boolean isActive;
     final RouteHandler routeHandler;
     final MetricRegistry metricRegistry;
+    final Counter counter;
 
     public CountedRouteHandler(String counterName, boolean isActive, RouteHandler routeHandler, MetricRegistry metricRegistry) {
         this.counterName = counterName;
         this.isActive = isActive;
         this.routeHandler = routeHandler;
         this.metricRegistry = metricRegistry;
+        this.counter = metricRegistry.counter(counterName);
     }
 
     @Override
     public void handle(RouteContext routeContext) {
-        Counter counter = metricRegistry.counter(counterName);
         counter.inc();
 
         try {
@@ -0,0 +1,288 @@
+/*
+ * Copyright (C) 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.metrics;
+
+import com.codahale.metrics.Reservoir;
+import com.codahale.metrics.Snapshot;
+
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free {@link Reservoir} that counts the values in HDR-style log-linear buckets
+ * (a relative precision of about 1.5%), so recording a value is a single atomic increment
+ * and the memory doesn't depend on the number of recorded values.
+ * <p/>
+ * The reservoir keeps the values of a sliding time window, split in a few slices;
+ * the oldest slice is cleared when the window moves.
+ * The values are expected to be positive and the values above {@link #getHighestTrackableValue()}
+ * are counted in the last bucket.
+ */
+public class HdrReservoir implements Reservoir {
+
+    public static final long DEFAULT_WINDOW_SECONDS = 60;
+
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKET_HALF_COUNT = 1 << (SUB_BUCKET_BITS - 1);
+
+    private static final int SLICES = 6;
+
+    private final long highestTrackableValue;
+    private final int bucketCount;
+    private final long sliceDuration;
+
+    private final AtomicLongArray[] slices;
+    private final AtomicLongArray sliceEpochs;
+
+    /**
+     * Creates a reservoir for durations in nanoseconds, up to one hour, over a window of one minute.
+     */
+    public HdrReservoir() {
+        this(TimeUnit.HOURS.toNanos(1), DEFAULT_WINDOW_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * @param highestTrackableValue
+     * @param window the duration of the sliding window
+     * @param windowUnit
+     */
+    public HdrReservoir(long highestTrackableValue, long window, TimeUnit windowUnit) {
+        this.highestTrackableValue = highestTrackableValue;
+        this.bucketCount = getBucketIndex(highestTrackableValue) + 1;
+        this.sliceDuration = Math.max(1, windowUnit.toNanos(window) / SLICES);
+
+        slices = new AtomicLongArray[SLICES];
+        for (int i = 0; i < SLICES; i++) {
+            slices[i] = new AtomicLongArray(bucketCount);
+        }
+        sliceEpochs = new AtomicLongArray(SLICES);
+    }
+
+    public long getHighestTrackableValue() {
+        return highestTrackableValue;
+    }
+
+    @Override
+    public int size() {
+        long count = 0;
+        long epoch = currentEpoch();
+        for (int i = 0; i < SLICES; i++) {
+            if (isLive(i, epoch)) {
+                AtomicLongArray counts = slices[i];
+                for (int j = 0; j < bucketCount; j++) {
+                    count += counts.get(j);
+                }
+            }
+        }
+
+        return (int) Math.min(count, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public void update(long value) {
+        int index = getBucketIndex(Math.min(Math.max(value, 0), highestTrackableValue));
+        getSlice(currentEpoch()).incrementAndGet(index);
+    }
+
+    @Override
+    public Snapshot getSnapshot() {
+        long[] counts = new long[bucketCount];
+        long epoch = currentEpoch();
+        for (int i = 0; i < SLICES; i++) {
+            if (isLive(i, epoch)) {
+                AtomicLongArray slice = slices[i];
+                for (int j = 0; j < bucketCount; j++) {
+                    counts[j] += slice.get(j);
+                }
+            }
+        }
+
+        return new HdrSnapshot(counts);
+    }
+
+    private long currentEpoch() {
+        // offset by SLICES so that the zero epoch of the unused slices is never live
+        return System.nanoTime() / sliceDuration + SLICES;
+    }
+
+    private boolean isLive(int slice, long epoch) {
+        return epoch - sliceEpochs.get(slice) < SLICES;
+    }
+
+    private AtomicLongArray getSlice(long epoch) {
+        int index = (int) (epoch % SLICES);
+        AtomicLongArray slice = slices[index];
+        long sliceEpoch = sliceEpochs.get(index);
+        if (sliceEpoch != epoch && sliceEpochs.compareAndSet(index, sliceEpoch, epoch)) {
+            // the slice is reused for a new epoch, the few values recorded while it's cleared are lost
+            for (int i = 0; i < bucketCount; i++) {
+                slice.set(i, 0);
+            }
+        }
+
+        return slice;
+    }
+
+    /**
+     * The values below 2^SUB_BUCKET_BITS have their own bucket; above, each power of two range
+     * is split in {@link #SUB_BUCKET_HALF_COUNT} buckets.
+     */
+    static int getBucketIndex(long value) {
+        int magnitude = 63 - Long.numberOfLeadingZeros(value | 1);
+        int shift = Math.max(magnitude - SUB_BUCKET_BITS + 1, 0);
+
+        return shift * SUB_BUCKET_HALF_COUNT + (int) (value >>> shift);
+    }
+
+    /**
+     * Returns the value in the middle of a bucket.
+     */
+    static long getBucketValue(int index) {
+        int shift = Math.max(index / SUB_BUCKET_HALF_COUNT - 1, 0);
+        long lowest = (long) (index - shift * SUB_BUCKET_HALF_COUNT) << shift;
+
+        return lowest + ((1L << shift) >> 1);
+    }
+
+    static class HdrSnapshot extends Snapshot {
+
+        private final long[] counts;
+        private final long count;
+
+        HdrSnapshot(long[] counts) {
+            this.counts = counts;
+
+            long count = 0;
+            for (long bucketCount : counts) {
+                count += bucketCount;
+            }
+            this.count = count;
+        }
+
+        @Override
+        public double getValue(double quantile) {
+            if (quantile < 0.0 || quantile > 1.0 || Double.isNaN(quantile)) {
+                throw new IllegalArgumentException(quantile + " is not in [0..1]");
+            }
+
+            if (count == 0) {
+                return 0.0;
+            }
+
+            long rank = Math.max(1, (long) Math.ceil(quantile * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return getBucketValue(i);
+                }
+            }
+
+            return getMax();
+        }
+
+        /**
+         * Returns the bucket values, each repeated as many times as it was recorded.
+         */
+        @Override
+        public long[] getValues() {
+            long[] values = new long[size()];
+            int k = 0;
+            for (int i = 0; i < counts.length && k < values.length; i++) {
+                long value = getBucketValue(i);
+                for (long j = 0; j < counts[i] && k < values.length; j++) {
+                    values[k++] = value;
+                }
+            }
+
+            return values;
+        }
+
+        @Override
+        public int size() {
+            return (int) Math.min(count, Integer.MAX_VALUE);
+        }
+
+        @Override
+        public long getMax() {
+            for (int i = counts.length - 1; i >= 0; i--) {
+                if (counts[i] > 0) {
+                    return getBucketValue(i);
+                }
+            }
+
+            return 0;
+        }
+
+        @Override
+        public double getMean() {
+            if (count == 0) {
+                return 0.0;
+            }
+
+            double sum = 0;
+            for (int i = 0; i < counts.length; i++) {
+                sum += (double) counts[i] * getBucketValue(i);
+            }
+
+            return sum / count;
+        }
+
+        @Override
+        public long getMin() {
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] > 0) {
+                    return getBucketValue(i);
+                }
+            }
+
+            return 0;
+        }
+
+        @Override
+        public double getStdDev() {
+            if (count <= 1) {
+                return 0.0;
+            }
+
+            double mean = getMean();
+            double variance = 0;
+            for (int i = 0; i < counts.length; i++) {
+                double diff = getBucketValue(i) - mean;
+                variance += counts[i] * diff * diff;
+            }
+
+            return Math.sqrt(variance / (count - 1));
+        }
+
+        @Override
+        public void dump(OutputStream output) {
+            try (PrintWriter out = new PrintWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8))) {
+                for (int i = 0; i < counts.length; i++) {
+                    if (counts[i] > 0) {
+                        out.printf("%d\t%d%n", getBucketValue(i), counts[i]);
+                    }
+                }
+            }
+        }
+
+    }
+
+}
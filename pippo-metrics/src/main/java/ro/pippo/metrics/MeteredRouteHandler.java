@@ -28,23 +28,19 @@ public class MeteredRouteHandler implements RouteHandler {
     final String meterName;
     final RouteHandler routeHandler;
     final MetricRegistry metricRegistry;
+    final Meter meter;
 
     public MeteredRouteHandler(String meterName, RouteHandler routeHandler, MetricRegistry metricRegistry) {
         this.meterName = meterName;
         this.routeHandler = routeHandler;
         this.metricRegistry = metricRegistry;
+        this.meter = metricRegistry.meter(meterName);
     }
 
     @Override
     public void handle(RouteContext routeContext) {
-        Meter meter = metricRegistry.meter(meterName);
         meter.mark();
-
-        try {
-            routeHandler.handle(routeContext);
-        } finally {
-
-        }
+        routeHandler.handle(routeContext);
     }
 
 }
@@ -16,6 +16,7 @@
 package ro.pippo.metrics;
 
 import com.codahale.metrics.Counter;
+import com.codahale.metrics.Histogram;
 import com.codahale.metrics.Meter;
 import com.codahale.metrics.MetricRegistry;
 import ro.pippo.core.HttpConstants;
@@ -26,11 +27,37 @@ import ro.pippo.core.route.RoutePreDispatchListener;
 
 /**
  * MetricsDispatchListener collects general Request & Response metrics.
+ * <p/>
+ * Every status code is metered (<code>dispatcher.requests.&lt;code&gt;</code>, e.g. <code>dispatcher.requests.404</code>),
+ * together with its class (1xx-5xx), the content type family and the size of the response.
+ * The meters are created upfront and kept in arrays, so recording a response
+ * doesn't look up the metric registry nor builds metric names.
  *
  * @author James Moger
  */
 public class MetricsDispatchListener implements RoutePreDispatchListener, RoutePostDispatchListener {
 
+    private static final int MIN_STATUS_CODE = 100;
+    private static final int MAX_STATUS_CODE = 599;
+
+    /**
+     * The content type families, indexed by the values returned by {@link #getContentTypeIndex(String)}.
+     */
+    private static final String[] CONTENT_TYPES = {"none", "html", "json", "xml", "text", "javascript", "css", "image", "binary", "other"};
+
+    private static final int NONE = 0;
+    private static final int HTML = 1;
+    private static final int JSON = 2;
+    private static final int XML = 3;
+    private static final int TEXT = 4;
+    private static final int JAVASCRIPT = 5;
+    private static final int CSS = 6;
+    private static final int IMAGE = 7;
+    private static final int BINARY = 8;
+    private static final int OTHER = 9;
+
+    protected final MetricRegistry metricRegistry;
+
     protected Meter allRequestsMeter;
 
     protected Counter activeRequests;
@@ -47,18 +74,57 @@ public class MetricsDispatchListener implements RoutePreDispatchListener, RouteP
 
     protected Meter internalServerErrors;
 
+    /**
+     * The meter of each status code, indexed by the status code.
+     */
+    protected final Meter[] statusCodeMeters;
+
+    /**
+     * The meters of the status code classes, indexed by the first digit of the status code.
+     */
+    protected final Meter[] statusClassMeters;
+
+    protected final Meter invalidStatusCodes;
+
+    protected final Meter[] contentTypeMeters;
+
+    protected final Histogram responseSize;
+
+    protected final Meter responseBytes;
+
     public MetricsDispatchListener(MetricRegistry metricRegistry) {
+        this.metricRegistry = metricRegistry;
+
         // general request metrics
         allRequestsMeter = metricRegistry.meter("dispatcher.requests.allRequests");
         activeRequests = metricRegistry.counter("dispatcher.requests.activeRequests");
 
         // response code metrics
-        badRequests = metricRegistry.meter("dispatcher.requests.400BadRequests");
-        unauthorizedRequests = metricRegistry.meter("dispatcher.requests.401Unauthorized");
-        forbiddenRequests = metricRegistry.meter("dispatcher.requests.403Forbidden");
-        routesNotFound = metricRegistry.meter("dispatcher.requests.404NotFound");
-        conflictRequests = metricRegistry.meter("dispatcher.requests.409Conflict");
-        internalServerErrors = metricRegistry.meter("dispatcher.requests.500InternalError");
+        statusCodeMeters = new Meter[MAX_STATUS_CODE + 1];
+        for (int status = MIN_STATUS_CODE; status <= MAX_STATUS_CODE; status++) {
+            statusCodeMeters[status] = metricRegistry.meter("dispatcher.requests." + status);
+        }
+
+        badRequests = statusCodeMeters[HttpConstants.StatusCode.BAD_REQUEST];
+        unauthorizedRequests = statusCodeMeters[HttpConstants.StatusCode.UNAUTHORIZED];
+        forbiddenRequests = statusCodeMeters[HttpConstants.StatusCode.FORBIDDEN];
+        routesNotFound = statusCodeMeters[HttpConstants.StatusCode.NOT_FOUND];
+        conflictRequests = statusCodeMeters[HttpConstants.StatusCode.CONFLICT];
+        internalServerErrors = statusCodeMeters[HttpConstants.StatusCode.INTERNAL_ERROR];
+
+        statusClassMeters = new Meter[6];
+        for (int i = 1; i < statusClassMeters.length; i++) {
+            statusClassMeters[i] = metricRegistry.meter("dispatcher.requests." + i + "xx");
+        }
+        invalidStatusCodes = metricRegistry.meter("dispatcher.requests.invalidStatusCode");
+
+        // response metrics
+        contentTypeMeters = new Meter[CONTENT_TYPES.length];
+        for (int i = 0; i < CONTENT_TYPES.length; i++) {
+            contentTypeMeters[i] = metricRegistry.meter("dispatcher.responses.contentType." + CONTENT_TYPES[i]);
+        }
+        responseSize = getHistogram("dispatcher.responses.size");
+        responseBytes = metricRegistry.meter("dispatcher.responses.bytes");
     }
 
     @Override
@@ -69,33 +135,95 @@ public class MetricsDispatchListener implements RoutePreDispatchListener, RouteP
     @Override
     public void onPostDispatch(Request request, Response response) {
         updateStatusCodeMetrics(response);
+        updateResponseMetrics(response);
         activeRequests.dec();
     }
 
     protected void updateStatusCodeMetrics(Response response) {
         allRequestsMeter.mark();
-        switch (response.getStatus()) {
-            case HttpConstants.StatusCode.BAD_REQUEST:
-                badRequests.mark();
-                break;
-            case HttpConstants.StatusCode.UNAUTHORIZED:
-                unauthorizedRequests.mark();
-                break;
-            case HttpConstants.StatusCode.FORBIDDEN:
-                forbiddenRequests.mark();
-                break;
-            case HttpConstants.StatusCode.NOT_FOUND:
-                routesNotFound.mark();
-                break;
-            case HttpConstants.StatusCode.CONFLICT:
-                conflictRequests.mark();
-                break;
-            case HttpConstants.StatusCode.INTERNAL_ERROR:
-                internalServerErrors.mark();
-                break;
-            default:
-                break;
+
+        int status = response.getStatus();
+        if (status < MIN_STATUS_CODE || status > MAX_STATUS_CODE) {
+            invalidStatusCodes.mark();
+            return;
+        }
+
+        statusClassMeters[status / 100].mark();
+        statusCodeMeters[status].mark();
+    }
+
+    protected void updateResponseMetrics(Response response) {
+        contentTypeMeters[getContentTypeIndex(response.getContentType())].mark();
+
+        long size = response.getContentSize();
+        if (size >= 0) {
+            responseSize.update(size);
+            responseBytes.mark(size);
+        }
+    }
+
+    /**
+     * Returns the content type family, without allocations.
+     */
+    private static int getContentTypeIndex(String contentType) {
+        if (contentType == null || contentType.isEmpty()) {
+            return NONE;
+        }
+
+        if (startsWith(contentType, "text/")) {
+            if (startsWith(contentType, "text/html") || startsWith(contentType, "text/xhtml")) {
+                return HTML;
+            } else if (startsWith(contentType, "text/xml")) {
+                return XML;
+            } else if (startsWith(contentType, "text/css")) {
+                return CSS;
+            } else if (startsWith(contentType, "text/javascript")) {
+                return JAVASCRIPT;
+            }
+
+            return TEXT;
+        } else if (startsWith(contentType, "application/")) {
+            if (startsWith(contentType, "application/json") || contains(contentType, "+json")) {
+                return JSON;
+            } else if (startsWith(contentType, "application/xml") || startsWith(contentType, "application/xhtml")
+                || contains(contentType, "+xml")) {
+                return XML;
+            } else if (startsWith(contentType, "application/javascript")) {
+                return JAVASCRIPT;
+            } else if (startsWith(contentType, "application/octet-stream")) {
+                return BINARY;
+            }
+        } else if (startsWith(contentType, "image/")) {
+            return IMAGE;
+        }
+
+        return OTHER;
+    }
+
+    private static boolean startsWith(String contentType, String prefix) {
+        return contentType.regionMatches(true, 0, prefix, 0, prefix.length());
+    }
+
+    private static boolean contains(String contentType, String part) {
+        // only the media type, the parameters (e.g. charset) follow the ';'
+        int end = contentType.indexOf(';');
+        if (end == -1) {
+            end = contentType.length();
+        }
+
+        for (int i = end - part.length(); i >= 0; i--) {
+            if (contentType.regionMatches(true, i, part, 0, part.length())) {
+                return true;
+            }
         }
+
+        return false;
+    }
+
+    private Histogram getHistogram(String name) {
+        Histogram histogram = metricRegistry.getHistograms().get(name);
+
+        return (histogram != null) ? histogram : metricRegistry.register(name, new Histogram(new HdrReservoir()));
     }
 
 }
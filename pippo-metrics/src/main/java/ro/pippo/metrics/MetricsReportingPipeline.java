@@ -0,0 +1,248 @@
+/*
+ * Copyright (C) 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.metrics;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Takes one {@link MetricsSnapshot} of the registry per period and fans it out to all the {@link MetricsSink}s,
+ * instead of letting each reporter walk the registry on its own schedule.
+ * <p/>
+ * The sinks are called on a bounded pool of threads and a slow sink doesn't delay the others.
+ * Each sink has a bounded queue of snapshots; the snapshots that pile up while a sink is busy are
+ * reported in one batch and, when the queue is full, the oldest snapshot is dropped.
+ * The snapshots of a batch that a sink doesn't send (see {@link MetricsSink#report(List)}) are counted as dropped.
+ * The built-in reporters don't batch: a {@link ScheduledReporterSink} reports only the newest snapshot of a batch.
+ * <p/>
+ * All the sinks report at the period of the pipeline (<code>metrics.reporting.period</code>),
+ * the period of a reporter (e.g. <code>metrics.graphite.period</code>) is ignored.
+ * For each sink the pipeline keeps the <code>metrics.reporting.&lt;sink&gt;.reported</code>,
+ * <code>.dropped</code> and <code>.failed</code> counters.
+ */
+public class MetricsReportingPipeline implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(MetricsReportingPipeline.class);
+
+    public static final int DEFAULT_THREADS = 2;
+
+    public static final int DEFAULT_QUEUE_CAPACITY = 4;
+
+    private final MetricRegistry metricRegistry;
+    private final int threads;
+    private final int queueCapacity;
+    private final List<SinkWorker> workers;
+
+    private ScheduledExecutorService scheduler;
+    private ThreadPoolExecutor executor;
+
+    public MetricsReportingPipeline(MetricRegistry metricRegistry) {
+        this(metricRegistry, DEFAULT_THREADS, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    /**
+     * @param metricRegistry
+     * @param threads the maximum number of sinks reporting at the same time
+     * @param queueCapacity the maximum number of snapshots waiting for a sink
+     */
+    public MetricsReportingPipeline(MetricRegistry metricRegistry, int threads, int queueCapacity) {
+        this.metricRegistry = metricRegistry;
+        this.threads = Math.max(threads, 1);
+        this.queueCapacity = Math.max(queueCapacity, 1);
+        this.workers = new ArrayList<>();
+    }
+
+    /**
+     * Adds a sink. The sinks must be added before {@link #start(long, TimeUnit)}.
+     *
+     * @param sink
+     */
+    public void addSink(MetricsSink sink) {
+        if (scheduler != null) {
+            throw new IllegalStateException("The pipeline is already started");
+        }
+
+        workers.add(new SinkWorker(sink));
+        log.debug("Added '{}' metrics sink", sink.getName());
+    }
+
+    public boolean hasSinks() {
+        return !workers.isEmpty();
+    }
+
+    public void start(long period, TimeUnit unit) {
+        if (workers.isEmpty()) {
+            log.debug("No metrics sinks, the reporting pipeline is not started");
+            return;
+        }
+
+        // a sink has at most one pending task, so the queue of the executor never overflows
+        int poolSize = Math.min(threads, workers.size());
+        executor = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(workers.size()), new NamedThreadFactory("pippo-metrics-sink"));
+        executor.allowCoreThreadTimeOut(true);
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("pippo-metrics-reporting"));
+        scheduler.scheduleAtFixedRate(this::report, period, period, unit);
+
+        log.debug("Started the metrics reporting pipeline with {} sinks, reporting every {} {}", workers.size(),
+            period, unit.toString().toLowerCase());
+    }
+
+    /**
+     * Takes a snapshot and hands it to all sinks. It's called periodically but it can be also called directly.
+     */
+    public void report() {
+        MetricsSnapshot snapshot;
+        try {
+            snapshot = MetricsSnapshot.take(metricRegistry);
+        } catch (Exception e) {
+            // an exception would cancel the schedule
+            log.error("Failed to take a snapshot of the metrics", e);
+            return;
+        }
+
+        for (SinkWorker worker : workers) {
+            worker.offer(snapshot);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+            executor.shutdown();
+            try {
+                if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                    executor.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                executor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+
+            log.debug("Stopped the metrics reporting pipeline");
+        }
+    }
+
+    private class SinkWorker implements Runnable {
+
+        private final MetricsSink sink;
+        private final BlockingQueue<MetricsSnapshot> queue;
+        private final AtomicBoolean scheduled;
+        private final Counter reported;
+        private final Counter dropped;
+        private final Counter failed;
+
+        private SinkWorker(MetricsSink sink) {
+            this.sink = sink;
+            queue = new ArrayBlockingQueue<>(queueCapacity);
+            scheduled = new AtomicBoolean();
+
+            String prefix = MetricRegistry.name("metrics.reporting", sink.getName());
+            reported = metricRegistry.counter(MetricRegistry.name(prefix, "reported"));
+            dropped = metricRegistry.counter(MetricRegistry.name(prefix, "dropped"));
+            failed = metricRegistry.counter(MetricRegistry.name(prefix, "failed"));
+        }
+
+        private void offer(MetricsSnapshot snapshot) {
+            while (!queue.offer(snapshot)) {
+                // the sink is behind, drop the oldest snapshot
+                if (queue.poll() != null) {
+                    dropped.inc();
+                    log.debug("Dropped a metrics snapshot for the '{}' sink", sink.getName());
+                }
+            }
+
+            schedule();
+        }
+
+        private void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                try {
+                    executor.execute(this);
+                } catch (RejectedExecutionException e) {
+                    // the pipeline is stopping
+                    scheduled.set(false);
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                List<MetricsSnapshot> batch = new ArrayList<>(queueCapacity);
+                queue.drainTo(batch);
+                if (!batch.isEmpty()) {
+                    try {
+                        int sent = sink.report(batch);
+                        reported.inc(sent);
+                        if (sent < batch.size()) {
+                            dropped.inc(batch.size() - sent);
+                        }
+                    } catch (Exception e) {
+                        failed.inc(batch.size());
+                        log.error("Failed to report the metrics to the '{}' sink", sink.getName(), e);
+                    }
+                }
+            } finally {
+                scheduled.set(false);
+            }
+
+            // a snapshot may have arrived after the drain
+            if (!queue.isEmpty()) {
+                schedule();
+            }
+        }
+
+    }
+
+    private static class NamedThreadFactory implements ThreadFactory {
+
+        private final String name;
+        private final AtomicInteger count = new AtomicInteger();
+
+        private NamedThreadFactory(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+
+            return thread;
+        }
+
+    }
+
+}
@@ -16,86 +16,73 @@
 package ro.pippo.metrics;
 
 import com.codahale.metrics.MetricRegistry;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 import ro.pippo.core.Application;
 import ro.pippo.core.Request;
 import ro.pippo.core.Response;
 import ro.pippo.core.route.DefaultRouteContext;
-import ro.pippo.core.route.RouteContext;
 import ro.pippo.core.route.Route;
-import ro.pippo.core.route.RouteHandler;
 import ro.pippo.core.route.RouteMatch;
-import ro.pippo.core.util.LangUtils;
 
-import java.lang.reflect.Method;
 import java.util.List;
 
 /**
+ * A route context that uses the route handlers decorated by {@link MetricsRouteDecorator}
+ * and, if route timers are used, times the request against the last route that handled it.
+ *
  * @author James Moger
  */
 public class MetricsRouteContext extends DefaultRouteContext {
 
-    private static final Logger log = LoggerFactory.getLogger(MetricsRouteContext.class);
+    private final MetricsRouteDecorator routeDecorator;
+    private final RouteTimers routeTimers;
+    private final long startTime;
 
-    private final MetricRegistry metricRegistry;
+    private Route lastRoute;
 
     public MetricsRouteContext(MetricRegistry metricRegistry, Application application, Request request,
                                Response response, List<RouteMatch> routeMatches) {
+        this(new MetricsRouteDecorator(metricRegistry), null, application, request, response, routeMatches);
+    }
+
+    /**
+     * @param routeDecorator
+     * @param routeTimers the route timers or null
+     * @param application
+     * @param request
+     * @param response
+     * @param routeMatches
+     */
+    public MetricsRouteContext(MetricsRouteDecorator routeDecorator, RouteTimers routeTimers, Application application,
+                               Request request, Response response, List<RouteMatch> routeMatches) {
         super(application, request, response, routeMatches);
 
-        this.metricRegistry = metricRegistry;
+        this.routeDecorator = routeDecorator;
+        this.routeTimers = routeTimers;
+        this.startTime = (routeTimers != null) ? System.nanoTime() : 0;
+    }
+
+    public MetricRegistry getMetricRegistry() {
+        return routeDecorator.getMetricRegistry();
     }
 
     @Override
     protected void handleRoute(Route route) {
-        RouteHandler handler = route.getRouteHandler();
-
-        try {
-            // TODO resolve
-            /*
-            Method method;
-            if (handler instanceof ControllerHandler) {
-                ControllerHandler controllerHandler = (ControllerHandler) handler;
-                method = controllerHandler.getMethod();
-            } else {
-                method = route.getRouteHandler().getClass().getMethod("handle", RouteContext.class);
-            }
-            */
-            Method method = route.getRouteHandler().getClass().getMethod("handle", RouteContext.class);
+        if (!route.isRunAsFinally()) {
+            lastRoute = route;
+        }
 
-            String metricName = MetricRegistry.name(method.getDeclaringClass(), method.getName());
+        routeDecorator.decorate(route).handle(this);
+    }
 
-            if (method.isAnnotationPresent(Metered.class)) {
-                log.debug("Found '{}' annotation on method '{}'", Metered.class.getSimpleName(), LangUtils.toString(method));
-                // route handler is Metered
-                Metered metered = method.getAnnotation(Metered.class);
-                if (!metered.value().isEmpty()) {
-                    metricName = metered.value();
-                }
-                handler = new MeteredRouteHandler(metricName, route.getRouteHandler(), metricRegistry);
-            } else if (method.isAnnotationPresent(Timed.class)) {
-                log.debug("Found '{}' annotation on method '{}'", Timed.class.getSimpleName(), LangUtils.toString(method));
-                // route handler is Timed
-                Timed timed = method.getAnnotation(Timed.class);
-                if (!timed.value().isEmpty()) {
-                    metricName = timed.value();
-                }
-                handler = new TimedRouteHandler(metricName, route.getRouteHandler(), metricRegistry);
-            } else if (method.isAnnotationPresent(Counted.class)) {
-                log.debug("Found '{}' annotation on method '{}'", Counted.class.getSimpleName(), LangUtils.toString(method));
-                // route handler is Counted
-                Counted counted = method.getAnnotation(Counted.class);
-                if (!counted.value().isEmpty()) {
-                    metricName = counted.value();
-                }
-                handler = new CountedRouteHandler(metricName, counted.active(), route.getRouteHandler(), metricRegistry);
+    @Override
+    public void runFinallyRoutes() {
+        try {
+            super.runFinallyRoutes();
+        } finally {
+            if (routeTimers != null && lastRoute != null) {
+                routeTimers.update(lastRoute, System.nanoTime() - startTime);
             }
-        } catch (Exception e) {
-            log.error("Failed to get method?!", e);
         }
-
-        handler.handle(this);
     }
 
 }
@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.metrics;
+
+import com.codahale.metrics.MetricRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ro.pippo.controller.ControllerHandler;
+import ro.pippo.core.route.Route;
+import ro.pippo.core.route.RouteContext;
+import ro.pippo.core.route.RouteHandler;
+import ro.pippo.core.util.ClasspathUtils;
+import ro.pippo.core.util.LangUtils;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Wraps the route handlers annotated with {@link Metered}, {@link Timed} or {@link Counted}
+ * in the corresponding metrics route handler.
+ * The annotations are resolved once per route handler (when the routes are registered or on first use)
+ * and the resulting handler is cached, so the requests don't pay for reflection.
+ * <p/>
+ * The annotations are looked up on the controller method of a {@code ControllerHandler}
+ * (when pippo-controller is available) or on the {@code handle} method of the route handler.
+ */
+public class MetricsRouteDecorator {
+
+    private static final Logger log = LoggerFactory.getLogger(MetricsRouteDecorator.class);
+
+    private static final boolean CONTROLLERS_AVAILABLE = ClasspathUtils.hasClass("ro.pippo.controller.ControllerHandler");
+
+    private final MetricRegistry metricRegistry;
+
+    /**
+     * The decorated handler by the original handler (an handler without annotations maps to itself).
+     */
+    private final Map<RouteHandler, RouteHandler> handlers;
+
+    public MetricsRouteDecorator(MetricRegistry metricRegistry) {
+        this.metricRegistry = metricRegistry;
+        this.handlers = new ConcurrentHashMap<>();
+    }
+
+    public MetricRegistry getMetricRegistry() {
+        return metricRegistry;
+    }
+
+    /**
+     * Returns the handler to be used for the route: the route handler itself or a metrics route handler.
+     *
+     * @param route
+     * @return the decorated route handler
+     */
+    public RouteHandler decorate(Route route) {
+        RouteHandler handler = route.getRouteHandler();
+        RouteHandler decorated = handlers.get(handler);
+        if (decorated == null) {
+            decorated = handlers.computeIfAbsent(handler, this::createHandler);
+        }
+
+        return decorated;
+    }
+
+    protected RouteHandler createHandler(RouteHandler handler) {
+        Method method;
+        try {
+            method = getMethod(handler);
+        } catch (Exception e) {
+            log.error("Failed to get method?!", e);
+            return handler;
+        }
+
+        String metricName = MetricRegistry.name(method.getDeclaringClass(), method.getName());
+
+        if (method.isAnnotationPresent(Metered.class)) {
+            log.debug("Found '{}' annotation on method '{}'", Metered.class.getSimpleName(), LangUtils.toString(method));
+            // route handler is Metered
+            Metered metered = method.getAnnotation(Metered.class);
+            if (!metered.value().isEmpty()) {
+                metricName = metered.value();
+            }
+            return new MeteredRouteHandler(metricName, handler, metricRegistry);
+        } else if (method.isAnnotationPresent(Timed.class)) {
+            log.debug("Found '{}' annotation on method '{}'", Timed.class.getSimpleName(), LangUtils.toString(method));
+            // route handler is Timed
+            Timed timed = method.getAnnotation(Timed.class);
+            if (!timed.value().isEmpty()) {
+                metricName = timed.value();
+            }
+            return new TimedRouteHandler(metricName, handler, metricRegistry);
+        } else if (method.isAnnotationPresent(Counted.class)) {
+            log.debug("Found '{}' annotation on method '{}'", Counted.class.getSimpleName(), LangUtils.toString(method));
+            // route handler is Counted
+            Counted counted = method.getAnnotation(Counted.class);
+            if (!counted.value().isEmpty()) {
+                metricName = counted.value();
+            }
+            return new CountedRouteHandler(metricName, counted.active(), handler, metricRegistry);
+        }
+
+        return handler;
+    }
+
+    private static Method getMethod(RouteHandler handler) throws NoSuchMethodException {
+        if (CONTROLLERS_AVAILABLE && handler instanceof ControllerHandler) {
+            return ((ControllerHandler) handler).getMethod();
+        }
+
+        return handler.getClass().getMethod("handle", RouteContext.class);
+    }
+
+}
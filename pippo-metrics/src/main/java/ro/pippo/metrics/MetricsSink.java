@@ -0,0 +1,42 @@
+/*
+ * Copyright (C) 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.metrics;
+
+import java.util.List;
+
+/**
+ * A destination of the {@link MetricsReportingPipeline}.
+ * A sink is called by one pipeline thread at a time.
+ */
+public interface MetricsSink {
+
+    /**
+     * Returns the name of the sink, used in the names of its pipeline metrics.
+     */
+    String getName();
+
+    /**
+     * Reports a batch of snapshots, the oldest first.
+     * The batch has more than one snapshot only if the sink fell behind the pipeline.
+     * A sink that cannot send a snapshot with its own timestamp should send only the newest one.
+     *
+     * @param snapshots
+     * @return the number of snapshots sent, the others are counted as dropped
+     * @throws Exception
+     */
+    int report(List<MetricsSnapshot> snapshots) throws Exception;
+
+}
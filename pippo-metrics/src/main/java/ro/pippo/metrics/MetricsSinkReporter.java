@@ -0,0 +1,37 @@
+/*
+ * Copyright (C) 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.metrics;
+
+import com.codahale.metrics.MetricRegistry;
+import ro.pippo.core.PippoSettings;
+
+/**
+ * A {@link MetricsReporter} that can also report through the shared {@link MetricsReportingPipeline}.
+ * When the pipeline is enabled (<code>metrics.reporting.shared</code>) {@link #createSink(PippoSettings, MetricRegistry)}
+ * is called instead of {@link #start(PippoSettings, MetricRegistry)}.
+ */
+public interface MetricsSinkReporter extends MetricsReporter {
+
+    /**
+     * Creates the sink of this reporter.
+     *
+     * @param pippoSettings
+     * @param metricRegistry
+     * @return the sink or null if the reporter is disabled
+     */
+    MetricsSink createSink(PippoSettings pippoSettings, MetricRegistry metricRegistry);
+
+}
@@ -0,0 +1,297 @@
+/*
+ * Copyright (C) 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.metrics;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Reservoir;
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.Timer;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The values of all metrics of a {@link MetricRegistry} at a moment.
+ * <p/>
+ * The gauges are read, the rates are computed and the histograms and timers are sampled once, when the
+ * snapshot is taken, so the snapshot can be reported by any number of sinks without touching the registry again.
+ * The metrics of the snapshot are frozen copies that can be passed to
+ * {@link com.codahale.metrics.ScheduledReporter#report(SortedMap, SortedMap, SortedMap, SortedMap, SortedMap)}.
+ */
+@SuppressWarnings("rawtypes")
+public final class MetricsSnapshot {
+
+    private static final Reservoir NO_RESERVOIR = new Reservoir() {
+
+        @Override
+        public int size() {
+            return 0;
+        }
+
+        @Override
+        public void update(long value) {
+        }
+
+        @Override
+        public Snapshot getSnapshot() {
+            return null;
+        }
+
+    };
+
+    private final long timestamp;
+    private final SortedMap<String, Gauge> gauges;
+    private final SortedMap<String, Counter> counters;
+    private final SortedMap<String, Histogram> histograms;
+    private final SortedMap<String, Meter> meters;
+    private final SortedMap<String, Timer> timers;
+
+    private MetricsSnapshot(long timestamp, SortedMap<String, Gauge> gauges, SortedMap<String, Counter> counters,
+                            SortedMap<String, Histogram> histograms, SortedMap<String, Meter> meters,
+                            SortedMap<String, Timer> timers) {
+        this.timestamp = timestamp;
+        this.gauges = Collections.unmodifiableSortedMap(gauges);
+        this.counters = Collections.unmodifiableSortedMap(counters);
+        this.histograms = Collections.unmodifiableSortedMap(histograms);
+        this.meters = Collections.unmodifiableSortedMap(meters);
+        this.timers = Collections.unmodifiableSortedMap(timers);
+    }
+
+    /**
+     * Takes a snapshot of the registry.
+     *
+     * @param metricRegistry
+     * @return the snapshot
+     */
+    public static MetricsSnapshot take(MetricRegistry metricRegistry) {
+        long timestamp = System.currentTimeMillis();
+
+        SortedMap<String, Gauge> gauges = new TreeMap<>();
+        for (Map.Entry<String, Gauge> entry : metricRegistry.getGauges().entrySet()) {
+            gauges.put(entry.getKey(), new FrozenGauge(entry.getValue().getValue()));
+        }
+
+        SortedMap<String, Counter> counters = new TreeMap<>();
+        for (Map.Entry<String, Counter> entry : metricRegistry.getCounters().entrySet()) {
+            counters.put(entry.getKey(), new FrozenCounter(entry.getValue().getCount()));
+        }
+
+        SortedMap<String, Histogram> histograms = new TreeMap<>();
+        for (Map.Entry<String, Histogram> entry : metricRegistry.getHistograms().entrySet()) {
+            Histogram histogram = entry.getValue();
+            histograms.put(entry.getKey(), new FrozenHistogram(histogram.getCount(), histogram.getSnapshot()));
+        }
+
+        SortedMap<String, Meter> meters = new TreeMap<>();
+        for (Map.Entry<String, Meter> entry : metricRegistry.getMeters().entrySet()) {
+            meters.put(entry.getKey(), new FrozenMeter(entry.getValue()));
+        }
+
+        SortedMap<String, Timer> timers = new TreeMap<>();
+        for (Map.Entry<String, Timer> entry : metricRegistry.getTimers().entrySet()) {
+            timers.put(entry.getKey(), new FrozenTimer(entry.getValue()));
+        }
+
+        return new MetricsSnapshot(timestamp, gauges, counters, histograms, meters, timers);
+    }
+
+    /**
+     * Returns the time (in milliseconds since the epoch) when the snapshot was taken.
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public SortedMap<String, Gauge> getGauges() {
+        return gauges;
+    }
+
+    public SortedMap<String, Counter> getCounters() {
+        return counters;
+    }
+
+    public SortedMap<String, Histogram> getHistograms() {
+        return histograms;
+    }
+
+    public SortedMap<String, Meter> getMeters() {
+        return meters;
+    }
+
+    public SortedMap<String, Timer> getTimers() {
+        return timers;
+    }
+
+    private static class FrozenGauge implements Gauge<Object> {
+
+        private final Object value;
+
+        private FrozenGauge(Object value) {
+            this.value = value;
+        }
+
+        @Override
+        public Object getValue() {
+            return value;
+        }
+
+    }
+
+    private static class FrozenCounter extends Counter {
+
+        private final long count;
+
+        private FrozenCounter(long count) {
+            this.count = count;
+        }
+
+        @Override
+        public long getCount() {
+            return count;
+        }
+
+    }
+
+    private static class FrozenHistogram extends Histogram {
+
+        private final long count;
+        private final Snapshot snapshot;
+
+        private FrozenHistogram(long count, Snapshot snapshot) {
+            super(NO_RESERVOIR);
+            this.count = count;
+            this.snapshot = snapshot;
+        }
+
+        @Override
+        public long getCount() {
+            return count;
+        }
+
+        @Override
+        public Snapshot getSnapshot() {
+            return snapshot;
+        }
+
+    }
+
+    private static class FrozenMeter extends Meter {
+
+        private final long count;
+        private final double meanRate;
+        private final double oneMinuteRate;
+        private final double fiveMinuteRate;
+        private final double fifteenMinuteRate;
+
+        private FrozenMeter(Meter meter) {
+            count = meter.getCount();
+            meanRate = meter.getMeanRate();
+            oneMinuteRate = meter.getOneMinuteRate();
+            fiveMinuteRate = meter.getFiveMinuteRate();
+            fifteenMinuteRate = meter.getFifteenMinuteRate();
+        }
+
+        @Override
+        public long getCount() {
+            return count;
+        }
+
+        @Override
+        public double getMeanRate() {
+            return meanRate;
+        }
+
+        @Override
+        public double getOneMinuteRate() {
+            return oneMinuteRate;
+        }
+
+        @Override
+        public double getFiveMinuteRate() {
+            return fiveMinuteRate;
+        }
+
+        @Override
+        public double getFifteenMinuteRate() {
+            return fifteenMinuteRate;
+        }
+
+    }
+
+    private static class FrozenTimer extends Timer {
+
+        private final long count;
+        private final double meanRate;
+        private final double oneMinuteRate;
+        private final double fiveMinuteRate;
+        private final double fifteenMinuteRate;
+        private final Snapshot snapshot;
+
+        private FrozenTimer(Timer timer) {
+            super(NO_RESERVOIR);
+            count = timer.getCount();
+            meanRate = timer.getMeanRate();
+            oneMinuteRate = timer.getOneMinuteRate();
+            fiveMinuteRate = timer.getFiveMinuteRate();
+            fifteenMinuteRate = timer.getFifteenMinuteRate();
+            snapshot = timer.getSnapshot();
+        }
+
+        @Override
+        public long getCount() {
+            return count;
+        }
+
+        @Override
+        public double getMeanRate() {
+            return meanRate;
+        }
+
+        @Override
+        public double getOneMinuteRate() {
+            return oneMinuteRate;
+        }
+
+        @Override
+        public double getFiveMinuteRate() {
+            return fiveMinuteRate;
+        }
+
+        @Override
+        public double getFifteenMinuteRate() {
+            return fifteenMinuteRate;
+        }
+
+        @Override
+        public Snapshot getSnapshot() {
+            return snapshot;
+        }
+
+        @Override
+        public void update(long duration, TimeUnit unit) {
+            // frozen
+        }
+
+    }
+
+}
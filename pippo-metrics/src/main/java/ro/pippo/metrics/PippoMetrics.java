@@ -19,7 +19,9 @@ import com.codahale.metrics.JmxReporter;
 import com.codahale.metrics.Metric;
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.MetricSet;
+import com.codahale.metrics.jvm.BufferPoolMetricSet;
 import com.codahale.metrics.jvm.ClassLoadingGaugeSet;
+import com.codahale.metrics.jvm.FileDescriptorRatioGauge;
 import com.codahale.metrics.jvm.GarbageCollectorMetricSet;
 import com.codahale.metrics.jvm.MemoryUsageGaugeSet;
 import com.codahale.metrics.jvm.ThreadStatesGaugeSet;
@@ -31,15 +33,20 @@ import ro.pippo.core.PippoConstants;
 import ro.pippo.core.PippoSettings;
 import ro.pippo.core.Request;
 import ro.pippo.core.Response;
+import ro.pippo.core.WebServerThreadPool;
+import ro.pippo.core.route.Route;
 import ro.pippo.core.route.RouteContextFactory;
 import ro.pippo.core.route.RouteMatch;
+import ro.pippo.core.util.ClasspathUtils;
 import ro.pippo.core.util.ServiceLocator;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Pippo Metrics is the singleton for managing the MetricRegistry,
@@ -56,6 +63,10 @@ public class PippoMetrics implements RouteContextFactory<MetricsRouteContext> {
 
     private final List<Closeable> reporters;
 
+    private final MetricsRouteDecorator routeDecorator;
+
+    private RouteTimers routeTimers;
+
     public PippoMetrics() {
         this(new MetricRegistry());
     }
@@ -63,6 +74,7 @@ public class PippoMetrics implements RouteContextFactory<MetricsRouteContext> {
     public PippoMetrics(MetricRegistry metricRegistry) {
         this.metricRegistry = metricRegistry;
         this.reporters = new ArrayList<>();
+        this.routeDecorator = new MetricsRouteDecorator(metricRegistry);
     }
 
     @Override
@@ -78,6 +90,8 @@ public class PippoMetrics implements RouteContextFactory<MetricsRouteContext> {
             registerAll("jvm.memory", new MemoryUsageGaugeSet());
             registerAll("jvm.threads", new ThreadStatesGaugeSet());
             registerAll("jvm.classes", new ClassLoadingGaugeSet());
+            registerAll("jvm.buffers", new BufferPoolMetricSet(ManagementFactory.getPlatformMBeanServer()));
+            metricRegistry.register("jvm.files", new FileDescriptorRatioGauge());
 
             log.debug("Registered JVM-Metrics integration");
         }
@@ -86,25 +100,112 @@ public class PippoMetrics implements RouteContextFactory<MetricsRouteContext> {
          * MBeans for VisualVM, JConsole, or JMX
          */
         if (pippoSettings.getBoolean("metrics.mbeans.enabled", false)) {
-            JmxReporter reporter = JmxReporter.forRegistry(metricRegistry).inDomain(applicationName).build();
+            String domain = pippoSettings.getString("metrics.mbeans.domain", applicationName);
+            JmxReporter reporter = JmxReporter.forRegistry(metricRegistry).inDomain(domain).build();
             reporter.start();
             reporters.add(reporter);
 
             log.debug("Started Pippo Metrics MBeans reporter");
         }
 
+        /*
+         * Thread pool of the embedded web server
+         */
+        WebServerThreadPool threadPool = application.getWebServerThreadPool();
+        if (pippoSettings.getBoolean("metrics.server.enabled", true) && threadPool != null) {
+            registerAll("server.threads", new ThreadPoolMetricSet(threadPool));
+
+            log.debug("Registered Server-Metrics integration");
+        }
+
+        /*
+         * Session metrics, when the application uses pippo-session
+         */
+        if (pippoSettings.getBoolean("metrics.sessions.enabled", true)
+            && ClasspathUtils.hasClass("ro.pippo.session.SessionManager")
+            && SessionMetrics.register(application, metricRegistry)) {
+            log.debug("Registered Session-Metrics integration");
+        }
+
+        /*
+         * Shared reporting pipeline, one snapshot of the registry per period for all reporters
+         */
+        MetricsReportingPipeline pipeline = null;
+        if (pippoSettings.getBoolean("metrics.reporting.shared", false)) {
+            int threads = pippoSettings.getInteger("metrics.reporting.threads", MetricsReportingPipeline.DEFAULT_THREADS);
+            int queueCapacity = pippoSettings.getInteger("metrics.reporting.queueCapacity",
+                MetricsReportingPipeline.DEFAULT_QUEUE_CAPACITY);
+            pipeline = new MetricsReportingPipeline(metricRegistry, threads, queueCapacity);
+            // closed before the reporters that own the sinks
+            reporters.add(pipeline);
+        }
+
         /*
          * Add classpath reporters
          */
+        long reportingPeriod = pippoSettings.getDurationInSeconds("metrics.reporting.period", 60);
         for (MetricsReporter reporter : ServiceLocator.locateAll(MetricsReporter.class)) {
-            reporter.start(pippoSettings, metricRegistry);
+            if (pipeline != null && reporter instanceof MetricsSinkReporter) {
+                MetricsSink sink = ((MetricsSinkReporter) reporter).createSink(pippoSettings, metricRegistry);
+                if (sink != null) {
+                    // the sinks report at the period of the pipeline
+                    String periodKey = "metrics." + sink.getName() + ".period";
+                    if (pippoSettings.hasSetting(periodKey)
+                        && pippoSettings.getDurationInSeconds(periodKey, reportingPeriod) != reportingPeriod) {
+                        log.warn("'{}' is ignored, the shared reporting pipeline reports every {} seconds (see 'metrics.reporting.period')",
+                            periodKey, reportingPeriod);
+                    }
+                    pipeline.addSink(sink);
+                }
+            } else {
+                reporter.start(pippoSettings, metricRegistry);
+            }
             reporters.add(reporter);
         }
 
+        if (pipeline != null) {
+            pipeline.start(reportingPeriod, TimeUnit.SECONDS);
+        }
+
+        /*
+         * Timers for each route, with a cap on the number of timers
+         */
+        if (pippoSettings.getBoolean("metrics.routes.enabled", false)) {
+            int maxRoutes = pippoSettings.getInteger("metrics.routes.maxTimers", RouteTimers.DEFAULT_MAX_ROUTES);
+            routeTimers = new RouteTimers(metricRegistry, maxRoutes);
+
+            log.debug("Registered Route-Metrics integration");
+        }
+
+        // Resolve the metrics annotations of the registered routes
+        for (Route route : application.getRouter().getRoutes()) {
+            routeDecorator.decorate(route);
+        }
+
         // Add the metrics dispatch listener
         MetricsDispatchListener metricsDispatchListener = new MetricsDispatchListener(metricRegistry);
         application.getRoutePreDispatchListeners().add(metricsDispatchListener);
         application.getRoutePostDispatchListeners().add(metricsDispatchListener);
+
+        /*
+         * Adaptive concurrency limiter, sheds load with 503 when too many requests are in flight
+         */
+        if (pippoSettings.getBoolean("metrics.limiter.enabled", false)) {
+            ConcurrencyLimiter limiter = ConcurrencyLimiter.create(pippoSettings, metricRegistry);
+            application.getRoutePreDispatchListeners().add(limiter);
+            application.getRoutePostDispatchListeners().add(limiter);
+
+            log.debug("Registered Concurrency-Limiter integration");
+        }
+
+        /*
+         * Timers for the request phases (see application.timing.enabled)
+         */
+        if (application.isRequestTimingEnabled()) {
+            application.getRoutePostDispatchListeners().add(new RequestPhaseTimers(metricRegistry));
+
+            log.debug("Registered Request-Phase-Metrics integration");
+        }
     }
 
     @Override
@@ -121,7 +222,7 @@ public class PippoMetrics implements RouteContextFactory<MetricsRouteContext> {
 
     @Override
     public MetricsRouteContext createRouteContext(Application application, Request request, Response response, List<RouteMatch> routeMatches) {
-        return new MetricsRouteContext(metricRegistry, application, request, response, routeMatches);
+        return new MetricsRouteContext(routeDecorator, routeTimers, application, request, response, routeMatches);
     }
 
     private void registerAll(String prefix, MetricSet metrics) throws IllegalArgumentException {
@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.metrics;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import ro.pippo.core.Request;
+import ro.pippo.core.RequestTimer;
+import ro.pippo.core.Response;
+import ro.pippo.core.route.RoutePostDispatchListener;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes the {@link RequestTimer} of each request in a timer per phase
+ * (<code>dispatcher.phases.routing</code>, <code>dispatcher.phases.binding</code>, ...), backed by an {@link HdrReservoir}.
+ * A phase that did not run for a request (e.g. no parameter binding or no template) is not recorded,
+ * so it doesn't skew the percentiles towards zero; the handler phase is always recorded.
+ */
+public class RequestPhaseTimers implements RoutePostDispatchListener {
+
+    private static final RequestTimer.Phase[] PHASES = RequestTimer.Phase.values();
+
+    private final Timer[] timers;
+
+    public RequestPhaseTimers(MetricRegistry metricRegistry) {
+        timers = new Timer[PHASES.length];
+        for (RequestTimer.Phase phase : PHASES) {
+            String name = MetricRegistry.name("dispatcher.phases", phase.getName());
+            Timer timer = (Timer) metricRegistry.getMetrics().get(name);
+            timers[phase.ordinal()] = (timer != null) ? timer : metricRegistry.register(name, new Timer(new HdrReservoir()));
+        }
+    }
+
+    @Override
+    public void onPostDispatch(Request request, Response response) {
+        RequestTimer requestTimer = response.getRequestTimer();
+        if (requestTimer == null) {
+            return;
+        }
+
+        for (RequestTimer.Phase phase : PHASES) {
+            long duration = requestTimer.getDuration(phase);
+            if (duration > 0 || phase == RequestTimer.Phase.HANDLER) {
+                timers[phase.ordinal()].update(duration, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.metrics;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ro.pippo.core.route.Route;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps a timer for each route (request method + uri pattern), backed by an {@link HdrReservoir}.
+ * The number of route timers is capped; the routes over the cap share the <code>routes.other</code> timer.
+ */
+public class RouteTimers {
+
+    private static final Logger log = LoggerFactory.getLogger(RouteTimers.class);
+
+    public static final int DEFAULT_MAX_ROUTES = 200;
+
+    private final MetricRegistry metricRegistry;
+    private final int maxRoutes;
+    private final Map<Route, Timer> timers;
+    private final Timer otherTimer;
+
+    public RouteTimers(MetricRegistry metricRegistry) {
+        this(metricRegistry, DEFAULT_MAX_ROUTES);
+    }
+
+    public RouteTimers(MetricRegistry metricRegistry, int maxRoutes) {
+        this.metricRegistry = metricRegistry;
+        this.maxRoutes = maxRoutes;
+        this.timers = new ConcurrentHashMap<>();
+        this.otherTimer = register("routes.other");
+    }
+
+    /**
+     * Records the duration (in nanoseconds) of a request served by the route.
+     *
+     * @param route
+     * @param duration
+     */
+    public void update(Route route, long duration) {
+        getTimer(route).update(duration, TimeUnit.NANOSECONDS);
+    }
+
+    public Timer getTimer(Route route) {
+        Timer timer = timers.get(route);
+        if (timer != null) {
+            return timer;
+        }
+
+        synchronized (timers) {
+            timer = timers.get(route);
+            if (timer == null) {
+                if (timers.size() >= maxRoutes) {
+                    log.debug("Too many route timers ({}), '{} {}' uses the '{}' timer", maxRoutes,
+                        route.getRequestMethod(), route.getUriPattern(), "routes.other");
+                    return otherTimer;
+                }
+
+                timer = register(getName(route));
+                timers.put(route, timer);
+            }
+
+            return timer;
+        }
+    }
+
+    protected String getName(Route route) {
+        return MetricRegistry.name("routes", route.getRequestMethod(), route.getUriPattern());
+    }
+
+    private Timer register(String name) {
+        Timer timer = (Timer) metricRegistry.getMetrics().get(name);
+
+        return (timer != null) ? timer : metricRegistry.register(name, new Timer(new HdrReservoir()));
+    }
+
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.metrics;
+
+import com.codahale.metrics.ScheduledReporter;
+
+import java.util.List;
+
+/**
+ * Adapts a (not started) {@link ScheduledReporter} to a {@link MetricsSink}.
+ * The reporter only formats and sends the snapshots, it doesn't run its own thread.
+ * <p/>
+ * The reporters stamp the values with the time they are sent, not with {@link MetricsSnapshot#getTimestamp()},
+ * so the older snapshots of a batch would overwrite each other in the backend; only the newest one is reported.
+ */
+public class ScheduledReporterSink implements MetricsSink {
+
+    private final String name;
+    private final ScheduledReporter reporter;
+
+    public ScheduledReporterSink(String name, ScheduledReporter reporter) {
+        this.name = name;
+        this.reporter = reporter;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public int report(List<MetricsSnapshot> snapshots) throws Exception {
+        MetricsSnapshot snapshot = snapshots.get(snapshots.size() - 1);
+        reporter.report(snapshot.getGauges(), snapshot.getCounters(), snapshot.getHistograms(),
+            snapshot.getMeters(), snapshot.getTimers());
+
+        return 1;
+    }
+
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.metrics;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import ro.pippo.core.Application;
+import ro.pippo.session.MemorySessionDataStorage;
+import ro.pippo.session.OffHeapSessionDataStorage;
+import ro.pippo.session.SessionData;
+import ro.pippo.session.SessionDataStorage;
+import ro.pippo.session.SessionListener;
+import ro.pippo.session.SessionManager;
+import ro.pippo.session.SessionRequestResponseFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SessionMetrics collects the session storage metrics (latency, size, creation, expiration and eviction rates).
+ * It's registered automatically by {@link PippoMetrics} when the application uses pippo-session.
+ * The <code>sessions.active</code> gauge is registered only for {@link MemorySessionDataStorage}
+ * and {@link OffHeapSessionDataStorage}; the sessions of a {@link ro.pippo.session.KeyValueSessionDataStorage}
+ * live in a store shared by all the nodes, which doesn't expose the number of sessions.
+ */
+public class SessionMetrics implements SessionListener {
+
+    protected Timer loadTimer;
+
+    protected Timer saveTimer;
+
+    protected Timer touchTimer;
+
+    protected Timer deleteTimer;
+
+    protected Histogram sessionSize;
+
+    protected Meter createdSessions;
+
+    protected Meter expiredSessions;
+
+    protected Meter evictedSessions;
+
+    protected Meter loadMisses;
+
+    public SessionMetrics(MetricRegistry metricRegistry) {
+        loadTimer = metricRegistry.timer("sessions.load");
+        saveTimer = metricRegistry.timer("sessions.save");
+        touchTimer = metricRegistry.timer("sessions.touch");
+        deleteTimer = metricRegistry.timer("sessions.delete");
+
+        sessionSize = metricRegistry.histogram("sessions.size");
+
+        createdSessions = metricRegistry.meter("sessions.created");
+        expiredSessions = metricRegistry.meter("sessions.expired");
+        evictedSessions = metricRegistry.meter("sessions.evicted");
+        loadMisses = metricRegistry.meter("sessions.loadMisses");
+    }
+
+    /**
+     * Registers the session metrics if the application uses a {@link SessionRequestResponseFactory}.
+     *
+     * @return true if the session metrics were registered
+     */
+    public static boolean register(Application application, MetricRegistry metricRegistry) {
+        if (!(application.getRequestResponseFactory() instanceof SessionRequestResponseFactory)) {
+            return false;
+        }
+
+        SessionManager sessionManager = ((SessionRequestResponseFactory) application.getRequestResponseFactory()).getSessionManager();
+        sessionManager.getSessionListeners().add(new SessionMetrics(metricRegistry));
+
+        SessionDataStorage sessionDataStorage = sessionManager.getSessionDataStorage();
+        if (sessionDataStorage instanceof MemorySessionDataStorage) {
+            MemorySessionDataStorage storage = (MemorySessionDataStorage) sessionDataStorage;
+            metricRegistry.register("sessions.active", (Gauge<Integer>) storage::getSessionCount);
+        } else if (sessionDataStorage instanceof OffHeapSessionDataStorage) {
+            OffHeapSessionDataStorage storage = (OffHeapSessionDataStorage) sessionDataStorage;
+            metricRegistry.register("sessions.active", (Gauge<Integer>) storage::getSessionCount);
+        }
+        // a key-value store is shared, the near cache of this node is not the number of active sessions
+
+        return true;
+    }
+
+    @Override
+    public void onCreate(SessionData sessionData) {
+        createdSessions.mark();
+    }
+
+    @Override
+    public void onLoad(String sessionId, boolean found, long latency) {
+        loadTimer.update(latency, TimeUnit.NANOSECONDS);
+        if (!found) {
+            loadMisses.mark();
+        }
+    }
+
+    @Override
+    public void onSave(SessionData sessionData, long latency) {
+        saveTimer.update(latency, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void onTouch(String sessionId, long latency) {
+        touchTimer.update(latency, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void onDelete(String sessionId, long latency) {
+        deleteTimer.update(latency, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void onSerialize(String sessionId, int size) {
+        sessionSize.update(size);
+    }
+
+    @Override
+    public void onExpire(String sessionId) {
+        expiredSessions.mark();
+    }
+
+    @Override
+    public void onEvict(String sessionId) {
+        evictedSessions.mark();
+    }
+
+}
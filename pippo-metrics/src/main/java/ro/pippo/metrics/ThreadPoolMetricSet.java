@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.metrics;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricSet;
+import com.codahale.metrics.RatioGauge;
+import ro.pippo.core.WebServerThreadPool;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Gauges for the thread pool of the embedded web server (threads, busy/idle threads, queued requests and utilization),
+ * to correlate the request latency with the saturation of the server.
+ */
+public class ThreadPoolMetricSet implements MetricSet {
+
+    private final WebServerThreadPool threadPool;
+
+    public ThreadPoolMetricSet(WebServerThreadPool threadPool) {
+        this.threadPool = threadPool;
+    }
+
+    @Override
+    public Map<String, Metric> getMetrics() {
+        Map<String, Metric> gauges = new HashMap<>();
+        gauges.put("count", (Gauge<Integer>) threadPool::getThreads);
+        gauges.put("busy", (Gauge<Integer>) threadPool::getBusyThreads);
+        gauges.put("idle", (Gauge<Integer>) threadPool::getIdleThreads);
+        gauges.put("max", (Gauge<Integer>) threadPool::getMaxThreads);
+        gauges.put("queue", (Gauge<Integer>) threadPool::getQueueSize);
+        gauges.put("utilization", new RatioGauge() {
+
+            @Override
+            protected Ratio getRatio() {
+                int maxThreads = threadPool.getMaxThreads();
+                // NaN while the pool is not available
+                return Ratio.of(threadPool.getBusyThreads(), (maxThreads > 0) ? maxThreads : Double.NaN);
+            }
+
+        });
+
+        return Collections.unmodifiableMap(gauges);
+    }
+
+}
@@ -28,16 +28,18 @@ public class TimedRouteHandler implements RouteHandler {
     final String timerName;
     final RouteHandler routeHandler;
     final MetricRegistry metricRegistry;
+    final Timer timer;
 
     public TimedRouteHandler(String timerName, RouteHandler routeHandler, MetricRegistry metricRegistry) {
         this.timerName = timerName;
         this.routeHandler = routeHandler;
         this.metricRegistry = metricRegistry;
+        this.timer = metricRegistry.timer(timerName);
     }
 
     @Override
     public void handle(RouteContext routeContext) {
-        Timer.Context timerContext = metricRegistry.timer(timerName).time();
+        Timer.Context timerContext = timer.time();
 
         try {
             routeHandler.handle(routeContext);
@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.metrics;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+public class AimdLimitTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(200);
+    private static final long WINDOW = TimeUnit.MILLISECONDS.toNanos(100);
+
+    @Test
+    public void testShrinkOnSlowRequests() {
+        AimdLimit limit = new AimdLimit(20, 5, 100, 100, 0.5);
+        long now = System.nanoTime();
+
+        limit.onSample(SLOW, 1, now);
+        assertEquals(10, limit.getLimit());
+
+        limit.onSample(SLOW, 1, now + WINDOW);
+        limit.onSample(SLOW, 1, now + 2 * WINDOW);
+        assertEquals(5, limit.getLimit());
+    }
+
+    @Test
+    public void testShrinkOncePerWindow() {
+        AimdLimit limit = new AimdLimit(20, 1, 100, 100, 0.5);
+        long now = System.nanoTime();
+
+        // a burst of slow responses
+        for (int i = 0; i < 10; i++) {
+            limit.onSample(SLOW, 10, now + i);
+        }
+        assertEquals(10, limit.getLimit());
+
+        limit.onSample(SLOW, 10, now + WINDOW - 1);
+        assertEquals(10, limit.getLimit());
+
+        limit.onSample(SLOW, 10, now + WINDOW);
+        assertEquals(5, limit.getLimit());
+    }
+
+    @Test
+    public void testGrowOnFastRequests() {
+        AimdLimit limit = new AimdLimit(10, 1, 12, 100, 0.9);
+
+        limit.onSample(FAST, 5);
+        assertEquals(11, limit.getLimit());
+
+        limit.onSample(FAST, 10);
+        limit.onSample(FAST, 10);
+        assertEquals(12, limit.getLimit());
+    }
+
+    @Test
+    public void testIdleDoesNotGrow() {
+        AimdLimit limit = new AimdLimit(10, 1, 100, 100, 0.9);
+
+        // less than half of the limit is in use
+        limit.onSample(FAST, 4);
+        assertEquals(10, limit.getLimit());
+    }
+
+    @Test
+    public void testBounds() {
+        AimdLimit limit = new AimdLimit(500, 0, 50, 100, 0.1);
+        assertEquals(50, limit.getLimit());
+
+        // the backoff ratio is at least 0.5
+        limit.onSample(SLOW, 1);
+        assertEquals(25, limit.getLimit());
+    }
+
+}
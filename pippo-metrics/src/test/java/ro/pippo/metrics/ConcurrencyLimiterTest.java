@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.metrics;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class ConcurrencyLimiterTest {
+
+    private MetricRegistry metricRegistry;
+    private ConcurrencyLimiter limiter;
+
+    @Before
+    public void setUp() {
+        metricRegistry = new MetricRegistry();
+        limiter = new ConcurrencyLimiter(metricRegistry);
+    }
+
+    @Test
+    public void testRejectAtLimit() {
+        limiter.setDefaultLimit(createLimit(2));
+
+        assertNotNull(limiter.acquire("/"));
+        assertNotNull(limiter.acquire("/"));
+        assertNull(limiter.acquire("/"));
+
+        assertEquals(2, getGauge("limiter.default.inFlight"));
+        assertEquals(1, metricRegistry.meter("limiter.default.rejected").getCount());
+    }
+
+    @Test
+    public void testRelease() {
+        limiter.setDefaultLimit(createLimit(1));
+
+        ConcurrencyLimiter.Permit permit = limiter.acquire("/");
+        assertNull(limiter.acquire("/"));
+
+        limiter.release(permit);
+        assertEquals(0, getGauge("limiter.default.inFlight"));
+        assertNotNull(limiter.acquire("/"));
+    }
+
+    @Test
+    public void testGroupPrefix() {
+        limiter.addGroup("api", "/api", createLimit(1));
+
+        assertNotNull(limiter.acquire("/api/users"));
+        assertNull(limiter.acquire("/api/orders"));
+
+        // without a default limit the other requests are not limited
+        assertNotNull(limiter.acquire("/index"));
+        assertNotNull(limiter.acquire("/index"));
+
+        limiter.setDefaultLimit(createLimit(1));
+        assertNotNull(limiter.acquire("/index"));
+        assertNull(limiter.acquire("/index"));
+
+        assertEquals(1, metricRegistry.meter("limiter.api.rejected").getCount());
+        assertEquals(1, metricRegistry.meter("limiter.default.rejected").getCount());
+    }
+
+    @Test
+    public void testGroupsMatchedInOrder() {
+        limiter.addGroup("admin", "/api/admin", createLimit(1));
+        limiter.addGroup("api", "/api", createLimit(5));
+
+        assertNotNull(limiter.acquire("/api/admin/users"));
+        assertNull(limiter.acquire("/api/admin/users"));
+        assertNotNull(limiter.acquire("/api/users"));
+        assertEquals(1, getGauge("limiter.api.inFlight"));
+    }
+
+    private static AimdLimit createLimit(int limit) {
+        return new AimdLimit(limit, limit, limit, 1000, AimdLimit.DEFAULT_BACKOFF_RATIO);
+    }
+
+    private int getGauge(String name) {
+        return (Integer) metricRegistry.getGauges().get(name).getValue();
+    }
+
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright (C) 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.metrics;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricFilter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.ScheduledReporter;
+import com.codahale.metrics.Timer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MetricsReportingPipelineTest {
+
+    private static final long TIMEOUT = TimeUnit.SECONDS.toMillis(10);
+
+    private MetricRegistry metricRegistry;
+    private MetricsReportingPipeline pipeline;
+    private ServerSocket serverSocket;
+    private List<String> lines;
+
+    @Before
+    public void setUp() throws IOException {
+        metricRegistry = new MetricRegistry();
+        // three threads, so a blocked sink doesn't delay the other ones
+        pipeline = new MetricsReportingPipeline(metricRegistry, 3, 2);
+
+        serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        lines = Collections.synchronizedList(new ArrayList<>());
+        Thread acceptor = new Thread(this::accept, "metrics-test-server");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        pipeline.close();
+        serverSocket.close();
+    }
+
+    @Test
+    public void testFanOutDropOldestAndFailed() throws Exception {
+        Counter requests = metricRegistry.counter("requests");
+
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        pipeline.addSink(new ScheduledReporterSink("fast", new LineReporter(metricRegistry, "fast", null, null)));
+        pipeline.addSink(new ScheduledReporterSink("slow", new LineReporter(metricRegistry, "slow", blocked, release)));
+        pipeline.addSink(new MetricsSink() {
+
+            @Override
+            public String getName() {
+                return "broken";
+            }
+
+            @Override
+            public int report(List<MetricsSnapshot> snapshots) throws Exception {
+                throw new IOException("Connection refused");
+            }
+
+        });
+        pipeline.start(1, TimeUnit.HOURS);
+
+        for (int i = 1; i <= 5; i++) {
+            requests.inc();
+            pipeline.report();
+
+            int reported = i;
+            waitFor(() -> getCount("metrics.reporting.fast.reported") == reported
+                && getCount("metrics.reporting.broken.failed") == reported);
+            if (i == 1) {
+                // the slow sink holds the first snapshot, the next ones pile up in its queue
+                assertTrue(blocked.await(TIMEOUT, TimeUnit.MILLISECONDS));
+            }
+        }
+
+        // every snapshot reached the fast sink
+        waitFor(() -> count("fast requests ") == 5);
+        assertTrue(lines.contains("fast requests 5"));
+
+        // the queue of the slow sink (two snapshots) dropped the snapshots 2 and 3
+        assertEquals(2, getCount("metrics.reporting.slow.dropped"));
+
+        // the batch of the snapshots 4 and 5 sends only the newest one
+        release.countDown();
+        waitFor(() -> getCount("metrics.reporting.slow.reported") == 2);
+        assertEquals(3, getCount("metrics.reporting.slow.dropped"));
+        waitFor(() -> count("slow requests ") == 2);
+        assertTrue(lines.contains("slow requests 1"));
+        assertTrue(lines.contains("slow requests 5"));
+
+        assertEquals(0, getCount("metrics.reporting.fast.dropped"));
+        assertEquals(0, getCount("metrics.reporting.broken.reported"));
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                Thread reader = new Thread(() -> read(socket), "metrics-test-reader");
+                reader.setDaemon(true);
+                reader.start();
+            } catch (IOException e) {
+                // closed
+            }
+        }
+    }
+
+    private void read(Socket socket) {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+        } catch (IOException e) {
+            // closed
+        }
+    }
+
+    private long getCount(String name) {
+        return metricRegistry.counter(name).getCount();
+    }
+
+    private int count(String prefix) {
+        synchronized (lines) {
+            return (int) lines.stream().filter(line -> line.startsWith(prefix)).count();
+        }
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        while (!condition.getAsBoolean()) {
+            assertTrue("Timed out", System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * Sends the counters as <code>sink name value</code> lines, like a plaintext protocol reporter.
+     */
+    private class LineReporter extends ScheduledReporter {
+
+        private final String sink;
+        private final CountDownLatch blocked;
+        private final CountDownLatch release;
+
+        private LineReporter(MetricRegistry registry, String sink, CountDownLatch blocked, CountDownLatch release) {
+            super(registry, sink, MetricFilter.ALL, TimeUnit.SECONDS, TimeUnit.MILLISECONDS);
+
+            this.sink = sink;
+            this.blocked = blocked;
+            this.release = release;
+        }
+
+        @Override
+        public void report(SortedMap<String, Gauge> gauges, SortedMap<String, Counter> counters,
+                           SortedMap<String, Histogram> histograms, SortedMap<String, Meter> meters,
+                           SortedMap<String, Timer> timers) {
+            if (blocked != null && blocked.getCount() > 0) {
+                blocked.countDown();
+                try {
+                    release.await(TIMEOUT, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            try (Socket socket = new Socket(serverSocket.getInetAddress(), serverSocket.getLocalPort());
+                 PrintWriter writer = new PrintWriter(socket.getOutputStream())) {
+                for (Map.Entry<String, Counter> entry : counters.entrySet()) {
+                    writer.println(sink + " " + entry.getKey() + " " + entry.getValue().getCount());
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.metrics;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Metric;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import ro.pippo.core.ExecutorWebServerThreadPool;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ThreadPoolMetricSetTest {
+
+    private ThreadPoolExecutor executor;
+    private CountDownLatch release;
+
+    @Before
+    public void setUp() {
+        executor = new ThreadPoolExecutor(2, 2, 1, TimeUnit.MINUTES, new LinkedBlockingQueue<>());
+        release = new CountDownLatch(1);
+    }
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        executor.shutdownNow();
+    }
+
+    @Test(timeout = 5000)
+    public void testBusyPool() throws InterruptedException {
+        Map<String, Metric> metrics = new ThreadPoolMetricSet(new ExecutorWebServerThreadPool(() -> executor)).getMetrics();
+
+        for (int i = 0; i < 3; i++) {
+            executor.execute(() -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        while (executor.getActiveCount() < 2) {
+            Thread.sleep(10);
+        }
+
+        assertEquals(2, getValue(metrics, "count"));
+        assertEquals(2, getValue(metrics, "busy"));
+        assertEquals(0, getValue(metrics, "idle"));
+        assertEquals(2, getValue(metrics, "max"));
+        assertEquals(1, getValue(metrics, "queue"));
+        assertEquals(1.0, getValue(metrics, "utilization").doubleValue(), 0.001);
+    }
+
+    @Test
+    public void testUnavailablePool() {
+        Map<String, Metric> metrics = new ThreadPoolMetricSet(new ExecutorWebServerThreadPool(() -> null)).getMetrics();
+
+        assertEquals(-1, getValue(metrics, "count"));
+        assertEquals(-1, getValue(metrics, "busy"));
+        assertEquals(-1, getValue(metrics, "queue"));
+        assertTrue(Double.isNaN(getValue(metrics, "utilization").doubleValue()));
+    }
+
+    private static Number getValue(Map<String, Metric> metrics, String name) {
+        return (Number) ((Gauge<?>) metrics.get(name)).getValue();
+    }
+
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright (C) 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.msgpack;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.kohsuke.MetaInfServices;
+import org.msgpack.jackson.dataformat.MessagePackFactory;
+import ro.pippo.core.ContentTypeEngine;
+import ro.pippo.jackson.JacksonBinaryEngine;
+
+/**
+ * A MessagePack ContentTypeEngine based on Jackson.
+ * Clients opt in with an <code>Accept: application/x-msgpack</code> header
+ * (or a <code>.msgpack</code> suffix) and send bodies with the same content type.
+ */
+@MetaInfServices(ContentTypeEngine.class)
+public class MsgPackEngine extends JacksonBinaryEngine {
+
+    public static final String APPLICATION_X_MSGPACK = "application/x-msgpack";
+
+    @Override
+    protected ObjectMapper getObjectMapper() {
+        return new ObjectMapper(new MessagePackFactory());
+    }
+
+    @Override
+    public String getContentType() {
+        return APPLICATION_X_MSGPACK;
+    }
+
+}
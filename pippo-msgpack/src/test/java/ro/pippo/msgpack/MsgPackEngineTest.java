@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.msgpack;
+
+import org.junit.Assert;
+import org.junit.Test;
+import ro.pippo.core.ContentTypeEngines;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+public class MsgPackEngineTest extends Assert {
+
+    @Test
+    public void testStream() {
+        MyTest test = new MyTest();
+
+        MsgPackEngine engine = new MsgPackEngine();
+        engine.init(null);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        engine.toStream(test, output, StandardCharsets.UTF_8);
+
+        MyTest result = engine.fromStream(new ByteArrayInputStream(output.toByteArray()), StandardCharsets.UTF_8, MyTest.class);
+        assertEquals(test.message, result.message);
+        assertEquals(test.count, result.count);
+        assertEquals(test.date, result.date);
+    }
+
+    @Test
+    public void testString() {
+        MyTest test = new MyTest();
+
+        MsgPackEngine engine = new MsgPackEngine();
+        engine.init(null);
+
+        MyTest result = engine.fromString(engine.toString(test), MyTest.class);
+        assertEquals(test.message, result.message);
+    }
+
+    @Test
+    public void testNegotiation() {
+        ContentTypeEngines engines = new ContentTypeEngines();
+        engines.registerContentTypeEngine(MsgPackEngine.class);
+
+        assertTrue(engines.getContentTypeEngine("application/x-msgpack") instanceof MsgPackEngine);
+        assertTrue(engines.getContentTypeEngine("application/json;q=0.5, application/x-msgpack") instanceof MsgPackEngine);
+        assertTrue(engines.getContentTypeEngine("msgpack") instanceof MsgPackEngine);
+    }
+
+    public static class MyTest {
+
+        public String message = "Hooray!";
+
+        public int count = 42;
+
+        public Date date = new Date();
+
+    }
+
+}
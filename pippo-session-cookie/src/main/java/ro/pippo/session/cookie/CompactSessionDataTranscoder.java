@@ -0,0 +1,614 @@
+/*
+ * Copyright (C) 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.session.cookie;
+
+import ro.pippo.core.Flash;
+import ro.pippo.core.PippoRuntimeException;
+import ro.pippo.session.SessionData;
+
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * A {@link SessionDataTranscoder} that writes {@link SessionData}s in a compact binary layout
+ * encoded with URL safe Base64 (without padding).
+ * <p/>
+ * The layout is versioned: a version byte and a flags byte are followed by the (optionally deflated
+ * and optionally encrypted) session and, when a signature key is set, by a HMAC-SHA256 of everything before it.
+ * <p/>
+ * The session fields and the common attribute types ({@link String}, primitive wrappers, {@link BigInteger},
+ * {@link BigDecimal}, {@link Date}, {@link UUID}, enums, byte arrays, {@link List}s, {@link Set}s,
+ * {@link Map}s and {@link Flash}) are written natively. Any other attribute is rejected, unless
+ * {@link #setSerializationFallback(boolean)} is enabled; then it's written with java serialization.
+ * The serialized attributes are read back only from sessions authenticated by the signature key or by the
+ * encryption key, so that only the sessions created by the application are deserialized.
+ */
+public class CompactSessionDataTranscoder implements SessionDataTranscoder {
+
+    public static final int VERSION = 1;
+
+    private static final int FLAG_DEFLATED = 1;
+    private static final int FLAG_ENCRYPTED = 2;
+    private static final int FLAG_SIGNED = 4;
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final int HMAC_LENGTH = 32;
+    private static final String CIPHER_TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final int IV_LENGTH = 12;
+    private static final int TAG_LENGTH = 128;
+
+    // attribute types
+    private static final int NULL = 0;
+    private static final int STRING = 1;
+    private static final int BOOLEAN = 2;
+    private static final int BYTE = 3;
+    private static final int SHORT = 4;
+    private static final int CHARACTER = 5;
+    private static final int INTEGER = 6;
+    private static final int LONG = 7;
+    private static final int FLOAT = 8;
+    private static final int DOUBLE = 9;
+    private static final int BIG_INTEGER = 10;
+    private static final int BIG_DECIMAL = 11;
+    private static final int DATE = 12;
+    private static final int UUID_TYPE = 13;
+    private static final int ENUM = 14;
+    private static final int BYTES = 15;
+    private static final int LIST = 16;
+    private static final int SET = 17;
+    private static final int MAP = 18;
+    private static final int FLASH = 19;
+    private static final int SERIALIZED = 127;
+
+    private static final SecureRandom random = new SecureRandom();
+
+    private boolean compression = true;
+    private boolean serializationFallback;
+    private SecretKeySpec signatureKey;
+    private SecretKeySpec encryptionKey;
+
+    public boolean isCompression() {
+        return compression;
+    }
+
+    /**
+     * Deflates the session when this makes it smaller.
+     */
+    public CompactSessionDataTranscoder setCompression(boolean compression) {
+        this.compression = compression;
+
+        return this;
+    }
+
+    public boolean isSerializationFallback() {
+        return serializationFallback;
+    }
+
+    /**
+     * Writes the attributes without a native representation with java serialization (disabled by default).
+     * If it's disabled such attributes are rejected.
+     * The serialized attributes are decoded only if a signature key or an encryption key is set.
+     */
+    public CompactSessionDataTranscoder setSerializationFallback(boolean serializationFallback) {
+        this.serializationFallback = serializationFallback;
+
+        return this;
+    }
+
+    /**
+     * Signs the session with HMAC-SHA256 using the given secret.
+     * A session with a missing or wrong signature is rejected.
+     */
+    public CompactSessionDataTranscoder setSignatureKey(String secret) {
+        signatureKey = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), HMAC_ALGORITHM);
+
+        return this;
+    }
+
+    /**
+     * Encrypts the session with AES-GCM using a key derived (SHA-256) from the given secret.
+     */
+    public CompactSessionDataTranscoder setEncryptionKey(String secret) {
+        byte[] key = Arrays.copyOf(sha256(secret.getBytes(StandardCharsets.UTF_8)), 16);
+        encryptionKey = new SecretKeySpec(key, "AES");
+
+        return this;
+    }
+
+    @Override
+    public String encode(SessionData sessionData) {
+        try {
+            byte[] payload = write(sessionData);
+
+            int flags = 0;
+            if (compression) {
+                byte[] deflated = deflate(payload);
+                if (deflated.length < payload.length) {
+                    payload = deflated;
+                    flags |= FLAG_DEFLATED;
+                }
+            }
+
+            if (encryptionKey != null) {
+                payload = encrypt(payload);
+                flags |= FLAG_ENCRYPTED;
+            }
+
+            if (signatureKey != null) {
+                flags |= FLAG_SIGNED;
+            }
+
+            int signatureLength = (signatureKey != null) ? HMAC_LENGTH : 0;
+            byte[] bytes = new byte[2 + payload.length + signatureLength];
+            bytes[0] = VERSION;
+            bytes[1] = (byte) flags;
+            System.arraycopy(payload, 0, bytes, 2, payload.length);
+            if (signatureKey != null) {
+                byte[] signature = sign(bytes, 0, bytes.length - HMAC_LENGTH);
+                System.arraycopy(signature, 0, bytes, bytes.length - HMAC_LENGTH, HMAC_LENGTH);
+            }
+
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        } catch (IOException | GeneralSecurityException e) {
+            throw new PippoRuntimeException(e, "Cannot encode session '{}'", sessionData.getId());
+        }
+    }
+
+    @Override
+    public SessionData decode(String data) {
+        try {
+            byte[] bytes = Base64.getUrlDecoder().decode(data);
+            if (bytes.length < 2 || bytes[0] != VERSION) {
+                throw new PippoRuntimeException("Unknown session format. A new one will be created.");
+            }
+
+            int flags = bytes[1];
+            int end = bytes.length;
+            if (signatureKey != null) {
+                if ((flags & FLAG_SIGNED) == 0 || end < 2 + HMAC_LENGTH) {
+                    throw new PippoRuntimeException("Session is not signed. A new one will be created.");
+                }
+
+                end -= HMAC_LENGTH;
+                byte[] signature = Arrays.copyOfRange(bytes, end, bytes.length);
+                if (!MessageDigest.isEqual(signature, sign(bytes, 0, end))) {
+                    throw new PippoRuntimeException("Invalid session signature. A new one will be created.");
+                }
+            } else if ((flags & FLAG_SIGNED) != 0) {
+                end -= HMAC_LENGTH;
+            }
+
+            byte[] payload = Arrays.copyOfRange(bytes, 2, end);
+            if ((flags & FLAG_ENCRYPTED) != 0) {
+                if (encryptionKey == null) {
+                    throw new PippoRuntimeException("Session is encrypted but no encryption key is set");
+                }
+                payload = decrypt(payload);
+            }
+
+            if ((flags & FLAG_DEFLATED) != 0) {
+                payload = inflate(payload);
+            }
+
+            // the HMAC or the GCM tag proves that the session was created by the application
+            boolean authenticated = (signatureKey != null) || (flags & FLAG_ENCRYPTED) != 0;
+
+            return read(payload, authenticated);
+        } catch (IllegalArgumentException | IOException | GeneralSecurityException | DataFormatException | ClassNotFoundException e) {
+            throw new PippoRuntimeException(e, "Cannot decode session. A new one will be created.");
+        }
+    }
+
+    private byte[] write(SessionData sessionData) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        DataOutputStream output = new DataOutputStream(bytes);
+
+        writeString(output, sessionData.getId());
+        writeVarLong(output, sessionData.getCreationTime());
+        writeVarLong(output, sessionData.getLastAccessedTime());
+        writeVarLong(output, sessionData.getMaxInactiveInterval());
+
+        Set<String> names = sessionData.getAttributeNames();
+        writeVarLong(output, names.size());
+        for (String name : names) {
+            writeString(output, name);
+            writeValue(output, sessionData.getAttribute(name));
+        }
+        output.flush();
+
+        return bytes.toByteArray();
+    }
+
+    private SessionData read(byte[] payload, boolean authenticated) throws IOException, ClassNotFoundException {
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(payload));
+
+        SessionData sessionData = new SessionData(readString(input));
+        sessionData.setCreationTime(readVarLong(input));
+        sessionData.setLastAccessedTime(readVarLong(input));
+        sessionData.setMaxInactiveInterval((int) readVarLong(input));
+
+        int count = (int) readVarLong(input);
+        for (int i = 0; i < count; i++) {
+            String name = readString(input);
+            sessionData.setAttribute(name, readValue(input, authenticated));
+        }
+
+        // nothing changed since the session was encoded
+        sessionData.setDirty(false);
+
+        return sessionData;
+    }
+
+    private void writeValue(DataOutputStream output, Object value) throws IOException {
+        if (value == null) {
+            output.writeByte(NULL);
+        } else if (value instanceof String) {
+            output.writeByte(STRING);
+            writeString(output, (String) value);
+        } else if (value instanceof Boolean) {
+            output.writeByte(BOOLEAN);
+            output.writeBoolean((Boolean) value);
+        } else if (value instanceof Byte) {
+            output.writeByte(BYTE);
+            output.writeByte((Byte) value);
+        } else if (value instanceof Short) {
+            output.writeByte(SHORT);
+            writeVarLong(output, (Short) value);
+        } else if (value instanceof Character) {
+            output.writeByte(CHARACTER);
+            output.writeChar((Character) value);
+        } else if (value instanceof Integer) {
+            output.writeByte(INTEGER);
+            writeVarLong(output, (Integer) value);
+        } else if (value instanceof Long) {
+            output.writeByte(LONG);
+            writeVarLong(output, (Long) value);
+        } else if (value instanceof Float) {
+            output.writeByte(FLOAT);
+            output.writeFloat((Float) value);
+        } else if (value instanceof Double) {
+            output.writeByte(DOUBLE);
+            output.writeDouble((Double) value);
+        } else if (value instanceof BigInteger) {
+            output.writeByte(BIG_INTEGER);
+            writeBytes(output, ((BigInteger) value).toByteArray());
+        } else if (value instanceof BigDecimal) {
+            output.writeByte(BIG_DECIMAL);
+            writeString(output, value.toString());
+        } else if (value.getClass() == Date.class) {
+            output.writeByte(DATE);
+            writeVarLong(output, ((Date) value).getTime());
+        } else if (value instanceof UUID) {
+            output.writeByte(UUID_TYPE);
+            output.writeLong(((UUID) value).getMostSignificantBits());
+            output.writeLong(((UUID) value).getLeastSignificantBits());
+        } else if (value instanceof Enum) {
+            output.writeByte(ENUM);
+            writeString(output, ((Enum<?>) value).getDeclaringClass().getName());
+            writeString(output, ((Enum<?>) value).name());
+        } else if (value instanceof byte[]) {
+            output.writeByte(BYTES);
+            writeBytes(output, (byte[]) value);
+        } else if (value instanceof Flash) {
+            output.writeByte(FLASH);
+            List<Flash.Message> messages = new ArrayList<>();
+            for (Flash.Message message : (Flash) value) {
+                messages.add(message);
+            }
+            writeVarLong(output, messages.size());
+            for (Flash.Message message : messages) {
+                writeVarLong(output, message.getLevel());
+                writeString(output, message.getMessage());
+            }
+        } else if (isPlainCollection(value, List.class, ArrayList.class)) {
+            output.writeByte(LIST);
+            writeCollection(output, (Collection<?>) value);
+        } else if (isPlainCollection(value, Set.class, HashSet.class, LinkedHashSet.class)) {
+            output.writeByte(SET);
+            writeCollection(output, (Collection<?>) value);
+        } else if (isPlainCollection(value, Map.class, HashMap.class, LinkedHashMap.class)) {
+            output.writeByte(MAP);
+            Map<?, ?> map = (Map<?, ?>) value;
+            writeVarLong(output, map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                writeValue(output, entry.getKey());
+                writeValue(output, entry.getValue());
+            }
+        } else if (serializationFallback) {
+            output.writeByte(SERIALIZED);
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream objectOutput = new ObjectOutputStream(bytes)) {
+                objectOutput.writeObject(value);
+            }
+            writeBytes(output, bytes.toByteArray());
+        } else {
+            throw new PippoRuntimeException("Cannot write session attribute of type '{}'", value.getClass().getName());
+        }
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private Object readValue(DataInputStream input, boolean authenticated) throws IOException, ClassNotFoundException {
+        int type = input.readByte();
+        switch (type) {
+            case NULL:
+                return null;
+            case STRING:
+                return readString(input);
+            case BOOLEAN:
+                return input.readBoolean();
+            case BYTE:
+                return input.readByte();
+            case SHORT:
+                return (short) readVarLong(input);
+            case CHARACTER:
+                return input.readChar();
+            case INTEGER:
+                return (int) readVarLong(input);
+            case LONG:
+                return readVarLong(input);
+            case FLOAT:
+                return input.readFloat();
+            case DOUBLE:
+                return input.readDouble();
+            case BIG_INTEGER:
+                return new BigInteger(readBytes(input));
+            case BIG_DECIMAL:
+                return new BigDecimal(readString(input));
+            case DATE:
+                return new Date(readVarLong(input));
+            case UUID_TYPE:
+                return new UUID(input.readLong(), input.readLong());
+            case ENUM:
+                Class enumClass = Class.forName(readString(input), false, getClassLoader());
+                if (!enumClass.isEnum()) {
+                    throw new PippoRuntimeException("'{}' is not an enum", enumClass.getName());
+                }
+                return Enum.valueOf(enumClass, readString(input));
+            case BYTES:
+                return readBytes(input);
+            case FLASH:
+                Flash flash = new Flash();
+                int messages = (int) readVarLong(input);
+                for (int i = 0; i < messages; i++) {
+                    flash.add((int) readVarLong(input), readString(input));
+                }
+                return flash;
+            case LIST:
+                return readCollection(input, authenticated, new ArrayList<>());
+            case SET:
+                return readCollection(input, authenticated, new LinkedHashSet<>());
+            case MAP:
+                int size = (int) readVarLong(input);
+                Map<Object, Object> map = new LinkedHashMap<>();
+                for (int i = 0; i < size; i++) {
+                    map.put(readValue(input, authenticated), readValue(input, authenticated));
+                }
+                return map;
+            case SERIALIZED:
+                if (!serializationFallback) {
+                    throw new PippoRuntimeException("Serialized session attributes are not allowed");
+                }
+                if (!authenticated) {
+                    throw new PippoRuntimeException("Serialized session attributes require a signed or encrypted session");
+                }
+                try (ObjectInputStream objectInput = new ObjectInputStream(new ByteArrayInputStream(readBytes(input)))) {
+                    return objectInput.readObject();
+                }
+            default:
+                throw new PippoRuntimeException("Unknown session attribute type {}", type);
+        }
+    }
+
+    private void writeCollection(DataOutputStream output, Collection<?> collection) throws IOException {
+        writeVarLong(output, collection.size());
+        for (Object item : collection) {
+            writeValue(output, item);
+        }
+    }
+
+    private <T extends Collection<Object>> T readCollection(DataInputStream input, boolean authenticated, T collection) throws IOException, ClassNotFoundException {
+        int size = (int) readVarLong(input);
+        for (int i = 0; i < size; i++) {
+            collection.add(readValue(input, authenticated));
+        }
+
+        return collection;
+    }
+
+    /**
+     * Only the common implementations are written natively, so that a decoded collection has the same behavior.
+     */
+    private static boolean isPlainCollection(Object value, Class<?> type, Class<?>... implementations) {
+        if (!type.isInstance(value)) {
+            return false;
+        }
+
+        for (Class<?> implementation : implementations) {
+            if (value.getClass() == implementation) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static void writeString(DataOutputStream output, String value) throws IOException {
+        writeBytes(output, value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String readString(DataInputStream input) throws IOException {
+        return new String(readBytes(input), StandardCharsets.UTF_8);
+    }
+
+    private static void writeBytes(DataOutputStream output, byte[] bytes) throws IOException {
+        writeVarLong(output, bytes.length);
+        output.write(bytes);
+    }
+
+    private static byte[] readBytes(DataInputStream input) throws IOException {
+        int length = (int) readVarLong(input);
+        if (length < 0 || length > input.available()) {
+            throw new IOException("Invalid length " + length);
+        }
+
+        byte[] bytes = new byte[length];
+        input.readFully(bytes);
+
+        return bytes;
+    }
+
+    /**
+     * Writes a zig-zag encoded variable length long (small absolute values use less bytes).
+     */
+    private static void writeVarLong(DataOutputStream output, long value) throws IOException {
+        long zigZag = (value << 1) ^ (value >> 63);
+        while ((zigZag & ~0x7FL) != 0) {
+            output.writeByte((int) ((zigZag & 0x7F) | 0x80));
+            zigZag >>>= 7;
+        }
+        output.writeByte((int) zigZag);
+    }
+
+    private static long readVarLong(DataInputStream input) throws IOException {
+        long zigZag = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = input.readUnsignedByte();
+            zigZag |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return (zigZag >>> 1) ^ -(zigZag & 1);
+            }
+        }
+
+        throw new IOException("Malformed variable length number");
+    }
+
+    private static byte[] deflate(byte[] bytes) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+        try {
+            deflater.setInput(bytes);
+            deflater.finish();
+            ByteArrayOutputStream output = new ByteArrayOutputStream(bytes.length);
+            byte[] buffer = new byte[512];
+            while (!deflater.finished()) {
+                output.write(buffer, 0, deflater.deflate(buffer));
+            }
+
+            return output.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] bytes) throws DataFormatException {
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(bytes);
+            ByteArrayOutputStream output = new ByteArrayOutputStream(bytes.length * 4);
+            byte[] buffer = new byte[512];
+            while (!inflater.finished()) {
+                int count = inflater.inflate(buffer);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new DataFormatException("Truncated deflated session");
+                }
+                output.write(buffer, 0, count);
+            }
+
+            return output.toByteArray();
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private byte[] encrypt(byte[] bytes) throws GeneralSecurityException {
+        byte[] iv = new byte[IV_LENGTH];
+        random.nextBytes(iv);
+
+        Cipher cipher = Cipher.getInstance(CIPHER_TRANSFORMATION);
+        cipher.init(Cipher.ENCRYPT_MODE, encryptionKey, new GCMParameterSpec(TAG_LENGTH, iv));
+        byte[] encrypted = cipher.doFinal(bytes);
+
+        byte[] result = new byte[IV_LENGTH + encrypted.length];
+        System.arraycopy(iv, 0, result, 0, IV_LENGTH);
+        System.arraycopy(encrypted, 0, result, IV_LENGTH, encrypted.length);
+
+        return result;
+    }
+
+    private byte[] decrypt(byte[] bytes) throws GeneralSecurityException {
+        if (bytes.length < IV_LENGTH) {
+            throw new GeneralSecurityException("Truncated encrypted session");
+        }
+
+        Cipher cipher = Cipher.getInstance(CIPHER_TRANSFORMATION);
+        cipher.init(Cipher.DECRYPT_MODE, encryptionKey, new GCMParameterSpec(TAG_LENGTH, bytes, 0, IV_LENGTH));
+
+        return cipher.doFinal(bytes, IV_LENGTH, bytes.length - IV_LENGTH);
+    }
+
+    private byte[] sign(byte[] bytes, int offset, int length) throws GeneralSecurityException {
+        Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+        mac.init(signatureKey);
+        mac.update(bytes, offset, length);
+
+        return mac.doFinal();
+    }
+
+    private static byte[] sha256(byte[] bytes) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(bytes);
+        } catch (GeneralSecurityException e) {
+            throw new PippoRuntimeException(e);
+        }
+    }
+
+    private static ClassLoader getClassLoader() {
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+
+        return (classLoader != null) ? classLoader : CompactSessionDataTranscoder.class.getClassLoader();
+    }
+
+}
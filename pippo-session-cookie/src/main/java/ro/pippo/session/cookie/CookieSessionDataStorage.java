@@ -20,6 +20,8 @@ import ro.pippo.core.Response;
 import ro.pippo.core.util.CookieUtils;
 import ro.pippo.session.SessionData;
 import ro.pippo.session.SessionDataStorage;
+import ro.pippo.session.SessionListener;
+import ro.pippo.session.SessionListenerAware;
 
 import javax.servlet.http.Cookie;
 import javax.servlet.http.HttpServletRequest;
@@ -28,12 +30,14 @@ import javax.servlet.http.HttpServletResponse;
 /**
  * @author Decebal Suiu
  */
-public class CookieSessionDataStorage implements SessionDataStorage {
+public class CookieSessionDataStorage implements SessionDataStorage, SessionListenerAware {
 
     public static final String SESSION_COOKIE_NAME = "SESSION";
 
     private final SessionDataTranscoder transcoder;
 
+    private volatile SessionListener sessionListener;
+
     public CookieSessionDataStorage() {
         this(new SerializationSessionDataTranscoder());
     }
@@ -50,6 +54,9 @@ public class CookieSessionDataStorage implements SessionDataStorage {
     @Override
     public void save(SessionData sessionData) {
         String data = transcoder.encode(sessionData);
+        if (sessionListener != null) {
+            sessionListener.onSerialize(sessionData.getId(), data.length());
+        }
         Cookie cookie = createSessionCookie(getHttpServletRequest(), data);
         getHttpServletResponse().addCookie(cookie);
     }
@@ -67,6 +74,11 @@ public class CookieSessionDataStorage implements SessionDataStorage {
         return transcoder.decode(cookie.getValue());
     }
 
+    @Override
+    public void touch(String sessionId, long lastAccessedTime) {
+        // the session cookie lives as long as the browser session, there is nothing to refresh
+    }
+
     @Override
     public void delete(String sessionId) {
         Cookie cookie = createSessionCookie(getHttpServletRequest(), "");
@@ -74,6 +86,11 @@ public class CookieSessionDataStorage implements SessionDataStorage {
         getHttpServletResponse().addCookie(cookie);
     }
 
+    @Override
+    public void setSessionListener(SessionListener sessionListener) {
+        this.sessionListener = sessionListener;
+    }
+
     private Cookie createSessionCookie(HttpServletRequest request, String data) {
         Cookie cookie = new Cookie(SESSION_COOKIE_NAME, data);
         cookie.setHttpOnly(true);
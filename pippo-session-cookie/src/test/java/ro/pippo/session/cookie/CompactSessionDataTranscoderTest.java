@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.session.cookie;
+
+import org.junit.Test;
+import ro.pippo.core.Flash;
+import ro.pippo.core.PippoRuntimeException;
+import ro.pippo.session.SessionData;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CompactSessionDataTranscoderTest {
+
+    @Test
+    public void testRoundTrip() {
+        SessionData sessionData = createSessionData();
+
+        CompactSessionDataTranscoder transcoder = new CompactSessionDataTranscoder();
+        SessionData decoded = transcoder.decode(transcoder.encode(sessionData));
+
+        assertFalse(decoded.isDirty());
+        assertSameSession(sessionData, decoded);
+
+        Flash flash = (Flash) decoded.getAttribute("flash");
+        assertEquals("Saved", flash.getSuccess());
+        assertEquals("Check the form", flash.getWarning());
+    }
+
+    @Test
+    public void testSignedAndEncrypted() {
+        SessionData sessionData = createSessionData();
+
+        CompactSessionDataTranscoder transcoder = new CompactSessionDataTranscoder()
+            .setSignatureKey("signature secret")
+            .setEncryptionKey("encryption secret");
+        String encoded = transcoder.encode(sessionData);
+
+        assertFalse(encoded.contains("="));
+        assertSameSession(sessionData, transcoder.decode(encoded));
+    }
+
+    @Test(expected = PippoRuntimeException.class)
+    public void testTamperedSession() {
+        CompactSessionDataTranscoder transcoder = new CompactSessionDataTranscoder().setSignatureKey("signature secret");
+        String encoded = transcoder.encode(createSessionData());
+
+        char[] chars = encoded.toCharArray();
+        chars[4] = (chars[4] == 'A') ? 'B' : 'A';
+        transcoder.decode(new String(chars));
+    }
+
+    @Test(expected = PippoRuntimeException.class)
+    public void testWrongSignatureKey() {
+        String encoded = new CompactSessionDataTranscoder().setSignatureKey("signature secret").encode(createSessionData());
+
+        new CompactSessionDataTranscoder().setSignatureKey("another secret").decode(encoded);
+    }
+
+    @Test
+    public void testSmallerThanSerialization() {
+        SessionData sessionData = createSessionData();
+
+        String compact = new CompactSessionDataTranscoder().encode(sessionData);
+        String serialized = new SerializationSessionDataTranscoder().encode(sessionData);
+
+        assertTrue(compact.length() < serialized.length());
+    }
+
+    @Test(expected = PippoRuntimeException.class)
+    public void testUnsignedSerializedAttributeIsRejected() {
+        CompactSessionDataTranscoder transcoder = new CompactSessionDataTranscoder().setSerializationFallback(true);
+        SessionData sessionData = createSessionData();
+        sessionData.setAttribute("locale", Locale.CANADA);
+
+        transcoder.decode(transcoder.encode(sessionData));
+    }
+
+    @Test
+    public void testSignedSerializedAttribute() {
+        CompactSessionDataTranscoder transcoder = new CompactSessionDataTranscoder()
+            .setSerializationFallback(true)
+            .setSignatureKey("signature secret");
+        SessionData sessionData = createSessionData();
+        sessionData.setAttribute("locale", Locale.CANADA);
+
+        SessionData decoded = transcoder.decode(transcoder.encode(sessionData));
+        assertEquals(Locale.CANADA, decoded.getAttribute("locale"));
+    }
+
+    static SessionData createSessionData() {
+        SessionData sessionData = new SessionData();
+        sessionData.setMaxInactiveInterval((int) TimeUnit.HOURS.toSeconds(1));
+        sessionData.setAttribute("username", "admin");
+        sessionData.setAttribute("userId", 42L);
+        sessionData.setAttribute("admin", true);
+        sessionData.setAttribute("balance", new BigDecimal("1024.50"));
+        sessionData.setAttribute("loginTime", new Date(1457000000000L));
+        sessionData.setAttribute("token", UUID.randomUUID());
+        sessionData.setAttribute("unit", TimeUnit.SECONDS);
+
+        List<String> roles = new ArrayList<>(Arrays.asList("admin", "user"));
+        sessionData.setAttribute("roles", roles);
+
+        Map<String, Object> preferences = new HashMap<>();
+        preferences.put("language", "en");
+        preferences.put("pageSize", 20);
+        sessionData.setAttribute("preferences", preferences);
+
+        Flash flash = new Flash();
+        flash.success("Saved");
+        flash.warning("Check the form");
+        sessionData.setAttribute("flash", flash);
+
+        return sessionData;
+    }
+
+    private static void assertSameSession(SessionData expected, SessionData actual) {
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getCreationTime(), actual.getCreationTime());
+        assertEquals(expected.getLastAccessedTime(), actual.getLastAccessedTime());
+        assertEquals(expected.getMaxInactiveInterval(), actual.getMaxInactiveInterval());
+        assertEquals(expected.getAttributeNames(), actual.getAttributeNames());
+        for (String name : expected.getAttributeNames()) {
+            if (!"flash".equals(name)) {
+                assertEquals(name, expected.getAttribute(name), actual.getAttribute(name));
+            }
+        }
+    }
+
+}
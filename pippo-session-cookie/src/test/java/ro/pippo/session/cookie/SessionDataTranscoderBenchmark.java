@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.session.cookie;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import ro.pippo.session.SessionData;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link CompactSessionDataTranscoder} with {@link SerializationSessionDataTranscoder}.
+ * Run it with the main method (after test-compile) or from the IDE.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SessionDataTranscoderBenchmark {
+
+    private SessionData sessionData;
+
+    private SessionDataTranscoder serialization;
+    private SessionDataTranscoder compact;
+    private SessionDataTranscoder compactSigned;
+
+    private String serializationEncoded;
+    private String compactEncoded;
+    private String compactSignedEncoded;
+
+    @Setup
+    public void setup() {
+        sessionData = CompactSessionDataTranscoderTest.createSessionData();
+
+        serialization = new SerializationSessionDataTranscoder();
+        compact = new CompactSessionDataTranscoder();
+        compactSigned = new CompactSessionDataTranscoder()
+            .setSignatureKey("signature secret")
+            .setEncryptionKey("encryption secret");
+
+        serializationEncoded = serialization.encode(sessionData);
+        compactEncoded = compact.encode(sessionData);
+        compactSignedEncoded = compactSigned.encode(sessionData);
+    }
+
+    @Benchmark
+    public String encodeSerialization() {
+        return serialization.encode(sessionData);
+    }
+
+    @Benchmark
+    public String encodeCompact() {
+        return compact.encode(sessionData);
+    }
+
+    @Benchmark
+    public String encodeCompactSignedEncrypted() {
+        return compactSigned.encode(sessionData);
+    }
+
+    @Benchmark
+    public SessionData decodeSerialization() {
+        return serialization.decode(serializationEncoded);
+    }
+
+    @Benchmark
+    public SessionData decodeCompact() {
+        return compact.decode(compactEncoded);
+    }
+
+    @Benchmark
+    public SessionData decodeCompactSignedEncrypted() {
+        return compactSigned.decode(compactSignedEncoded);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+            .include(SessionDataTranscoderBenchmark.class.getSimpleName())
+            .build()).run();
+    }
+
+}
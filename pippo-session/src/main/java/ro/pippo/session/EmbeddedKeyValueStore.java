@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.session;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An in-process {@link KeyValueStore}.
+ * It can be shared by several applications of the same JVM or served to other processes
+ * with {@link KeyValueStoreServer} (useful for testing a cluster on a single machine).
+ */
+public class EmbeddedKeyValueStore implements KeyValueStore, Closeable {
+
+    public static final int DEFAULT_PURGE_INTERVAL_SECONDS = 60;
+
+    private final Map<String, Value> values;
+    private final ScheduledExecutorService purger;
+
+    public EmbeddedKeyValueStore() {
+        this(DEFAULT_PURGE_INTERVAL_SECONDS);
+    }
+
+    /**
+     * @param purgeInterval the interval in seconds between two purges of the expired keys;
+     * a value less or equal to zero disables the purge (the expired keys are removed when they are read)
+     */
+    public EmbeddedKeyValueStore(int purgeInterval) {
+        values = new ConcurrentHashMap<>();
+
+        if (purgeInterval > 0) {
+            purger = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "pippo-kv-purger");
+                thread.setDaemon(true);
+
+                return thread;
+            });
+            purger.scheduleWithFixedDelay(this::purge, purgeInterval, purgeInterval, TimeUnit.SECONDS);
+        } else {
+            purger = null;
+        }
+    }
+
+    @Override
+    public byte[] get(String key) {
+        Value value = values.get(key);
+        if (value == null) {
+            return null;
+        }
+
+        if (value.isExpired(System.currentTimeMillis())) {
+            values.remove(key, value);
+
+            return null;
+        }
+
+        return value.bytes;
+    }
+
+    @Override
+    public void put(List<Entry> entries) {
+        long now = System.currentTimeMillis();
+        for (Entry entry : entries) {
+            values.put(entry.getKey(), new Value(entry.getValue(), expiresAt(now, entry.getTtl())));
+        }
+    }
+
+    @Override
+    public void expire(String key, int ttl) {
+        long expiresAt = expiresAt(System.currentTimeMillis(), ttl);
+        values.computeIfPresent(key, (k, value) -> new Value(value.bytes, expiresAt));
+    }
+
+    @Override
+    public void delete(String key) {
+        values.remove(key);
+    }
+
+    /**
+     * Removes the expired keys.
+     */
+    public void purge() {
+        long now = System.currentTimeMillis();
+        values.entrySet().removeIf(entry -> entry.getValue().isExpired(now));
+    }
+
+    public int size() {
+        return values.size();
+    }
+
+    /**
+     * Stops the purger. The values are still available after this call.
+     */
+    @Override
+    public void close() {
+        if (purger != null) {
+            purger.shutdownNow();
+        }
+    }
+
+    private static long expiresAt(long now, int ttl) {
+        return (ttl < 0) ? Long.MAX_VALUE : now + TimeUnit.SECONDS.toMillis(ttl);
+    }
+
+    private static class Value {
+
+        private final byte[] bytes;
+        private final long expiresAt;
+
+        private Value(byte[] bytes, long expiresAt) {
+            this.bytes = bytes;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isExpired(long now) {
+            return now >= expiresAt;
+        }
+
+    }
+
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.session;
+
+/**
+ * A {@link SessionDataStorage} decorator that reports the operations and their latency to a {@link SessionListener}.
+ */
+class InstrumentedSessionDataStorage implements SessionDataStorage {
+
+    private final SessionDataStorage storage;
+    private final SessionListener listener;
+
+    InstrumentedSessionDataStorage(SessionDataStorage storage, SessionListener listener) {
+        this.storage = storage;
+        this.listener = listener;
+    }
+
+    @Override
+    public SessionData create() {
+        SessionData sessionData = storage.create();
+        listener.onCreate(sessionData);
+
+        return sessionData;
+    }
+
+    @Override
+    public void save(SessionData sessionData) {
+        long start = System.nanoTime();
+        storage.save(sessionData);
+        listener.onSave(sessionData, System.nanoTime() - start);
+    }
+
+    @Override
+    public SessionData get(String sessionId) {
+        long start = System.nanoTime();
+        SessionData sessionData = storage.get(sessionId);
+        listener.onLoad(sessionId, sessionData != null, System.nanoTime() - start);
+
+        return sessionData;
+    }
+
+    @Override
+    public boolean exists(String sessionId) {
+        return storage.exists(sessionId);
+    }
+
+    @Override
+    public void touch(String sessionId, long lastAccessedTime) {
+        long start = System.nanoTime();
+        storage.touch(sessionId, lastAccessedTime);
+        listener.onTouch(sessionId, System.nanoTime() - start);
+    }
+
+    @Override
+    public void delete(String sessionId) {
+        long start = System.nanoTime();
+        storage.delete(sessionId);
+        listener.onDelete(sessionId, System.nanoTime() - start);
+    }
+
+}
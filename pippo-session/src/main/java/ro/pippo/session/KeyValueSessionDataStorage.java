@@ -0,0 +1,440 @@
+/*
+ * Copyright (C) 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.session;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ro.pippo.core.util.IoUtils;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the sessions in a {@link KeyValueStore} shared by all the nodes of a cluster,
+ * so the requests of a session can be served by any node (no sticky sessions).
+ * <p/>
+ * The session time to live is pushed down to the store (the max inactive interval), so the store expires the sessions.
+ * A small near-cache keeps the recently used sessions (serialized, every request gets its own copy) for a short time,
+ * which avoids a round-trip to the store for the requests that follow each other closely. The writes are batched and sent in background (write-behind),
+ * the pending writes being visible to the node that made them. Consequently another node can see a session
+ * change with a delay of up to the flush interval plus the near-cache time to live.
+ * The writes of a failed flush are retried by the next flush (unless the session was written again or deleted meanwhile).
+ * A flush interval less or equal to zero sends the writes immediately, the errors of the store being thrown to the caller.
+ */
+public class KeyValueSessionDataStorage implements SessionDataStorage, SessionListenerAware, Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(KeyValueSessionDataStorage.class);
+
+    public static final String DEFAULT_KEY_PREFIX = "pippo:session:";
+    public static final int DEFAULT_NEAR_CACHE_SIZE = 1000;
+    public static final long DEFAULT_NEAR_CACHE_TTL_MILLIS = 1000;
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 100;
+
+    private static final int MAX_BATCH_SIZE = 256;
+
+    private final KeyValueStore store;
+    private final long nearCacheTtl;
+
+    private final Map<String, CachedSession> nearCache;
+    private final Map<String, PendingWrite> pendingWrites;
+    // the writes sent by the running flush and the sessions deleted meanwhile (guarded by pendingWrites)
+    private final Map<String, PendingWrite> inFlightWrites;
+    private final Set<String> tombstones;
+    private final Object flushLock = new Object();
+
+    private final ScheduledExecutorService flusher;
+    // only the first of consecutive failed flushes is logged as an error
+    private boolean flushFailing;
+
+    private String keyPrefix = DEFAULT_KEY_PREFIX;
+    private int defaultMaxInactiveInterval = SessionData.DEFAULT_MAX_INACTIVE_INTERVAL_SECONDS;
+
+    private volatile SessionListener sessionListener;
+
+    public KeyValueSessionDataStorage(KeyValueStore store) {
+        this(store, DEFAULT_NEAR_CACHE_SIZE, DEFAULT_NEAR_CACHE_TTL_MILLIS, DEFAULT_FLUSH_INTERVAL_MILLIS);
+    }
+
+    /**
+     * @param store
+     * @param nearCacheSize the maximum number of sessions in near-cache
+     * @param nearCacheTtl the time (in milliseconds) a session is served from near-cache; zero disables the near-cache
+     * @param flushInterval the interval (in milliseconds) between two flushes of the pending writes;
+     * a value less or equal to zero disables the write-behind
+     */
+    public KeyValueSessionDataStorage(KeyValueStore store, int nearCacheSize, long nearCacheTtl, long flushInterval) {
+        this.store = store;
+        this.nearCacheTtl = nearCacheTtl;
+
+        nearCache = new LinkedHashMap<String, CachedSession>(16, 0.75f, true) {
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedSession> eldest) {
+                return size() > nearCacheSize;
+            }
+
+        };
+        pendingWrites = new LinkedHashMap<>();
+        inFlightWrites = new HashMap<>();
+        tombstones = new HashSet<>();
+
+        if (flushInterval > 0) {
+            flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "pippo-session-flusher");
+                thread.setDaemon(true);
+
+                return thread;
+            });
+            flusher.scheduleWithFixedDelay(this::flush, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+        } else {
+            flusher = null;
+        }
+    }
+
+    public String getKeyPrefix() {
+        return keyPrefix;
+    }
+
+    public KeyValueSessionDataStorage setKeyPrefix(String keyPrefix) {
+        this.keyPrefix = keyPrefix;
+
+        return this;
+    }
+
+    public int getDefaultMaxInactiveInterval() {
+        return defaultMaxInactiveInterval;
+    }
+
+    /**
+     * The time to live (in seconds) pushed to the store when a session that is not in near-cache is touched.
+     * Set it to the max inactive interval of the sessions of the application.
+     */
+    public KeyValueSessionDataStorage setDefaultMaxInactiveInterval(int defaultMaxInactiveInterval) {
+        this.defaultMaxInactiveInterval = defaultMaxInactiveInterval;
+
+        return this;
+    }
+
+    @Override
+    public SessionData create() {
+        return new SessionData();
+    }
+
+    @Override
+    public void save(SessionData sessionData) {
+        String sessionId = sessionData.getId();
+        byte[] bytes = SessionDataSerializer.serialize(sessionData);
+        if (sessionListener != null) {
+            sessionListener.onSerialize(sessionId, bytes.length);
+        }
+        PendingWrite write = new PendingWrite(bytes, sessionData.getMaxInactiveInterval());
+        cache(sessionId, write);
+
+        if (flusher == null) {
+            store.put(Collections.singletonList(new KeyValueStore.Entry(getKey(sessionId), bytes, write.ttl)));
+        } else {
+            enqueue(sessionId, write);
+        }
+    }
+
+    @Override
+    public SessionData get(String sessionId) {
+        long now = System.currentTimeMillis();
+
+        byte[] bytes = getCached(sessionId, now);
+        boolean cached = (bytes != null);
+        if (!cached) {
+            bytes = getPending(sessionId);
+            if (bytes == null) {
+                bytes = store.get(getKey(sessionId));
+            }
+            if (bytes == null) {
+                return null;
+            }
+        }
+
+        // the session is deserialized for every request, the concurrent requests don't share it
+        SessionData sessionData = SessionDataSerializer.deserialize(bytes);
+        if (!cached) {
+            cache(sessionId, new PendingWrite(bytes, sessionData.getMaxInactiveInterval()));
+        }
+
+        // the store expires the sessions, the last accessed time stored with the session may be older
+        sessionData.setLastAccessedTime(now);
+
+        return sessionData;
+    }
+
+    @Override
+    public boolean exists(String sessionId) {
+        if (getCached(sessionId, System.currentTimeMillis()) != null || getPending(sessionId) != null) {
+            return true;
+        }
+
+        // the session read from store is kept in near-cache for the request that asked
+        return get(sessionId) != null;
+    }
+
+    @Override
+    public void touch(String sessionId, long lastAccessedTime) {
+        int ttl;
+        synchronized (nearCache) {
+            CachedSession cached = nearCache.get(sessionId);
+            // the max inactive interval of an evicted session is unknown, the next save will correct the time to live
+            ttl = (cached != null) ? cached.ttl : defaultMaxInactiveInterval;
+        }
+
+        if (flusher == null) {
+            store.expire(getKey(sessionId), ttl);
+        } else {
+            enqueue(sessionId, new PendingWrite(null, ttl));
+        }
+    }
+
+    @Override
+    public void delete(String sessionId) {
+        synchronized (pendingWrites) {
+            pendingWrites.remove(sessionId);
+            if (inFlightWrites.remove(sessionId) != null) {
+                // the running flush can write the session after the delete below, it's deleted again after the flush
+                tombstones.add(sessionId);
+            }
+        }
+        synchronized (nearCache) {
+            nearCache.remove(sessionId);
+        }
+        store.delete(getKey(sessionId));
+    }
+
+    /**
+     * Sends the pending writes to the store.
+     */
+    public void flush() {
+        synchronized (flushLock) {
+            List<Map.Entry<String, PendingWrite>> writes;
+            synchronized (pendingWrites) {
+                if (pendingWrites.isEmpty()) {
+                    return;
+                }
+                writes = new ArrayList<>(pendingWrites.entrySet());
+                inFlightWrites.putAll(pendingWrites);
+                pendingWrites.clear();
+            }
+
+            List<KeyValueStore.Entry> batch = new ArrayList<>();
+            try {
+                for (Map.Entry<String, PendingWrite> entry : writes) {
+                    PendingWrite write = entry.getValue();
+                    String key = getKey(entry.getKey());
+                    if (write.bytes == null) {
+                        store.expire(key, write.ttl);
+                    } else {
+                        batch.add(new KeyValueStore.Entry(key, write.bytes, write.ttl));
+                        if (batch.size() == MAX_BATCH_SIZE) {
+                            store.put(batch);
+                            batch = new ArrayList<>();
+                        }
+                    }
+                }
+                if (!batch.isEmpty()) {
+                    store.put(batch);
+                }
+                if (flushFailing) {
+                    flushFailing = false;
+                    log.info("Wrote {} sessions to store, the store is available again", writes.size());
+                }
+            } catch (Exception e) {
+                int retried = retry(writes);
+                if (flushFailing) {
+                    log.debug("Cannot write {} sessions to store ({} will be retried): {}", writes.size(), retried, e.toString());
+                } else {
+                    flushFailing = true;
+                    log.error("Cannot write {} sessions to store ({} will be retried)", writes.size(), retried, e);
+                }
+            } finally {
+                deleteTombstones();
+            }
+        }
+    }
+
+    /**
+     * Stops the background writes, sends the pending writes to the store and closes the store if it's {@link Closeable}.
+     * It's called when the application is destroyed (see {@link SessionManager#destroy()}).
+     */
+    @Override
+    public void close() {
+        if (flusher != null) {
+            flusher.shutdown();
+        }
+        flush();
+        synchronized (pendingWrites) {
+            if (!pendingWrites.isEmpty()) {
+                log.error("Cannot write {} sessions to store before close", pendingWrites.size());
+            }
+        }
+
+        if (store instanceof Closeable) {
+            IoUtils.close((Closeable) store);
+        }
+    }
+
+    @Override
+    public void setSessionListener(SessionListener sessionListener) {
+        this.sessionListener = sessionListener;
+    }
+
+    public KeyValueStore getStore() {
+        return store;
+    }
+
+    protected String getKey(String sessionId) {
+        return keyPrefix + sessionId;
+    }
+
+    private void enqueue(String sessionId, PendingWrite write) {
+        int pending;
+        synchronized (pendingWrites) {
+            PendingWrite previous = pendingWrites.get(sessionId);
+            if (write.bytes == null && previous != null) {
+                // the pending write will set the time to live anyway
+                return;
+            }
+            pendingWrites.put(sessionId, write);
+            pending = pendingWrites.size();
+        }
+
+        // only once, the retried writes of a failed flush can keep the pending writes above the batch size
+        if (pending == MAX_BATCH_SIZE) {
+            flusher.execute(this::flush);
+        }
+    }
+
+    /**
+     * Puts the writes of a failed flush back to the pending writes, unless the session was deleted
+     * or written again meanwhile. The writes are idempotent so the writes that succeeded can be sent again.
+     */
+    private int retry(List<Map.Entry<String, PendingWrite>> writes) {
+        int retried = 0;
+        synchronized (pendingWrites) {
+            for (Map.Entry<String, PendingWrite> entry : writes) {
+                String sessionId = entry.getKey();
+                PendingWrite write = entry.getValue();
+                if (inFlightWrites.get(sessionId) != write) {
+                    // deleted during the flush
+                    continue;
+                }
+
+                PendingWrite newer = pendingWrites.get(sessionId);
+                // a newer refresh of the time to live doesn't replace the session itself
+                if (newer == null || (newer.bytes == null && write.bytes != null)) {
+                    pendingWrites.put(sessionId, write);
+                    retried++;
+                }
+            }
+        }
+
+        return retried;
+    }
+
+    private void deleteTombstones() {
+        List<String> deleted;
+        synchronized (pendingWrites) {
+            inFlightWrites.clear();
+            if (tombstones.isEmpty()) {
+                return;
+            }
+            deleted = new ArrayList<>(tombstones);
+            tombstones.clear();
+        }
+
+        for (String sessionId : deleted) {
+            try {
+                store.delete(getKey(sessionId));
+            } catch (Exception e) {
+                log.error("Cannot delete session '{}' from store", sessionId, e);
+            }
+        }
+    }
+
+    private byte[] getPending(String sessionId) {
+        synchronized (pendingWrites) {
+            PendingWrite write = pendingWrites.get(sessionId);
+            if (write == null || write.bytes == null) {
+                write = inFlightWrites.get(sessionId);
+            }
+
+            return (write != null) ? write.bytes : null;
+        }
+    }
+
+    private byte[] getCached(String sessionId, long now) {
+        synchronized (nearCache) {
+            CachedSession cached = nearCache.get(sessionId);
+            if (cached == null) {
+                return null;
+            }
+
+            // a stale entry is kept because touch needs the max inactive interval of the session
+            return (now - cached.cachedTime < nearCacheTtl) ? cached.bytes : null;
+        }
+    }
+
+    private void cache(String sessionId, PendingWrite write) {
+        synchronized (nearCache) {
+            nearCache.put(sessionId, new CachedSession(write.bytes, write.ttl, System.currentTimeMillis()));
+        }
+    }
+
+    private static class CachedSession {
+
+        private final byte[] bytes;
+        private final int ttl;
+        private final long cachedTime;
+
+        private CachedSession(byte[] bytes, int ttl, long cachedTime) {
+            this.bytes = bytes;
+            this.ttl = ttl;
+            this.cachedTime = cachedTime;
+        }
+
+    }
+
+    private static class PendingWrite {
+
+        /**
+         * The serialized session or null if only the time to live is refreshed.
+         */
+        private final byte[] bytes;
+        private final int ttl;
+
+        private PendingWrite(byte[] bytes, int ttl) {
+            this.bytes = bytes;
+            this.ttl = ttl;
+        }
+
+    }
+
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.session;
+
+import java.util.List;
+
+/**
+ * A (usually remote) key-value store used by {@link KeyValueSessionDataStorage}.
+ * The time to live is expressed in seconds, a negative value meaning that the key never expires.
+ * The store is responsible for the expiration of the keys.
+ */
+public interface KeyValueStore {
+
+    /**
+     * Returns the value of the key or null if the key doesn't exist or is expired.
+     */
+    byte[] get(String key);
+
+    /**
+     * Stores a batch of values.
+     */
+    void put(List<Entry> entries);
+
+    /**
+     * Sets the time to live of an existing key.
+     */
+    void expire(String key, int ttl);
+
+    void delete(String key);
+
+    class Entry {
+
+        private final String key;
+        private final byte[] value;
+        private final int ttl;
+
+        public Entry(String key, byte[] value, int ttl) {
+            this.key = key;
+            this.value = value;
+            this.ttl = ttl;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public byte[] getValue() {
+            return value;
+        }
+
+        public int getTtl() {
+            return ttl;
+        }
+
+    }
+
+}
@@ -0,0 +1,244 @@
+/*
+ * Copyright (C) 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.session;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ro.pippo.core.PippoRuntimeException;
+import ro.pippo.core.util.IoUtils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Serves a {@link KeyValueStore} (an {@link EmbeddedKeyValueStore} by default) over TCP
+ * to the {@link SocketKeyValueStore}s of other processes.
+ * It's meant for testing a cluster of applications on a single machine,
+ * it has no authentication and no replication.
+ * For this reason the server listens on the loopback interface by default;
+ * bind it to another address only on a trusted network.
+ * <p/>
+ * Run it in a separate process with {@code java ro.pippo.session.KeyValueStoreServer [port] [bindAddress]}.
+ */
+public class KeyValueStoreServer {
+
+    private static final Logger log = LoggerFactory.getLogger(KeyValueStoreServer.class);
+
+    public static final int DEFAULT_PORT = 6380;
+
+    /**
+     * The maximum length (in bytes) of a value on the wire; a longer value closes the connection.
+     */
+    public static final int MAX_VALUE_LENGTH = 16 * 1024 * 1024;
+
+    // the operations of the protocol
+    static final int GET = 1;
+    static final int PUT = 2;
+    static final int EXPIRE = 3;
+    static final int DELETE = 4;
+
+    static final int OK = 0;
+
+    private final KeyValueStore store;
+    private final InetAddress bindAddress;
+    private final int port;
+
+    private ServerSocket serverSocket;
+    private ExecutorService executor;
+
+    public KeyValueStoreServer() {
+        this(DEFAULT_PORT);
+    }
+
+    public KeyValueStoreServer(int port) {
+        this(new EmbeddedKeyValueStore(), port);
+    }
+
+    public KeyValueStoreServer(KeyValueStore store, int port) {
+        this(store, InetAddress.getLoopbackAddress(), port);
+    }
+
+    /**
+     * @param store
+     * @param bindAddress the local address the server listens on; null means all the interfaces
+     * @param port
+     */
+    public KeyValueStoreServer(KeyValueStore store, InetAddress bindAddress, int port) {
+        this.store = store;
+        this.bindAddress = bindAddress;
+        this.port = port;
+    }
+
+    public synchronized void start() {
+        if (serverSocket != null) {
+            return;
+        }
+
+        try {
+            serverSocket = new ServerSocket();
+            serverSocket.bind(new InetSocketAddress(bindAddress, port));
+        } catch (IOException e) {
+            IoUtils.close(serverSocket);
+            serverSocket = null;
+            throw new PippoRuntimeException(e, "Cannot listen on {}:{}", bindAddress, port);
+        }
+
+        executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "pippo-kv-server");
+            thread.setDaemon(true);
+
+            return thread;
+        });
+        executor.execute(this::accept);
+        log.info("Key-value store listening on {}", serverSocket.getLocalSocketAddress());
+    }
+
+    public synchronized void stop() {
+        if (serverSocket == null) {
+            return;
+        }
+
+        IoUtils.close(serverSocket);
+        executor.shutdownNow();
+        serverSocket = null;
+    }
+
+    /**
+     * Returns the port the server listens on (useful when the server was created with the port 0).
+     */
+    public synchronized int getPort() {
+        return (serverSocket != null) ? serverSocket.getLocalPort() : port;
+    }
+
+    public KeyValueStore getStore() {
+        return store;
+    }
+
+    private void accept() {
+        ServerSocket serverSocket = this.serverSocket;
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                executor.execute(() -> serve(socket));
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    log.error("Cannot accept connection", e);
+                }
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try {
+            socket.setTcpNoDelay(true);
+            DataInputStream input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            while (true) {
+                int operation;
+                try {
+                    operation = input.readByte();
+                } catch (EOFException e) {
+                    // the client closed the connection
+                    break;
+                }
+
+                switch (operation) {
+                    case GET:
+                        writeBytes(output, store.get(input.readUTF()));
+                        break;
+                    case PUT:
+                        int count = input.readInt();
+                        if (count < 0) {
+                            throw new IOException("Invalid entries count " + count);
+                        }
+                        List<KeyValueStore.Entry> entries = new ArrayList<>();
+                        for (int i = 0; i < count; i++) {
+                            entries.add(new KeyValueStore.Entry(input.readUTF(), readBytes(input), input.readInt()));
+                        }
+                        store.put(entries);
+                        output.writeByte(OK);
+                        break;
+                    case EXPIRE:
+                        store.expire(input.readUTF(), input.readInt());
+                        output.writeByte(OK);
+                        break;
+                    case DELETE:
+                        store.delete(input.readUTF());
+                        output.writeByte(OK);
+                        break;
+                    default:
+                        throw new IOException("Unknown operation " + operation);
+                }
+                output.flush();
+            }
+        } catch (SocketException e) {
+            log.debug("Connection closed: {}", e.getMessage());
+        } catch (IOException e) {
+            log.error("Cannot serve connection", e);
+        } finally {
+            IoUtils.close(socket);
+        }
+    }
+
+    static void writeBytes(DataOutputStream output, byte[] bytes) throws IOException {
+        if (bytes == null) {
+            output.writeInt(-1);
+        } else {
+            output.writeInt(bytes.length);
+            output.write(bytes);
+        }
+    }
+
+    static byte[] readBytes(DataInputStream input) throws IOException {
+        int length = input.readInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > MAX_VALUE_LENGTH) {
+            // don't trust the peer with the size of the allocation
+            throw new IOException("Value length " + length + " exceeds " + MAX_VALUE_LENGTH);
+        }
+
+        byte[] bytes = new byte[length];
+        input.readFully(bytes);
+
+        return bytes;
+    }
+
+    public static void main(String[] args) throws InterruptedException, UnknownHostException {
+        int port = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        InetAddress bindAddress = (args.length > 1) ? InetAddress.getByName(args[1]) : InetAddress.getLoopbackAddress();
+        new KeyValueStoreServer(new EmbeddedKeyValueStore(), bindAddress, port).start();
+
+        // the server threads are daemons
+        Thread.currentThread().join();
+    }
+
+}
@@ -15,59 +15,406 @@
  */
 package ro.pippo.session;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ro.pippo.core.PippoSettings;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
+ * Keeps the sessions in memory.
+ * <p/>
+ * The sessions are spread over a number of shards, each shard being guarded by its own lock.
+ * Inside a shard the sessions are kept in access order, which is also (almost) their expiry order,
+ * so a background sweeper removes the expired sessions by walking each shard from the least
+ * recently used session and stopping at the first one that cannot be expired yet.
+ * The sweeps of all the storages run on one shared daemon thread, scheduled when the first session is saved.
+ * <p/>
+ * Optionally the number of sessions can be bounded, in which case the least recently used
+ * session of a full shard is evicted when a new session is saved.
+ * <p/>
+ * The {@link SessionListener} is notified of the expired and evicted sessions after the lock
+ * of the shard is released, so a slow listener doesn't block the requests of the other sessions.
+ *
  * @author Decebal Suiu
  */
-public class MemorySessionDataStorage implements SessionDataStorage {
+public class MemorySessionDataStorage implements SessionDataStorage, SessionListenerAware, Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(MemorySessionDataStorage.class);
+
+    public static final int UNBOUNDED = 0;
+    public static final int DEFAULT_SWEEP_INTERVAL_SECONDS = 60;
+
+    private static final int SHARDS = 16;
+
+    private final Shard[] shards;
+    private final int maxSessions;
+
+    private final AtomicLong expiredCount = new AtomicLong();
+    private final AtomicLong evictedCount = new AtomicLong();
 
-    private final Map<String, SessionData> sessions;
+    private final int sweepInterval;
+    private volatile boolean sweeperStarted;
+    private ScheduledFuture<?> sweepTask;
+    private boolean closed;
+
+    private volatile SessionListener sessionListener;
 
     public MemorySessionDataStorage() {
-        sessions = new ConcurrentHashMap<>();
+        this(UNBOUNDED);
+    }
+
+    /**
+     * Reads the maximum number of sessions from <code>session.memory.maxSessions</code> (unbounded by default)
+     * and the sweep interval in seconds from <code>session.memory.sweepInterval</code>.
+     *
+     * @param pippoSettings
+     */
+    public MemorySessionDataStorage(PippoSettings pippoSettings) {
+        this(pippoSettings.getInteger("session.memory.maxSessions", UNBOUNDED),
+            pippoSettings.getInteger("session.memory.sweepInterval", DEFAULT_SWEEP_INTERVAL_SECONDS));
+    }
+
+    /**
+     * @param maxSessions the maximum number of sessions kept in memory or {@link #UNBOUNDED}
+     */
+    public MemorySessionDataStorage(int maxSessions) {
+        this(maxSessions, DEFAULT_SWEEP_INTERVAL_SECONDS);
+    }
+
+    /**
+     * @param maxSessions the maximum number of sessions kept in memory or {@link #UNBOUNDED}
+     * @param sweepInterval the interval in seconds between two sweeps of the expired sessions;
+     * a value less or equal to zero disables the sweeper
+     */
+    public MemorySessionDataStorage(int maxSessions, int sweepInterval) {
+        this.maxSessions = Math.max(maxSessions, UNBOUNDED);
+
+        int shardCount = (this.maxSessions == UNBOUNDED) ? SHARDS : Math.min(SHARDS, this.maxSessions);
+        shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            int capacity = (this.maxSessions == UNBOUNDED) ? UNBOUNDED : this.maxSessions / shardCount;
+            if (i < this.maxSessions % shardCount) {
+                capacity++;
+            }
+            shards[i] = new Shard(capacity);
+        }
+
+        this.sweepInterval = sweepInterval;
     }
 
     @Override
     public SessionData create() {
-//        System.out.println("MemorySessionDataStorage.create");
-//        System.out.println("sessions.size() = " + sessions.size());
         return new SessionData();
     }
 
     @Override
     public void save(SessionData sessionData) {
-//        System.out.println("MemorySessionDataStorage.save");
-//        System.out.println("sessionData = " + sessionData);
-        sessions.put(sessionData.getId(), sessionData);
+        startSweeper();
+
+        Shard shard = getShard(sessionData.getId());
+        shard.put(sessionData);
+        shard.notifyRemovals();
     }
 
     @Override
     public SessionData get(String sessionId) {
-//        System.out.println("MemorySessionDataStorage.get");
-//        System.out.println("sessionId = " + sessionId);
-        SessionData sessionData = sessions.get(sessionId);
-//        System.out.println("sessionData = " + sessionData);
-        if (sessionData == null) {
-            return null;
+        Shard shard = getShard(sessionId);
+        SessionData sessionData = shard.get(sessionId, System.currentTimeMillis());
+        shard.notifyRemovals();
+
+        return sessionData;
+    }
+
+    @Override
+    public void touch(String sessionId, long lastAccessedTime) {
+        getShard(sessionId).touch(sessionId, lastAccessedTime);
+    }
+
+    @Override
+    public void delete(String sessionId) {
+        getShard(sessionId).remove(sessionId);
+    }
+
+    /**
+     * Removes all expired sessions.
+     * It's called periodically by the sweeper but it can be also called directly.
+     */
+    public void sweep() {
+        long now = System.currentTimeMillis();
+        int removed = 0;
+        for (Shard shard : shards) {
+            removed += shard.sweep(now);
+            shard.notifyRemovals();
         }
 
-        if (sessionData.isExpired()) {
-            delete(sessionId);
+        if (removed > 0) {
+            log.debug("Removed {} expired sessions", removed);
+        }
+    }
 
-            return null;
+    /**
+     * Stops the sweeps. The sessions are still available after this call.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        if (sweepTask != null) {
+            sweepTask.cancel(false);
+            sweepTask = null;
         }
+    }
 
-        sessionData.setLastAccessedTime(System.currentTimeMillis());
+    public int getMaxSessions() {
+        return maxSessions;
+    }
 
-        return sessionData;
+    /**
+     * Returns the number of live sessions.
+     */
+    public int getSessionCount() {
+        int count = 0;
+        for (Shard shard : shards) {
+            count += shard.size();
+        }
+
+        return count;
+    }
+
+    /**
+     * Returns the number of sessions removed because they expired.
+     */
+    public long getExpiredSessionCount() {
+        return expiredCount.get();
+    }
+
+    /**
+     * Returns the number of sessions evicted to honor the maximum number of sessions.
+     */
+    public long getEvictedSessionCount() {
+        return evictedCount.get();
     }
 
     @Override
-    public void delete(String sessionId) {
-//        System.out.println("MemorySessionDataStorage.delete");
-        sessions.remove(sessionId);
+    public void setSessionListener(SessionListener sessionListener) {
+        this.sessionListener = sessionListener;
+    }
+
+    private void startSweeper() {
+        if (sweeperStarted || sweepInterval <= 0) {
+            return;
+        }
+
+        synchronized (this) {
+            if (!sweeperStarted && !closed) {
+                sweepTask = Sweeper.EXECUTOR.scheduleWithFixedDelay(this::sweep, sweepInterval, sweepInterval, TimeUnit.SECONDS);
+            }
+            sweeperStarted = true;
+        }
+    }
+
+    private void onExpire(String sessionId) {
+        expiredCount.incrementAndGet();
+        if (sessionListener != null) {
+            sessionListener.onExpire(sessionId);
+        }
+    }
+
+    private void onEvict(String sessionId) {
+        evictedCount.incrementAndGet();
+        if (sessionListener != null) {
+            sessionListener.onEvict(sessionId);
+        }
+    }
+
+    private Shard getShard(String sessionId) {
+        int hash = sessionId.hashCode();
+        hash ^= (hash >>> 16);
+
+        return shards[(hash & 0x7fffffff) % shards.length];
+    }
+
+    /**
+     * The thread shared by the sweeps of all the storages, started by the first storage that needs it.
+     */
+    private static class Sweeper {
+
+        private static final ScheduledExecutorService EXECUTOR = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "pippo-session-sweeper");
+            thread.setDaemon(true);
+
+            return thread;
+        });
+
+    }
+
+    private static class Entry {
+
+        private final SessionData sessionData;
+        private long accessTime;
+
+        private Entry(SessionData sessionData, long accessTime) {
+            this.sessionData = sessionData;
+            this.accessTime = accessTime;
+        }
+
+    }
+
+    private class Shard {
+
+        private final int capacity;
+        private final LinkedHashMap<String, Entry> entries;
+
+        /**
+         * The biggest max inactive interval (in milliseconds) of the sessions stored in this shard.
+         * It never decreases, which only makes the sweeper walk a little further.
+         */
+        private long maxInactiveInterval;
+
+        /**
+         * The ids of the sessions removed under the lock, the listener is notified after the lock is released.
+         */
+        private List<String> expiredIds = new ArrayList<>();
+        private List<String> evictedIds = new ArrayList<>();
+        private volatile boolean removals;
+
+        private Shard(int capacity) {
+            this.capacity = capacity;
+            // access order, the least recently used entry first
+            entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                    if (Shard.this.capacity == UNBOUNDED || size() <= Shard.this.capacity) {
+                        return false;
+                    }
+
+                    SessionData sessionData = eldest.getValue().sessionData;
+                    if (sessionData.isExpired()) {
+                        expired(sessionData.getId());
+                    } else {
+                        evicted(sessionData.getId());
+                    }
+
+                    return true;
+                }
+
+            };
+        }
+
+        private synchronized void put(SessionData sessionData) {
+            long interval = TimeUnit.SECONDS.toMillis(sessionData.getMaxInactiveInterval());
+            if (interval > maxInactiveInterval) {
+                maxInactiveInterval = interval;
+            }
+
+            entries.put(sessionData.getId(), new Entry(sessionData, System.currentTimeMillis()));
+        }
+
+        private synchronized SessionData get(String sessionId, long now) {
+            Entry entry = entries.get(sessionId);
+            if (entry == null) {
+                return null;
+            }
+
+            SessionData sessionData = entry.sessionData;
+            if (sessionData.isExpired(now)) {
+                entries.remove(sessionId);
+                expired(sessionId);
+
+                return null;
+            }
+
+            entry.accessTime = now;
+            sessionData.setLastAccessedTime(now);
+
+            return sessionData;
+        }
+
+        private synchronized void touch(String sessionId, long lastAccessedTime) {
+            Entry entry = entries.get(sessionId);
+            // an expired session is not brought back to life
+            if (entry != null && !entry.sessionData.isExpired()) {
+                entry.accessTime = System.currentTimeMillis();
+                SessionData sessionData = entry.sessionData;
+                if (lastAccessedTime > sessionData.getLastAccessedTime()) {
+                    sessionData.setLastAccessedTime(lastAccessedTime);
+                }
+            }
+        }
+
+        private synchronized void remove(String sessionId) {
+            entries.remove(sessionId);
+        }
+
+        private synchronized int size() {
+            return entries.size();
+        }
+
+        private synchronized int sweep(long now) {
+            int removed = 0;
+            Iterator<Entry> it = entries.values().iterator();
+            while (it.hasNext()) {
+                Entry entry = it.next();
+                if (entry.sessionData.isExpired(now)) {
+                    it.remove();
+                    expired(entry.sessionData.getId());
+                    removed++;
+                } else if (now - entry.accessTime < maxInactiveInterval) {
+                    // the next entries were accessed later so they cannot be expired yet
+                    break;
+                }
+            }
+
+            return removed;
+        }
+
+        private void expired(String sessionId) {
+            expiredIds.add(sessionId);
+            removals = true;
+        }
+
+        private void evicted(String sessionId) {
+            evictedIds.add(sessionId);
+            removals = true;
+        }
+
+        /**
+         * Notifies the listener of the sessions removed meanwhile. It must be called without holding the lock.
+         */
+        private void notifyRemovals() {
+            if (!removals) {
+                return;
+            }
+
+            List<String> expired;
+            List<String> evicted;
+            synchronized (this) {
+                expired = expiredIds;
+                evicted = evictedIds;
+                expiredIds = new ArrayList<>();
+                evictedIds = new ArrayList<>();
+                removals = false;
+            }
+
+            for (String sessionId : expired) {
+                onExpire(sessionId);
+            }
+            for (String sessionId : evicted) {
+                onEvict(sessionId);
+            }
+        }
+
     }
 
 }
@@ -0,0 +1,584 @@
+/*
+ * Copyright (C) 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.session;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ro.pippo.core.PippoRuntimeException;
+import ro.pippo.core.util.IoUtils;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the serialized sessions outside of the java heap, in a direct buffer or in a memory mapped file.
+ * When a file is used the sessions survive the restart of the application.
+ * <p/>
+ * The buffer is split in extents, each extent holding a session or being free.
+ * An extent starts with a small header (state and capacity) followed, for a used extent, by the last accessed time,
+ * the max inactive interval, the session id and the serialized session.
+ * Only a small index (session id to extent) and a few recently used sessions (hot cache) are kept on the heap.
+ * The free extents are reused (best fit), split and merged with their free neighbours.
+ * <p/>
+ * The session attributes must be {@link java.io.Serializable}.
+ */
+public class OffHeapSessionDataStorage implements SessionDataStorage, SessionListenerAware, Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(OffHeapSessionDataStorage.class);
+
+    public static final int DEFAULT_CACHE_SIZE = 1000;
+    public static final int DEFAULT_SWEEP_INTERVAL_SECONDS = 60;
+
+    private static final int MAGIC = 0x50505353; // PPSS
+    private static final int VERSION = 1;
+
+    private static final int FILE_HEADER_SIZE = 64;
+    private static final int EXTENT_HEADER_SIZE = 8; // state + capacity
+    private static final int RECORD_HEADER_SIZE = 18; // last accessed time + max inactive interval + id length + data length
+    private static final int ALIGNMENT = 64;
+
+    private static final int FREE = 0x46524545; // FREE
+    private static final int USED = 0x55534544; // USED
+
+    private static final int INITIAL_SIZE = 1024 * 1024;
+
+    private final File file;
+    private final FileChannel channel;
+    private ByteBuffer buffer;
+
+    /**
+     * The end of the last extent.
+     */
+    private int top;
+
+    private final Map<String, Slot> index;
+    private final NavigableMap<Integer, Integer> freeByOffset;
+    private final NavigableMap<Integer, Deque<Integer>> freeByCapacity;
+
+    private final Map<String, SessionData> cache;
+
+    private final ScheduledExecutorService sweeper;
+
+    private volatile SessionListener sessionListener;
+
+    /**
+     * Creates a storage backed by a direct buffer. The sessions are lost when the application stops.
+     */
+    public OffHeapSessionDataStorage() {
+        this(null);
+    }
+
+    /**
+     * Creates a storage backed by a memory mapped file.
+     * The sessions already stored in the file (and not expired) are available.
+     *
+     * @param file the file or null for a direct buffer
+     */
+    public OffHeapSessionDataStorage(File file) {
+        this(file, DEFAULT_CACHE_SIZE, DEFAULT_SWEEP_INTERVAL_SECONDS);
+    }
+
+    /**
+     * @param file the file or null for a direct buffer
+     * @param cacheSize the number of deserialized sessions kept on the heap
+     * @param sweepInterval the interval in seconds between two sweeps of the expired sessions;
+     * a value less or equal to zero disables the sweeper
+     */
+    public OffHeapSessionDataStorage(File file, int cacheSize, int sweepInterval) {
+        this.file = file;
+
+        index = new HashMap<>();
+        freeByOffset = new TreeMap<>();
+        freeByCapacity = new TreeMap<>();
+        cache = new LinkedHashMap<String, SessionData>(16, 0.75f, true) {
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, SessionData> eldest) {
+                return size() > cacheSize;
+            }
+
+        };
+
+        if (file != null) {
+            try {
+                channel = new RandomAccessFile(file, "rw").getChannel();
+                boolean exists = channel.size() > 0;
+                buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(channel.size(), INITIAL_SIZE));
+                if (exists) {
+                    load();
+                } else {
+                    writeFileHeader();
+                }
+            } catch (IOException e) {
+                throw new PippoRuntimeException(e, "Cannot open session file '{}'", file);
+            }
+        } else {
+            channel = null;
+            buffer = ByteBuffer.allocateDirect(INITIAL_SIZE);
+            writeFileHeader();
+        }
+
+        if (sweepInterval > 0) {
+            sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "pippo-session-sweeper");
+                thread.setDaemon(true);
+
+                return thread;
+            });
+            sweeper.scheduleWithFixedDelay(this::sweep, sweepInterval, sweepInterval, TimeUnit.SECONDS);
+        } else {
+            sweeper = null;
+        }
+    }
+
+    @Override
+    public SessionData create() {
+        return new SessionData();
+    }
+
+    @Override
+    public void save(SessionData sessionData) {
+        byte[] data = SessionDataSerializer.serialize(sessionData);
+        if (sessionListener != null) {
+            sessionListener.onSerialize(sessionData.getId(), data.length);
+        }
+        byte[] id = sessionData.getId().getBytes(StandardCharsets.UTF_8);
+        int size = EXTENT_HEADER_SIZE + RECORD_HEADER_SIZE + id.length + data.length;
+
+        synchronized (this) {
+            Slot slot = index.get(sessionData.getId());
+            int offset;
+            if (slot != null && capacityAt(slot.offset) >= size) {
+                // overwrite in place
+                offset = slot.offset;
+            } else {
+                offset = allocate(size);
+                if (slot != null) {
+                    release(slot.offset);
+                }
+            }
+
+            writeRecord(offset, sessionData, id, data);
+            index.put(sessionData.getId(), new Slot(offset, sessionData.getLastAccessedTime(), sessionData.getMaxInactiveInterval()));
+            cache.put(sessionData.getId(), sessionData);
+        }
+    }
+
+    @Override
+    public synchronized SessionData get(String sessionId) {
+        Slot slot = index.get(sessionId);
+        if (slot == null) {
+            return null;
+        }
+
+        long now = System.currentTimeMillis();
+        if (slot.isExpired(now)) {
+            remove(sessionId, slot);
+            onExpire(sessionId);
+
+            return null;
+        }
+
+        SessionData sessionData = cache.get(sessionId);
+        if (sessionData == null) {
+            sessionData = readRecord(slot.offset);
+            cache.put(sessionId, sessionData);
+        }
+
+        slot.lastAccessedTime = now;
+        buffer.putLong(slot.offset + EXTENT_HEADER_SIZE, now);
+        sessionData.setLastAccessedTime(now);
+
+        return sessionData;
+    }
+
+    @Override
+    public synchronized boolean exists(String sessionId) {
+        Slot slot = index.get(sessionId);
+        if (slot == null) {
+            return false;
+        }
+
+        if (slot.isExpired(System.currentTimeMillis())) {
+            remove(sessionId, slot);
+            onExpire(sessionId);
+
+            return false;
+        }
+
+        return true;
+    }
+
+    @Override
+    public synchronized void touch(String sessionId, long lastAccessedTime) {
+        Slot slot = index.get(sessionId);
+        // an expired session is not brought back to life
+        if (slot != null && lastAccessedTime > slot.lastAccessedTime && !slot.isExpired(System.currentTimeMillis())) {
+            slot.lastAccessedTime = lastAccessedTime;
+            buffer.putLong(slot.offset + EXTENT_HEADER_SIZE, lastAccessedTime);
+        }
+    }
+
+    @Override
+    public synchronized void delete(String sessionId) {
+        Slot slot = index.get(sessionId);
+        if (slot != null) {
+            remove(sessionId, slot);
+        }
+    }
+
+    /**
+     * Removes all expired sessions.
+     * It's called periodically by the sweeper but it can be also called directly.
+     */
+    public synchronized void sweep() {
+        long now = System.currentTimeMillis();
+        List<String> expired = new ArrayList<>();
+        for (Map.Entry<String, Slot> entry : index.entrySet()) {
+            if (entry.getValue().isExpired(now)) {
+                expired.add(entry.getKey());
+            }
+        }
+
+        for (String sessionId : expired) {
+            remove(sessionId, index.get(sessionId));
+            onExpire(sessionId);
+        }
+
+        if (!expired.isEmpty()) {
+            log.debug("Removed {} expired sessions", expired.size());
+        }
+    }
+
+    /**
+     * Stops the sweeper and writes the buffer to the file.
+     * It's called when the application is destroyed (see {@link SessionManager#destroy()}).
+     */
+    @Override
+    public synchronized void close() {
+        if (sweeper != null) {
+            sweeper.shutdownNow();
+        }
+
+        if (channel != null && channel.isOpen()) {
+            ((MappedByteBuffer) buffer).force();
+            IoUtils.close(channel);
+        }
+    }
+
+    public synchronized int getSessionCount() {
+        return index.size();
+    }
+
+    /**
+     * Returns the size in bytes of the buffer (or of the mapped file).
+     */
+    public synchronized int getCapacity() {
+        return buffer.capacity();
+    }
+
+    /**
+     * Returns the number of bytes in use, from the start of the buffer to the end of the last extent.
+     */
+    public synchronized int getSize() {
+        return top;
+    }
+
+    /**
+     * Returns the number of free extents (the holes left by the deleted sessions).
+     */
+    public synchronized int getFreeExtentCount() {
+        return freeByOffset.size();
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    @Override
+    public void setSessionListener(SessionListener sessionListener) {
+        this.sessionListener = sessionListener;
+    }
+
+    private void onExpire(String sessionId) {
+        if (sessionListener != null) {
+            sessionListener.onExpire(sessionId);
+        }
+    }
+
+    private void remove(String sessionId, Slot slot) {
+        index.remove(sessionId);
+        cache.remove(sessionId);
+        release(slot.offset);
+    }
+
+    private void writeFileHeader() {
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        top = FILE_HEADER_SIZE;
+    }
+
+    /**
+     * Rebuilds the index and the free space from the content of the file.
+     */
+    private void load() {
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new PippoRuntimeException("'{}' is not a session file", file);
+        }
+
+        long now = System.currentTimeMillis();
+        int offset = FILE_HEADER_SIZE;
+        while (offset + EXTENT_HEADER_SIZE <= buffer.capacity()) {
+            int state = buffer.getInt(offset);
+            int capacity = buffer.getInt(offset + 4);
+            if (state != USED && state != FREE) {
+                // the end of the extents
+                break;
+            }
+
+            if (capacity < EXTENT_HEADER_SIZE || offset + capacity > buffer.capacity()) {
+                log.warn("Corrupted extent at {} in '{}', ignore the rest of the file", offset, file);
+                break;
+            }
+
+            if (state == USED) {
+                long lastAccessedTime = buffer.getLong(offset + EXTENT_HEADER_SIZE);
+                int maxInactiveInterval = buffer.getInt(offset + EXTENT_HEADER_SIZE + 8);
+                Slot slot = new Slot(offset, lastAccessedTime, maxInactiveInterval);
+                if (slot.isExpired(now)) {
+                    buffer.putInt(offset, FREE);
+                    addFree(offset, capacity);
+                } else {
+                    index.put(readId(offset), slot);
+                }
+            } else {
+                addFree(offset, capacity);
+            }
+
+            offset += capacity;
+        }
+        top = offset;
+
+        // merge the adjacent free extents
+        for (Integer free : new ArrayList<>(freeByOffset.keySet())) {
+            if (freeByOffset.containsKey(free)) {
+                release(free);
+            }
+        }
+
+        log.debug("Loaded {} sessions from '{}'", index.size(), file);
+    }
+
+    private int capacityAt(int offset) {
+        return buffer.getInt(offset + 4);
+    }
+
+    private void writeRecord(int offset, SessionData sessionData, byte[] id, byte[] data) {
+        int position = offset + EXTENT_HEADER_SIZE;
+        buffer.putLong(position, sessionData.getLastAccessedTime());
+        buffer.putInt(position + 8, sessionData.getMaxInactiveInterval());
+        buffer.putShort(position + 12, (short) id.length);
+        buffer.putInt(position + 14, data.length);
+
+        ByteBuffer target = buffer.duplicate();
+        target.position(position + RECORD_HEADER_SIZE);
+        target.put(id);
+        target.put(data);
+
+        buffer.putInt(offset, USED);
+    }
+
+    private String readId(int offset) {
+        int position = offset + EXTENT_HEADER_SIZE;
+        byte[] id = new byte[buffer.getShort(position + 12)];
+
+        ByteBuffer source = buffer.duplicate();
+        source.position(position + RECORD_HEADER_SIZE);
+        source.get(id);
+
+        return new String(id, StandardCharsets.UTF_8);
+    }
+
+    private SessionData readRecord(int offset) {
+        int position = offset + EXTENT_HEADER_SIZE;
+        short idLength = buffer.getShort(position + 12);
+        byte[] data = new byte[buffer.getInt(position + 14)];
+
+        ByteBuffer source = buffer.duplicate();
+        source.position(position + RECORD_HEADER_SIZE + idLength);
+        source.get(data);
+
+        SessionData sessionData = SessionDataSerializer.deserialize(data);
+        // the last accessed time may be updated without a save
+        sessionData.setLastAccessedTime(buffer.getLong(position));
+
+        return sessionData;
+    }
+
+    /**
+     * Returns the offset of an extent with at least the requested size.
+     */
+    private int allocate(int size) {
+        int capacity = align(size);
+
+        Map.Entry<Integer, Deque<Integer>> bestFit = freeByCapacity.ceilingEntry(capacity);
+        if (bestFit != null) {
+            int offset = bestFit.getValue().peek();
+            int freeCapacity = bestFit.getKey();
+            removeFree(offset, freeCapacity);
+            if (freeCapacity - capacity >= ALIGNMENT) {
+                // split
+                setExtent(offset + capacity, FREE, freeCapacity - capacity);
+                addFree(offset + capacity, freeCapacity - capacity);
+            } else {
+                capacity = freeCapacity;
+            }
+            setExtent(offset, USED, capacity);
+
+            return offset;
+        }
+
+        ensureCapacity((long) top + capacity);
+        int offset = top;
+        setExtent(offset, USED, capacity);
+        top += capacity;
+
+        return offset;
+    }
+
+    /**
+     * Marks an extent as free and merges it with its free neighbours.
+     */
+    private void release(int offset) {
+        int capacity = capacityAt(offset);
+        Integer freeCapacity = freeByOffset.get(offset);
+        if (freeCapacity != null) {
+            removeFree(offset, freeCapacity);
+        }
+
+        Map.Entry<Integer, Integer> previous = freeByOffset.lowerEntry(offset);
+        if (previous != null && previous.getKey() + previous.getValue() == offset) {
+            removeFree(previous.getKey(), previous.getValue());
+            offset = previous.getKey();
+            capacity += previous.getValue();
+        }
+
+        Integer next = freeByOffset.get(offset + capacity);
+        if (next != null) {
+            removeFree(offset + capacity, next);
+            capacity += next;
+        }
+
+        if (offset + capacity == top) {
+            // give the space back to the end of the buffer
+            buffer.putInt(offset, 0);
+            top = offset;
+        } else {
+            setExtent(offset, FREE, capacity);
+            addFree(offset, capacity);
+        }
+    }
+
+    private void setExtent(int offset, int state, int capacity) {
+        buffer.putInt(offset, state);
+        buffer.putInt(offset + 4, capacity);
+    }
+
+    private void addFree(int offset, int capacity) {
+        freeByOffset.put(offset, capacity);
+        freeByCapacity.computeIfAbsent(capacity, key -> new ArrayDeque<>()).add(offset);
+    }
+
+    private void removeFree(int offset, int capacity) {
+        freeByOffset.remove(offset);
+        Deque<Integer> offsets = freeByCapacity.get(capacity);
+        offsets.remove(offset);
+        if (offsets.isEmpty()) {
+            freeByCapacity.remove(capacity);
+        }
+    }
+
+    private void ensureCapacity(long size) {
+        if (size <= buffer.capacity()) {
+            return;
+        }
+
+        if (size > Integer.MAX_VALUE) {
+            throw new PippoRuntimeException("The session storage is full");
+        }
+
+        int newSize = (int) Math.min(Integer.MAX_VALUE, Math.max(size, 2L * buffer.capacity()));
+        if (channel != null) {
+            try {
+                buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, newSize);
+            } catch (IOException e) {
+                throw new PippoRuntimeException(e, "Cannot grow session file '{}'", file);
+            }
+        } else {
+            ByteBuffer newBuffer = ByteBuffer.allocateDirect(newSize);
+            ByteBuffer source = buffer.duplicate();
+            source.limit(top);
+            newBuffer.put(source);
+            buffer = newBuffer;
+        }
+        log.debug("Session storage grown to {} bytes", newSize);
+    }
+
+    private static int align(int size) {
+        return (size + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+    }
+
+    private static class Slot {
+
+        private final int offset;
+        private final int maxInactiveInterval;
+        private long lastAccessedTime;
+
+        private Slot(int offset, long lastAccessedTime, int maxInactiveInterval) {
+            this.offset = offset;
+            this.lastAccessedTime = lastAccessedTime;
+            this.maxInactiveInterval = maxInactiveInterval;
+        }
+
+        private boolean isExpired(long now) {
+            if (maxInactiveInterval < 0) {
+                return false;
+            }
+
+            return now - TimeUnit.SECONDS.toMillis(maxInactiveInterval) >= lastAccessedTime;
+        }
+
+    }
+
+}
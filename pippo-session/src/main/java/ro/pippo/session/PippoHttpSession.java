@@ -22,42 +22,80 @@ import java.util.Collections;
 import java.util.Enumeration;
 
 /**
+ * A {@link HttpSession} backed by a {@link SessionData}.
+ * The session data can be loaded lazily (see {@link #loadSessionData()}), on first use.
+ *
  * @author Decebal Suiu
  */
 class PippoHttpSession implements HttpSession {
 
-    private final SessionData sessionData;
+    private final String id;
     private final ServletContext servletContext;
 
+    private SessionData sessionData;
+
     private boolean invalidated;
     private boolean old;
 
     public PippoHttpSession(SessionData sessionData, ServletContext servletContext) {
+        this.id = sessionData.getId();
         this.sessionData = sessionData;
         this.servletContext = servletContext;
     }
 
+    /**
+     * Creates a session whose data is loaded on first use.
+     *
+     * @param id the id of the session
+     * @param servletContext
+     */
+    public PippoHttpSession(String id, ServletContext servletContext) {
+        this.id = id;
+        this.servletContext = servletContext;
+    }
+
     public SessionData getSessionData() {
+        if (sessionData == null) {
+            sessionData = loadSessionData();
+        }
+
         return sessionData;
     }
 
+    /**
+     * Returns true if the session data is available (it was loaded or the session was created with it).
+     */
+    public boolean isLoaded() {
+        return sessionData != null;
+    }
+
+    /**
+     * Loads the session data of a lazy session.
+     */
+    protected SessionData loadSessionData() {
+        throw new IllegalStateException("Cannot load the data of session '" + id + "'");
+    }
+
+    /**
+     * Returns the id of the session without loading the session data.
+     */
     @Override
     public String getId() {
-        return sessionData.getId();
+        return id;
     }
 
     @Override
     public long getCreationTime() {
         checkInvalidated();
 
-        return sessionData.getCreationTime();
+        return getSessionData().getCreationTime();
     }
 
     @Override
     public long getLastAccessedTime() {
         checkInvalidated();
 
-        return sessionData.getLastAccessedTime();
+        return getSessionData().getLastAccessedTime();
     }
 
     @Override
@@ -67,14 +105,14 @@ class PippoHttpSession implements HttpSession {
 
     @Override
     public void setMaxInactiveInterval(int interval) {
-        sessionData.setMaxInactiveInterval(interval);
+        getSessionData().setMaxInactiveInterval(interval);
     }
 
     @Override
     public int getMaxInactiveInterval() {
         checkInvalidated();
 
-        return sessionData.getMaxInactiveInterval();
+        return getSessionData().getMaxInactiveInterval();
     }
 
     @Override
@@ -88,7 +126,7 @@ class PippoHttpSession implements HttpSession {
     public Object getAttribute(String name) {
         checkInvalidated();
 
-        return sessionData.getAttribute(name);
+        return getSessionData().getAttribute(name);
     }
 
     @Override
@@ -102,7 +140,7 @@ class PippoHttpSession implements HttpSession {
     public Enumeration<String> getAttributeNames() {
         checkInvalidated();
 
-        return Collections.enumeration(sessionData.getAttributeNames());
+        return Collections.enumeration(getSessionData().getAttributeNames());
     }
 
     @Override
@@ -111,14 +149,14 @@ class PippoHttpSession implements HttpSession {
     public String[] getValueNames() {
         checkInvalidated();
 
-        return sessionData.getAttributeNames().toArray(new String[0]);
+        return getSessionData().getAttributeNames().toArray(new String[0]);
     }
 
     @Override
     public void setAttribute(String name, Object value) {
         checkInvalidated();
 
-        sessionData.setAttribute(name, value);
+        getSessionData().setAttribute(name, value);
     }
 
     @Override
@@ -132,7 +170,7 @@ class PippoHttpSession implements HttpSession {
     public void removeAttribute(String name) {
         checkInvalidated();
 
-        sessionData.removeAttribute(name);
+        getSessionData().removeAttribute(name);
     }
 
     @Override
@@ -178,20 +216,21 @@ class PippoHttpSession implements HttpSession {
 
         PippoHttpSession that = (PippoHttpSession) o;
 
-        if (!sessionData.equals(that.sessionData)) return false;
+        if (!getId().equals(that.getId())) return false;
 
         return true;
     }
 
     @Override
     public int hashCode() {
-        return sessionData.hashCode();
+        return getId().hashCode();
     }
 
     @Override
     public String toString() {
         return "PippoHttpSession{" +
-            "sessionData=" + sessionData +
+            "id='" + getId() + '\'' +
+            ", sessionData=" + sessionData +
             '}';
     }
 
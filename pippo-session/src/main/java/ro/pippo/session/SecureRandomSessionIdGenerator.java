@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.session;
+
+import ro.pippo.core.PippoRuntimeException;
+
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * The default {@link SessionIdGenerator}.
+ * It draws random bytes from a {@link SecureRandom} per thread (so the threads don't compete for
+ * a single generator) and encodes them with URL safe Base64 without padding.
+ */
+public class SecureRandomSessionIdGenerator implements SessionIdGenerator {
+
+    public static final int DEFAULT_ENTROPY_BYTES = 16; // 128 bits
+    public static final String DEFAULT_ALGORITHM = "SHA1PRNG";
+
+    private static final Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+
+    private final int entropyBytes;
+    private final ThreadLocal<SecureRandom> random;
+
+    public SecureRandomSessionIdGenerator() {
+        this(DEFAULT_ENTROPY_BYTES);
+    }
+
+    public SecureRandomSessionIdGenerator(int entropyBytes) {
+        this(entropyBytes, DEFAULT_ALGORITHM);
+    }
+
+    /**
+     * @param entropyBytes the number of random bytes of an id
+     * @param algorithm the {@link SecureRandom} algorithm or null for the platform default
+     */
+    public SecureRandomSessionIdGenerator(int entropyBytes, String algorithm) {
+        if (entropyBytes <= 0) {
+            throw new PippoRuntimeException("The entropy must be positive");
+        }
+
+        this.entropyBytes = entropyBytes;
+        random = ThreadLocal.withInitial(() -> createSecureRandom(algorithm));
+    }
+
+    @Override
+    public String generate() {
+        byte[] bytes = new byte[entropyBytes];
+        random.get().nextBytes(bytes);
+
+        return encoder.encodeToString(bytes);
+    }
+
+    public int getEntropyBytes() {
+        return entropyBytes;
+    }
+
+    private static SecureRandom createSecureRandom(String algorithm) {
+        if (algorithm == null) {
+            return new SecureRandom();
+        }
+
+        try {
+            SecureRandom secureRandom = SecureRandom.getInstance(algorithm);
+            // seed it now from the system entropy source (self-seeding)
+            secureRandom.nextBytes(new byte[1]);
+
+            return secureRandom;
+        } catch (NoSuchAlgorithmException e) {
+            throw new PippoRuntimeException(e, "Unknown SecureRandom algorithm '{}'", algorithm);
+        }
+    }
+
+}
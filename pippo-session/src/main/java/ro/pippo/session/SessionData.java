@@ -15,47 +15,108 @@
  */
 package ro.pippo.session;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
-import java.util.HashMap;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
 /**
  * Persistable data about a session.
+ * The attributes can be used by concurrent requests of the same session.
+ * <p/>
+ * The session data tracks its changes (attributes added, replaced or removed and mutable attributes
+ * that were read, because they can be modified in place) so that an unchanged session is not saved again.
  * @see SessionDataStorage
  *
  * @author Decebal Suiu
  */
 public class SessionData implements Serializable {
 
+    // the value computed for the previous releases, the sessions serialized by them can still be read
+    private static final long serialVersionUID = 167408481321413026L;
+
     public static final int DEFAULT_MAX_INACTIVE_INTERVAL_SECONDS = 30 * 60; // 30 minutes
 
+    /**
+     * The attribute types that cannot be modified in place.
+     */
+    private static final Set<Class<?>> IMMUTABLE_TYPES = new HashSet<>(Arrays.asList(
+        String.class, Boolean.class, Character.class, Byte.class, Short.class, Integer.class, Long.class,
+        Float.class, Double.class, BigInteger.class, BigDecimal.class, UUID.class
+    ));
+
+    private static volatile SessionIdGenerator idGenerator = new SecureRandomSessionIdGenerator();
+
+    private static final AtomicIntegerFieldUpdater<SessionData> DIRTY = AtomicIntegerFieldUpdater.newUpdater(SessionData.class, "dirty");
+
     private String id;
     private Map<String, Object> attributes;
 
     private long creationTime;
-    private long lastAccessedTime;
-    private int maxInactiveInterval;
+    private volatile long lastAccessedTime;
+    private volatile int maxInactiveInterval;
+
+    // 1 if dirty (an int because it's atomically cleared)
+    private transient volatile int dirty;
 
     public SessionData() {
-        id = UUID.randomUUID().toString().replace("-", "");
-        attributes = new HashMap<>();
+        this(idGenerator.generate());
+    }
+
+    /**
+     * Creates a session data with a known id (for example when a {@link SessionDataStorage}
+     * rebuilds a session from its own representation).
+     *
+     * @param id
+     */
+    public SessionData(String id) {
+        this.id = id;
+        attributes = new ConcurrentHashMap<>();
         creationTime = lastAccessedTime = System.currentTimeMillis();
         maxInactiveInterval = DEFAULT_MAX_INACTIVE_INTERVAL_SECONDS;
+        // a new session must be saved
+        dirty = 1;
     }
 
     public String getId() {
         return id;
     }
 
+    public static SessionIdGenerator getIdGenerator() {
+        return idGenerator;
+    }
+
+    /**
+     * Sets the generator used for the ids of the new sessions.
+     *
+     * @param idGenerator
+     */
+    public static void setIdGenerator(SessionIdGenerator idGenerator) {
+        SessionData.idGenerator = idGenerator;
+    }
+
     public Object getAttribute(String name) {
-        return attributes.get(name);
+        Object value = attributes.get(name);
+        if (value != null && !isImmutable(value)) {
+            // the caller may modify the value
+            dirty = 1;
+        }
+
+        return value;
     }
 
     public Set<String> getAttributeNames() {
-        return attributes.keySet();
+        return Collections.unmodifiableSet(attributes.keySet());
     }
 
     public void setAttribute(String name, Object value) {
@@ -63,11 +124,14 @@ public class SessionData implements Serializable {
             removeAttribute(name);
         } else {
             attributes.put(name, value);
+            dirty = 1;
         }
     }
 
     public void removeAttribute(String name) {
-        attributes.remove(name);
+        if (attributes.remove(name) != null) {
+            dirty = 1;
+        }
     }
 
     public long getCreationTime() {
@@ -87,7 +151,10 @@ public class SessionData implements Serializable {
     }
 
     public void setMaxInactiveInterval(int interval) {
-        this.maxInactiveInterval = interval;
+        if (interval != maxInactiveInterval) {
+            this.maxInactiveInterval = interval;
+            dirty = 1;
+        }
     }
 
     public int getMaxInactiveInterval() {
@@ -106,6 +173,46 @@ public class SessionData implements Serializable {
         return now - TimeUnit.SECONDS.toMillis(maxInactiveInterval) >= lastAccessedTime;
     }
 
+    /**
+     * Returns true if the session data was changed since it was created or saved.
+     * A change of the last accessed time doesn't make the session data dirty.
+     */
+    public boolean isDirty() {
+        return dirty == 1;
+    }
+
+    public void setDirty(boolean dirty) {
+        this.dirty = dirty ? 1 : 0;
+    }
+
+    /**
+     * Atomically clears the dirty flag.
+     * A change made after this call makes the session data dirty again.
+     *
+     * @return true if the session data was dirty
+     */
+    public boolean clearDirty() {
+        return DIRTY.getAndSet(this, 0) == 1;
+    }
+
+    private static boolean isImmutable(Object value) {
+        return IMMUTABLE_TYPES.contains(value.getClass()) || (value instanceof Enum);
+    }
+
+    private void readObject(ObjectInputStream input) throws IOException, ClassNotFoundException {
+        input.defaultReadObject();
+        if (!(attributes instanceof ConcurrentHashMap)) {
+            // a session serialized by a previous release (a HashMap that may contain null values)
+            Map<String, Object> concurrentAttributes = new ConcurrentHashMap<>();
+            attributes.forEach((name, value) -> {
+                if (value != null) {
+                    concurrentAttributes.put(name, value);
+                }
+            });
+            attributes = concurrentAttributes;
+        }
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.session;
+
+import ro.pippo.core.PippoRuntimeException;
+import ro.pippo.core.util.IoUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+/**
+ * Converts a {@link SessionData} to bytes and back using java serialization.
+ * It's used by the storages that keep the sessions outside of the java heap.
+ */
+class SessionDataSerializer {
+
+    private SessionDataSerializer() {
+    }
+
+    static byte[] serialize(SessionData sessionData) {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        ObjectOutputStream objectOutputStream = null;
+        try {
+            objectOutputStream = new ObjectOutputStream(outputStream);
+            objectOutputStream.writeObject(sessionData);
+            objectOutputStream.flush();
+
+            return outputStream.toByteArray();
+        } catch (IOException e) {
+            throw new PippoRuntimeException(e, "Cannot serialize session '{}'", sessionData.getId());
+        } finally {
+            IoUtils.close(objectOutputStream);
+        }
+    }
+
+    static SessionData deserialize(byte[] data) {
+        ObjectInputStream objectInputStream = null;
+        try {
+            objectInputStream = new ObjectInputStream(new ByteArrayInputStream(data));
+
+            return (SessionData) objectInputStream.readObject();
+        } catch (IOException | ClassNotFoundException e) {
+            throw new PippoRuntimeException(e, "Cannot deserialize session");
+        } finally {
+            IoUtils.close(objectInputStream);
+        }
+    }
+
+}
@@ -28,6 +28,35 @@ public interface SessionDataStorage {
 
     SessionData get(String sessionId);
 
+    /**
+     * Returns true if the session exists and is not expired.
+     * A storage can override it to answer without reading the attributes of the session.
+     *
+     * @param sessionId
+     * @return true if the session exists
+     */
+    default boolean exists(String sessionId) {
+        return get(sessionId) != null;
+    }
+
+    /**
+     * Called instead of {@link #save(SessionData)} when only the last accessed time of a session changed.
+     * The default implementation reads the session and saves it again; the storages that can refresh
+     * the last accessed time (or the time to live) in place override it.
+     *
+     * @param sessionId
+     * @param lastAccessedTime
+     */
+    default void touch(String sessionId, long lastAccessedTime) {
+        SessionData sessionData = get(sessionId);
+        if (sessionData != null) {
+            if (lastAccessedTime > sessionData.getLastAccessedTime()) {
+                sessionData.setLastAccessedTime(lastAccessedTime);
+            }
+            save(sessionData);
+        }
+    }
+
     void delete(String sessionId);
 
 }
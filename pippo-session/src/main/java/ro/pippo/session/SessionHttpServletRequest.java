@@ -19,6 +19,7 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletRequestWrapper;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
+import java.util.concurrent.locks.Lock;
 
 /**
  * @author Decebal Suiu
@@ -29,6 +30,7 @@ public class SessionHttpServletRequest extends HttpServletRequestWrapper {
 
     private PippoHttpSession currentSession;
     private Boolean requestedSessionIdValid;
+    private boolean requestedSessionInvalidated;
 
     public SessionHttpServletRequest(HttpServletRequest request, SessionManager sessionManager) {
         super(request);
@@ -43,15 +45,11 @@ public class SessionHttpServletRequest extends HttpServletRequestWrapper {
         }
 
         String requestedSessionId = getRequestedSessionId();
-        if (requestedSessionId != null) {
-            SessionData session = getSessionDataStorage().get(requestedSessionId);
-            if (session != null) {
-                requestedSessionIdValid = true;
-                currentSession = createSession(session);
-                currentSession.setNew(false);
-
-                return currentSession;
-            }
+        if (requestedSessionId != null && !requestedSessionInvalidated && isRequestedSessionIdValid()) {
+            // the session exists, its attributes are read from storage on first use
+            currentSession = createLazySession(requestedSessionId);
+
+            return currentSession;
         }
 
         if (!create) {
@@ -78,44 +76,73 @@ public class SessionHttpServletRequest extends HttpServletRequestWrapper {
     public boolean isRequestedSessionIdValid() {
         if (requestedSessionIdValid == null) {
             String sessionId = getRequestedSessionId();
-            SessionData sessionData = (sessionId != null) ? getSessionDataStorage().get(sessionId) : null;
-
-            return isRequestedSessionIdValid(sessionData);
+            requestedSessionIdValid = (sessionId != null) && getSessionDataStorage().exists(sessionId);
         }
 
-        return super.isRequestedSessionIdValid();
+        // the result of the first lookup is reused
+        return requestedSessionIdValid;
     }
 
     private SessionDataStorage getSessionDataStorage() {
-        return sessionManager.getSessionDataStorage();
+        return sessionManager.getRequestSessionDataStorage();
     }
 
     private SessionStrategy getSessionStrategy() {
         return sessionManager.getSessionStrategy();
     }
 
-    private boolean isRequestedSessionIdValid(SessionData sessionData) {
-        if (requestedSessionIdValid == null) {
-            requestedSessionIdValid = (sessionData != null);
-        }
+    private PippoHttpSession createSession(SessionData sessionData) {
+        return new PippoHttpSession(sessionData, getServletContext()) {
 
-        return requestedSessionIdValid;
+            @Override
+            public void onInvalidate() {
+                onInvalidateSession(getId());
+            }
+
+        };
     }
 
-    private PippoHttpSession createSession(SessionData sessionData) {
-        return new PippoHttpSession(sessionData, getServletContext()) {
+    private PippoHttpSession createLazySession(String sessionId) {
+        PippoHttpSession session = new PippoHttpSession(sessionId, getServletContext()) {
+
+            @Override
+            protected SessionData loadSessionData() {
+                SessionData sessionData = getSessionDataStorage().get(sessionId);
+                if (sessionData != null) {
+                    return sessionData;
+                }
+
+                // the session expired meanwhile; it keeps its id and it's saved (as a new session) only if it's modified
+                requestedSessionIdValid = false;
+                sessionData = new SessionData(sessionId);
+                sessionData.setDirty(false);
+
+                return sessionData;
+            }
 
             @Override
             public void onInvalidate() {
-                currentSession = null;
-                getSessionDataStorage().delete(getId());
+                onInvalidateSession(getId());
             }
 
         };
+        session.setNew(false);
+
+        return session;
+    }
+
+    private void onInvalidateSession(String sessionId) {
+        currentSession = null;
+        requestedSessionInvalidated = true;
+        if (sessionId.equals(getRequestedSessionId())) {
+            requestedSessionIdValid = false;
+        }
+        getSessionDataStorage().delete(sessionId);
     }
 
     private boolean isInvalidateClientSession() {
-        return (currentSession == null) && isRequestedSessionIdValid();
+        // a session that was never requested by this request is left untouched on client
+        return (currentSession == null) && requestedSessionInvalidated && (getRequestedSessionId() != null);
     }
 
     public void commitSession(HttpServletResponse response) {
@@ -125,10 +152,35 @@ public class SessionHttpServletRequest extends HttpServletRequestWrapper {
             if (isInvalidateClientSession()) {
                 getSessionStrategy().onInvalidatedSession(this, response);
             }
+        } else if (!wrappedSession.isLoaded()) {
+            // the session was not used by this request, only its last accessed time changes
+            getSessionDataStorage().touch(wrappedSession.getId(), System.currentTimeMillis());
         } else {
             SessionData sessionData = wrappedSession.getSessionData();
-            getSessionDataStorage().save(sessionData);
-            if (!isRequestedSessionIdValid() || !sessionData.getId().equals(getRequestedSessionId())) {
+            // the validity is known from the lazy load, a created session has a fresh id
+            boolean newSession = !Boolean.TRUE.equals(requestedSessionIdValid) || !sessionData.getId().equals(getRequestedSessionId());
+            Lock lock = sessionManager.getSessionLock().get(sessionData.getId());
+            lock.lock();
+            try {
+                // clear the flag before save; a concurrent change makes the session dirty again
+                if (sessionData.clearDirty()) {
+                    try {
+                        getSessionDataStorage().save(sessionData);
+                    } catch (RuntimeException e) {
+                        sessionData.setDirty(true);
+                        throw e;
+                    }
+                } else if (newSession) {
+                    // an unmodified replacement of a missing session, there is nothing to keep
+                    return;
+                } else {
+                    getSessionDataStorage().touch(sessionData.getId(), sessionData.getLastAccessedTime());
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            if (newSession) {
                 getSessionStrategy().onNewSession(this, response, sessionData);
             }
         }
@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.session;
+
+/**
+ * Receives the session events, for example to collect metrics.
+ * The latencies are expressed in nanoseconds.
+ *
+ * @see SessionManager#getSessionListeners()
+ */
+public interface SessionListener {
+
+    void onCreate(SessionData sessionData);
+
+    /**
+     * @param sessionId
+     * @param found false if the session doesn't exist (or is expired)
+     * @param latency
+     */
+    void onLoad(String sessionId, boolean found, long latency);
+
+    void onSave(SessionData sessionData, long latency);
+
+    void onTouch(String sessionId, long latency);
+
+    void onDelete(String sessionId, long latency);
+
+    /**
+     * Called by the storages that serialize the sessions.
+     *
+     * @param sessionId
+     * @param size the size in bytes of the serialized session
+     */
+    void onSerialize(String sessionId, int size);
+
+    /**
+     * Called by the storages that expire the sessions themselves.
+     */
+    void onExpire(String sessionId);
+
+    /**
+     * Called by the storages that evict sessions to bound their size.
+     */
+    void onEvict(String sessionId);
+
+}
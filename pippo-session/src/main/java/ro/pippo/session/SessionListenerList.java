@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.session;
+
+import ro.pippo.core.util.ListenerList;
+
+public class SessionListenerList extends ListenerList<SessionListener> implements SessionListener {
+
+    @Override
+    public void onCreate(SessionData sessionData) {
+        notify(listener -> listener.onCreate(sessionData));
+    }
+
+    @Override
+    public void onLoad(String sessionId, boolean found, long latency) {
+        notify(listener -> listener.onLoad(sessionId, found, latency));
+    }
+
+    @Override
+    public void onSave(SessionData sessionData, long latency) {
+        notify(listener -> listener.onSave(sessionData, latency));
+    }
+
+    @Override
+    public void onTouch(String sessionId, long latency) {
+        notify(listener -> listener.onTouch(sessionId, latency));
+    }
+
+    @Override
+    public void onDelete(String sessionId, long latency) {
+        notify(listener -> listener.onDelete(sessionId, latency));
+    }
+
+    @Override
+    public void onSerialize(String sessionId, int size) {
+        notify(listener -> listener.onSerialize(sessionId, size));
+    }
+
+    @Override
+    public void onExpire(String sessionId) {
+        notify(listener -> listener.onExpire(sessionId));
+    }
+
+    @Override
+    public void onEvict(String sessionId) {
+        notify(listener -> listener.onEvict(sessionId));
+    }
+
+}
@@ -15,6 +15,10 @@
  */
 package ro.pippo.session;
 
+import ro.pippo.core.util.IoUtils;
+
+import java.io.Closeable;
+
 /**
  * @author Decebal Suiu
  */
@@ -22,6 +26,9 @@ public class SessionManager {
 
     private SessionDataStorage sessionDataStorage;
     private SessionStrategy sessionStrategy;
+    private StripedLock sessionLock;
+    private SessionListenerList sessionListeners;
+    private SessionDataStorage instrumentedSessionDataStorage;
 
     public SessionManager() {
         this(new MemorySessionDataStorage());
@@ -34,6 +41,14 @@ public class SessionManager {
     public SessionManager(SessionDataStorage sessionDataStorage, SessionStrategy sessionStrategy) {
         this.sessionDataStorage = sessionDataStorage;
         this.sessionStrategy = sessionStrategy;
+
+        sessionLock = new StripedLock();
+
+        sessionListeners = new SessionListenerList();
+        instrumentedSessionDataStorage = new InstrumentedSessionDataStorage(sessionDataStorage, sessionListeners);
+        if (sessionDataStorage instanceof SessionListenerAware) {
+            ((SessionListenerAware) sessionDataStorage).setSessionListener(sessionListeners);
+        }
     }
 
     public SessionDataStorage getSessionDataStorage() {
@@ -44,4 +59,36 @@ public class SessionManager {
         return sessionStrategy;
     }
 
+    /**
+     * Returns the lock that serializes the commits of the same session.
+     */
+    public StripedLock getSessionLock() {
+        return sessionLock;
+    }
+
+    /**
+     * Returns the listeners notified about the session events (for example the storage operations and their latency).
+     */
+    public SessionListenerList getSessionListeners() {
+        return sessionListeners;
+    }
+
+    /**
+     * Returns the storage used by the requests: the storage itself or,
+     * when there are session listeners, a decorator that notifies them.
+     */
+    SessionDataStorage getRequestSessionDataStorage() {
+        return sessionListeners.isEmpty() ? sessionDataStorage : instrumentedSessionDataStorage;
+    }
+
+    /**
+     * Closes the session data storage if it's {@link Closeable} (stops its background threads, releases its files).
+     * It's called by {@link SessionRequestResponseFactory} when the application is destroyed.
+     */
+    public void destroy() {
+        if (sessionDataStorage instanceof Closeable) {
+            IoUtils.close((Closeable) sessionDataStorage);
+        }
+    }
+
 }
@@ -37,6 +37,10 @@ public class SessionRequestResponseFactory extends RequestResponseFactory {
         this.sessionManager = sessionManager;
     }
 
+    public SessionManager getSessionManager() {
+        return sessionManager;
+    }
+
     @Override
     public Request createRequest(HttpServletRequest httpServletRequest, Response response) {
         final SessionHttpServletRequest sessionHttpServletRequest = new SessionHttpServletRequest(httpServletRequest, sessionManager);
@@ -57,4 +61,9 @@ public class SessionRequestResponseFactory extends RequestResponseFactory {
         return super.createResponse(httpServletResponse);
     }
 
+    @Override
+    public void destroy() {
+        sessionManager.destroy();
+    }
+
 }
@@ -0,0 +1,213 @@
+/*
+ * Copyright (C) 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.session;
+
+import ro.pippo.core.PippoRuntimeException;
+import ro.pippo.core.util.IoUtils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * A {@link KeyValueStore} client of a {@link KeyValueStoreServer}.
+ * The connections are pooled, a connection is opened when no idle connection is available.
+ * The connect and read operations time out (see {@link #setConnectTimeout(int)} and {@link #setReadTimeout(int)}),
+ * so a store that doesn't answer fails the operation instead of blocking the calling thread.
+ */
+public class SocketKeyValueStore implements KeyValueStore, Closeable {
+
+    public static final int DEFAULT_CONNECT_TIMEOUT_MILLIS = 1000;
+    public static final int DEFAULT_READ_TIMEOUT_MILLIS = 2000;
+
+    private static final int MAX_IDLE_CONNECTIONS = 8;
+
+    private final String host;
+    private final int port;
+
+    private final BlockingQueue<Connection> idleConnections;
+
+    private int connectTimeout = DEFAULT_CONNECT_TIMEOUT_MILLIS;
+    private int readTimeout = DEFAULT_READ_TIMEOUT_MILLIS;
+
+    public SocketKeyValueStore() {
+        this("localhost", KeyValueStoreServer.DEFAULT_PORT);
+    }
+
+    public SocketKeyValueStore(String host, int port) {
+        this.host = host;
+        this.port = port;
+
+        idleConnections = new LinkedBlockingQueue<>(MAX_IDLE_CONNECTIONS);
+    }
+
+    public int getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    /**
+     * The timeout (in milliseconds) of opening a connection; zero means no timeout.
+     */
+    public SocketKeyValueStore setConnectTimeout(int connectTimeout) {
+        this.connectTimeout = connectTimeout;
+
+        return this;
+    }
+
+    public int getReadTimeout() {
+        return readTimeout;
+    }
+
+    /**
+     * The timeout (in milliseconds) of waiting for the answer of the store; zero means no timeout.
+     * It applies to the new connections.
+     */
+    public SocketKeyValueStore setReadTimeout(int readTimeout) {
+        this.readTimeout = readTimeout;
+
+        return this;
+    }
+
+    @Override
+    public byte[] get(String key) {
+        return execute(connection -> {
+            connection.output.writeByte(KeyValueStoreServer.GET);
+            connection.output.writeUTF(key);
+            connection.output.flush();
+
+            return KeyValueStoreServer.readBytes(connection.input);
+        });
+    }
+
+    @Override
+    public void put(List<Entry> entries) {
+        execute(connection -> {
+            connection.output.writeByte(KeyValueStoreServer.PUT);
+            connection.output.writeInt(entries.size());
+            for (Entry entry : entries) {
+                connection.output.writeUTF(entry.getKey());
+                KeyValueStoreServer.writeBytes(connection.output, entry.getValue());
+                connection.output.writeInt(entry.getTtl());
+            }
+            connection.output.flush();
+
+            return connection.input.readByte();
+        });
+    }
+
+    @Override
+    public void expire(String key, int ttl) {
+        execute(connection -> {
+            connection.output.writeByte(KeyValueStoreServer.EXPIRE);
+            connection.output.writeUTF(key);
+            connection.output.writeInt(ttl);
+            connection.output.flush();
+
+            return connection.input.readByte();
+        });
+    }
+
+    @Override
+    public void delete(String key) {
+        execute(connection -> {
+            connection.output.writeByte(KeyValueStoreServer.DELETE);
+            connection.output.writeUTF(key);
+            connection.output.flush();
+
+            return connection.input.readByte();
+        });
+    }
+
+    /**
+     * Closes the idle connections.
+     */
+    @Override
+    public void close() {
+        Connection connection;
+        while ((connection = idleConnections.poll()) != null) {
+            connection.close();
+        }
+    }
+
+    private <T> T execute(Operation<T> operation) {
+        Connection connection = idleConnections.poll();
+        try {
+            if (connection == null) {
+                connection = openConnection();
+            }
+
+            T result = operation.execute(connection);
+            if (!idleConnections.offer(connection)) {
+                connection.close();
+            }
+
+            return result;
+        } catch (IOException e) {
+            if (connection != null) {
+                connection.close();
+            }
+
+            throw new PippoRuntimeException(e, "Cannot communicate with key-value store {}:{}", host, port);
+        }
+    }
+
+    private Connection openConnection() throws IOException {
+        Socket socket = new Socket();
+        try {
+            socket.connect(new InetSocketAddress(host, port), connectTimeout);
+            socket.setSoTimeout(readTimeout);
+
+            return new Connection(socket);
+        } catch (IOException e) {
+            IoUtils.close(socket);
+            throw e;
+        }
+    }
+
+    private interface Operation<T> {
+
+        T execute(Connection connection) throws IOException;
+
+    }
+
+    private static class Connection {
+
+        private final Socket socket;
+        private final DataInputStream input;
+        private final DataOutputStream output;
+
+        private Connection(Socket socket) throws IOException {
+            this.socket = socket;
+            socket.setTcpNoDelay(true);
+            input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        }
+
+        private void close() {
+            IoUtils.close(socket);
+        }
+
+    }
+
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright (C) 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.session;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import ro.pippo.core.PippoRuntimeException;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+
+public class KeyValueSessionDataStorageTest {
+
+    private static final long MANUAL_FLUSH = TimeUnit.HOURS.toMillis(1);
+
+    private FlakyKeyValueStore store;
+    private KeyValueSessionDataStorage storage;
+
+    @Before
+    public void setUp() {
+        store = new FlakyKeyValueStore();
+        storage = new KeyValueSessionDataStorage(store, 10, TimeUnit.MINUTES.toMillis(1), MANUAL_FLUSH);
+    }
+
+    @After
+    public void tearDown() {
+        storage.close();
+    }
+
+    @Test
+    public void testWriteBehind() {
+        SessionData sessionData = createSessionData("admin");
+        storage.save(sessionData);
+
+        // the pending write is visible to this node
+        assertNull(store.get(getKey(sessionData)));
+        assertEquals("admin", storage.get(sessionData.getId()).getAttribute("username"));
+
+        storage.flush();
+        assertNotNull(store.get(getKey(sessionData)));
+    }
+
+    @Test
+    public void testEveryGetReturnsACopy() {
+        SessionData sessionData = createSessionData("admin");
+        storage.save(sessionData);
+
+        SessionData first = storage.get(sessionData.getId());
+        SessionData second = storage.get(sessionData.getId());
+        assertNotSame(first, second);
+
+        first.setAttribute("username", "guest");
+        assertEquals("admin", second.getAttribute("username"));
+    }
+
+    @Test
+    public void testDelete() {
+        SessionData sessionData = createSessionData("admin");
+        storage.save(sessionData);
+        storage.flush();
+
+        storage.delete(sessionData.getId());
+        assertNull(storage.get(sessionData.getId()));
+        assertNull(store.get(getKey(sessionData)));
+    }
+
+    @Test
+    public void testFailedFlushIsRetried() {
+        SessionData sessionData = createSessionData("admin");
+        storage.save(sessionData);
+
+        store.down = true;
+        storage.flush();
+        assertNull(store.get(getKey(sessionData)));
+
+        store.down = false;
+        storage.flush();
+        assertEquals("admin", getStored(sessionData).getAttribute("username"));
+    }
+
+    @Test
+    public void testFailedFlushKeepsNewerWrite() {
+        SessionData sessionData = createSessionData("admin");
+        storage.save(sessionData);
+
+        // the session changes while the failing flush is running
+        store.down = true;
+        store.onPut = () -> {
+            sessionData.setAttribute("username", "guest");
+            storage.save(sessionData);
+        };
+        storage.flush();
+
+        store.down = false;
+        store.onPut = null;
+        storage.flush();
+        assertEquals("guest", getStored(sessionData).getAttribute("username"));
+    }
+
+    @Test
+    public void testFailedFlushOfDeletedSession() {
+        SessionData sessionData = createSessionData("admin");
+        storage.save(sessionData);
+
+        // the session is deleted while the failing flush is running
+        store.down = true;
+        store.onPut = () -> storage.delete(sessionData.getId());
+        storage.flush();
+
+        store.down = false;
+        store.onPut = null;
+        storage.flush();
+        assertNull(store.get(getKey(sessionData)));
+    }
+
+    private SessionData createSessionData(String username) {
+        SessionData sessionData = storage.create();
+        sessionData.setAttribute("username", username);
+
+        return sessionData;
+    }
+
+    private String getKey(SessionData sessionData) {
+        return storage.getKey(sessionData.getId());
+    }
+
+    private SessionData getStored(SessionData sessionData) {
+        return SessionDataSerializer.deserialize(store.get(getKey(sessionData)));
+    }
+
+    private static class FlakyKeyValueStore extends EmbeddedKeyValueStore {
+
+        private volatile boolean down;
+        private volatile Runnable onPut;
+
+        private FlakyKeyValueStore() {
+            super(0);
+        }
+
+        @Override
+        public void put(List<Entry> entries) {
+            if (onPut != null) {
+                onPut.run();
+            }
+            if (down) {
+                throw new PippoRuntimeException("The store is down");
+            }
+
+            super.put(entries);
+        }
+
+    }
+
+}
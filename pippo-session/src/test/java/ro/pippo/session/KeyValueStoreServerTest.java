@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.session;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import ro.pippo.core.PippoRuntimeException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertNull;
+
+public class KeyValueStoreServerTest {
+
+    private KeyValueStoreServer server;
+    private SocketKeyValueStore client;
+
+    @Before
+    public void setUp() {
+        server = new KeyValueStoreServer(new EmbeddedKeyValueStore(0), 0);
+        server.start();
+        client = new SocketKeyValueStore(InetAddress.getLoopbackAddress().getHostAddress(), server.getPort());
+    }
+
+    @After
+    public void tearDown() {
+        client.close();
+        server.stop();
+    }
+
+    @Test
+    public void testOperations() {
+        byte[] first = { 1, 2, 3 };
+        byte[] second = new byte[0];
+        client.put(Arrays.asList(new KeyValueStore.Entry("first", first, 60), new KeyValueStore.Entry("second", second, 60)));
+
+        assertArrayEquals(first, client.get("first"));
+        assertArrayEquals(second, client.get("second"));
+        assertNull(client.get("missing"));
+
+        client.expire("first", 0);
+        assertNull(client.get("first"));
+
+        client.delete("second");
+        assertNull(client.get("second"));
+    }
+
+    @Test(expected = PippoRuntimeException.class, timeout = 5000)
+    public void testReadTimeout() throws IOException {
+        try (ServerSocket silentServer = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            // the connection is accepted by the backlog but it's never answered
+            SocketKeyValueStore store = new SocketKeyValueStore(InetAddress.getLoopbackAddress().getHostAddress(),
+                silentServer.getLocalPort()).setReadTimeout(100);
+            store.get("key");
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testValueTooLong() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new DataOutputStream(bytes).writeInt(KeyValueStoreServer.MAX_VALUE_LENGTH + 1);
+
+        KeyValueStoreServer.readBytes(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+    }
+
+}
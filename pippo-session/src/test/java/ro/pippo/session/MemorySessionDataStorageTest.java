@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.session;
+
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class MemorySessionDataStorageTest {
+
+    @Test
+    public void testEvictLeastRecentlyUsed() {
+        MemorySessionDataStorage storage = new MemorySessionDataStorage(32, 0);
+
+        SessionData used = storage.create();
+        SessionData unused = storage.create();
+        storage.save(used);
+        storage.save(unused);
+
+        int saved = 2;
+        for (int i = 0; i < 1000; i++) {
+            storage.save(storage.create());
+            saved++;
+            // the session used by every request is the most recently used one of its shard
+            assertNotNull(storage.get(used.getId()));
+        }
+
+        assertNull(storage.get(unused.getId()));
+        assertEquals(32, storage.getSessionCount());
+        assertEquals(saved - 32, storage.getEvictedSessionCount());
+        assertEquals(0, storage.getExpiredSessionCount());
+    }
+
+    @Test
+    public void testSweep() {
+        MemorySessionDataStorage storage = new MemorySessionDataStorage(MemorySessionDataStorage.UNBOUNDED, 0);
+
+        SessionData live = storage.create();
+        storage.save(live);
+        storage.save(createIdleSession(storage));
+        storage.save(createIdleSession(storage));
+
+        storage.sweep();
+        assertEquals(1, storage.getSessionCount());
+        assertEquals(2, storage.getExpiredSessionCount());
+        assertNotNull(storage.get(live.getId()));
+    }
+
+    @Test
+    public void testSweeperExpiresIdleSessions() throws InterruptedException {
+        MemorySessionDataStorage storage = new MemorySessionDataStorage(MemorySessionDataStorage.UNBOUNDED, 1);
+        try {
+            SessionData live = storage.create();
+            storage.save(live);
+            SessionData idle = createIdleSession(storage);
+            storage.save(idle);
+
+            // the sweeper runs every second, the idle session is never read
+            long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+            while (storage.getExpiredSessionCount() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+
+            assertEquals(1, storage.getExpiredSessionCount());
+            assertEquals(1, storage.getSessionCount());
+            assertTrue(storage.get(live.getId()) != null);
+            assertNull(storage.get(idle.getId()));
+        } finally {
+            storage.close();
+        }
+    }
+
+    @Test(timeout = 5000)
+    public void testListenerIsNotifiedOutsideTheLock() {
+        MemorySessionDataStorage storage = new MemorySessionDataStorage(1, 0);
+        AtomicInteger evicted = new AtomicInteger();
+        storage.setSessionListener(new SessionListenerList() {
+
+            @Override
+            public void onEvict(String sessionId) {
+                // another thread must be able to use the shard of the evicted session
+                int count = CompletableFuture.supplyAsync(storage::getSessionCount).join();
+                assertEquals(1, count);
+                evicted.incrementAndGet();
+            }
+
+        });
+
+        storage.save(storage.create());
+        storage.save(storage.create());
+        assertEquals(1, evicted.get());
+    }
+
+    private static SessionData createIdleSession(MemorySessionDataStorage storage) {
+        SessionData sessionData = storage.create();
+        sessionData.setMaxInactiveInterval(1);
+        sessionData.setLastAccessedTime(System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(1));
+
+        return sessionData;
+    }
+
+}
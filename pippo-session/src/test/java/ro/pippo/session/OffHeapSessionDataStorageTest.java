@@ -0,0 +1,164 @@
+/*
+ * Copyright (C) 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.session;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class OffHeapSessionDataStorageTest {
+
+    private OffHeapSessionDataStorage storage;
+    private File file;
+
+    @After
+    public void tearDown() {
+        if (storage != null) {
+            storage.close();
+        }
+        if (file != null) {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testAllocateFreeAndMerge() {
+        storage = new OffHeapSessionDataStorage(null, 0, 0);
+        int emptySize = storage.getSize();
+
+        SessionData first = createSessionData(100);
+        SessionData second = createSessionData(100);
+        SessionData third = createSessionData(100);
+        storage.save(first);
+        storage.save(second);
+        storage.save(third);
+        int size = storage.getSize();
+
+        // the neighbour holes are merged
+        storage.delete(first.getId());
+        storage.delete(second.getId());
+        assertEquals(1, storage.getFreeExtentCount());
+        assertEquals(size, storage.getSize());
+
+        // a session of the same size takes (and splits) the merged hole
+        SessionData fourth = createSessionData(100);
+        storage.save(fourth);
+        assertEquals(1, storage.getFreeExtentCount());
+        assertEquals(size, storage.getSize());
+
+        // the space at the end of the buffer is given back
+        storage.delete(third.getId());
+        storage.delete(fourth.getId());
+        assertEquals(0, storage.getFreeExtentCount());
+        assertEquals(emptySize, storage.getSize());
+        assertEquals(0, storage.getSessionCount());
+    }
+
+    @Test
+    public void testGrowInPlaceAndMove() {
+        storage = new OffHeapSessionDataStorage(null, 0, 0);
+
+        SessionData sessionData = createSessionData(100);
+        storage.save(sessionData);
+        int size = storage.getSize();
+
+        // a bigger session doesn't fit in its extent, it's moved and the old extent is released
+        sessionData.setAttribute("data", new byte[1000]);
+        storage.save(sessionData);
+        assertTrue(storage.getSize() > size);
+        assertEquals(1, storage.getFreeExtentCount());
+
+        // a smaller session is overwritten in place
+        int grownSize = storage.getSize();
+        sessionData.setAttribute("data", new byte[10]);
+        storage.save(sessionData);
+        assertEquals(grownSize, storage.getSize());
+        assertEquals(10, ((byte[]) storage.get(sessionData.getId()).getAttribute("data")).length);
+    }
+
+    @Test
+    public void testGrowBuffer() {
+        storage = new OffHeapSessionDataStorage(null, 0, 0);
+        int capacity = storage.getCapacity();
+
+        SessionData[] sessions = new SessionData[20];
+        for (int i = 0; i < sessions.length; i++) {
+            sessions[i] = createSessionData(100 * 1024);
+            storage.save(sessions[i]);
+        }
+
+        assertTrue(storage.getCapacity() > capacity);
+        for (SessionData sessionData : sessions) {
+            SessionData stored = storage.get(sessionData.getId());
+            assertNotNull(stored);
+            assertArrayEquals((byte[]) sessionData.getAttribute("data"), (byte[]) stored.getAttribute("data"));
+        }
+    }
+
+    @Test
+    public void testReopenFile() throws IOException {
+        file = File.createTempFile("sessions", ".dat");
+        storage = new OffHeapSessionDataStorage(file, 0, 0);
+
+        SessionData deleted = createSessionData(100);
+        SessionData kept = createSessionData(100);
+        kept.setAttribute("username", "admin");
+        SessionData expired = createSessionData(100);
+        expired.setMaxInactiveInterval(1);
+        expired.setLastAccessedTime(System.currentTimeMillis() - 10000);
+        storage.save(deleted);
+        storage.save(kept);
+        storage.save(expired);
+        storage.delete(deleted.getId());
+        storage.close();
+
+        storage = new OffHeapSessionDataStorage(file, 0, 0);
+        assertEquals(1, storage.getSessionCount());
+        assertNull(storage.get(deleted.getId()));
+        assertNull(storage.get(expired.getId()));
+
+        SessionData reloaded = storage.get(kept.getId());
+        assertNotNull(reloaded);
+        assertEquals("admin", reloaded.getAttribute("username"));
+        assertArrayEquals((byte[]) kept.getAttribute("data"), (byte[]) reloaded.getAttribute("data"));
+
+        // the hole of the deleted session is kept, the expired session at the end of the file is dropped
+        assertEquals(1, storage.getFreeExtentCount());
+        int size = storage.getSize();
+        storage.save(createSessionData(100));
+        assertEquals(size, storage.getSize());
+    }
+
+    private static SessionData createSessionData(int dataSize) {
+        byte[] data = new byte[dataSize];
+        Arrays.fill(data, (byte) dataSize);
+
+        SessionData sessionData = new SessionData();
+        sessionData.setAttribute("data", data);
+
+        return sessionData;
+    }
+
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.session;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+import java.lang.reflect.Proxy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SessionHttpServletRequestTest {
+
+    private MemorySessionDataStorage storage;
+    private SessionManager sessionManager;
+    private String requestedSessionId;
+    private String newSessionId;
+    private int createdSessions;
+
+    @Before
+    public void setUp() {
+        storage = new MemorySessionDataStorage(MemorySessionDataStorage.UNBOUNDED, 0);
+        sessionManager = new SessionManager(storage, new SessionStrategy() {
+
+            @Override
+            public String getRequestedSessionId(HttpServletRequest request) {
+                return requestedSessionId;
+            }
+
+            @Override
+            public void onNewSession(HttpServletRequest request, HttpServletResponse response, SessionData sessionData) {
+                newSessionId = sessionData.getId();
+            }
+
+            @Override
+            public void onInvalidatedSession(HttpServletRequest request, HttpServletResponse response) {
+            }
+
+        });
+        sessionManager.getSessionListeners().add(new SessionListenerList() {
+
+            @Override
+            public void onCreate(SessionData sessionData) {
+                createdSessions++;
+            }
+
+        });
+    }
+
+    @After
+    public void tearDown() {
+        sessionManager.destroy();
+    }
+
+    @Test
+    public void testStaleSessionId() {
+        requestedSessionId = "stale";
+        SessionHttpServletRequest request = createRequest();
+
+        assertNull(request.getSession(false));
+        assertFalse(request.isRequestedSessionIdValid());
+
+        HttpSession session = request.getSession(true);
+        assertNotEquals("stale", session.getId());
+        assertTrue(session.isNew());
+    }
+
+    @Test
+    public void testExistingSessionIsLoadedLazily() {
+        SessionData sessionData = storage.create();
+        sessionData.setAttribute("username", "admin");
+        storage.save(sessionData);
+        requestedSessionId = sessionData.getId();
+
+        SessionHttpServletRequest request = createRequest();
+        PippoHttpSession session = (PippoHttpSession) request.getSession(false);
+        assertNotNull(session);
+        assertTrue(request.isRequestedSessionIdValid());
+        assertFalse(session.isNew());
+        assertFalse(session.isLoaded());
+        assertEquals(requestedSessionId, session.getId());
+
+        assertEquals("admin", session.getAttribute("username"));
+        assertTrue(session.isLoaded());
+    }
+
+    @Test
+    public void testExpiredWhileLoadingKeepsItsId() {
+        SessionData sessionData = storage.create();
+        storage.save(sessionData);
+        requestedSessionId = sessionData.getId();
+
+        SessionHttpServletRequest request = createRequest();
+        HttpSession session = request.getSession(false);
+        int hashCode = session.hashCode();
+        storage.delete(requestedSessionId);
+
+        session.setAttribute("username", "admin");
+        assertEquals(requestedSessionId, session.getId());
+        assertEquals(hashCode, session.hashCode());
+
+        // the replacement is saved as a new session
+        request.commitSession(null);
+        assertEquals(requestedSessionId, newSessionId);
+        assertEquals("admin", storage.get(requestedSessionId).getAttribute("username"));
+        // the replacement is not counted as a created session
+        assertEquals(0, createdSessions);
+    }
+
+    private SessionHttpServletRequest createRequest() {
+        HttpServletRequest request = (HttpServletRequest) Proxy.newProxyInstance(getClass().getClassLoader(),
+            new Class[] { HttpServletRequest.class }, (proxy, method, args) -> null);
+
+        return new SessionHttpServletRequest(request, sessionManager);
+    }
+
+}
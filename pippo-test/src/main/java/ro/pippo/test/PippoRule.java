@@ -26,6 +26,10 @@ import ro.pippo.core.Application;
 import ro.pippo.core.ContentTypeEngine;
 import ro.pippo.core.Pippo;
 import ro.pippo.core.PippoRuntimeException;
+import ro.pippo.core.StreamingContentTypeEngine;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
 
 /**
  * Start Pippo prior to test execution and stop Pippo after the tests have completed.
@@ -75,6 +79,11 @@ public class PippoRule implements TestRule {
                     throw new PippoRuntimeException("No ContentTypeEngine registered for {}", context.getContentType());
                 }
 
+                if (engine instanceof StreamingContentTypeEngine) {
+                    return ((StreamingContentTypeEngine) engine).fromStream(context.getDataToDeserialize().asInputStream(),
+                        StandardCharsets.UTF_8, context.getType());
+                }
+
                 return engine.fromString(context.getDataToDeserialize().asString(), context.getType());
             }
 
@@ -85,6 +94,14 @@ public class PippoRule implements TestRule {
                     throw new PippoRuntimeException("No ContentTypeEngine registered for {}", context.getContentType());
                 }
 
+                if (engine instanceof StreamingContentTypeEngine) {
+                    ByteArrayOutputStream output = new ByteArrayOutputStream();
+                    ((StreamingContentTypeEngine) engine).toStream(context.getObjectToSerialize(), output,
+                        StandardCharsets.UTF_8);
+
+                    return output.toByteArray();
+                }
+
                 return engine.toString(context.getObjectToSerialize());
             }
 
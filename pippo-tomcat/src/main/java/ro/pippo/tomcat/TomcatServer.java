@@ -25,6 +25,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import ro.pippo.core.AbstractWebServer;
 import ro.pippo.core.Application;
+import ro.pippo.core.ExecutorWebServerThreadPool;
 import ro.pippo.core.PippoFilter;
 
 import ro.pippo.core.PippoRuntimeException;
@@ -33,6 +34,8 @@ import ro.pippo.core.WebServer;
 import ro.pippo.core.util.StringUtils;
 
 import java.io.File;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
 
 /**
  * @author Daniel Jipa
@@ -60,6 +63,7 @@ public class TomcatServer extends AbstractWebServer<TomcatSettings> {
 
         tomcat = new Tomcat();
         tomcat.setBaseDir(getSettings().getBaseFolder());
+        application.setWebServerThreadPool(new ExecutorWebServerThreadPool(this::getExecutor));
 
         if (getSettings().getKeystoreFile() == null) {
             enablePlainConnector(tomcat);
@@ -117,6 +121,19 @@ public class TomcatServer extends AbstractWebServer<TomcatSettings> {
         connector.setAttribute("SSLEnabled", true);
     }
 
+    /**
+     * Returns the executor of the connector, created when the connector starts.
+     */
+    private ThreadPoolExecutor getExecutor() {
+        if (tomcat == null) {
+            return null;
+        }
+
+        Executor executor = tomcat.getConnector().getProtocolHandler().getExecutor();
+
+        return (executor instanceof ThreadPoolExecutor) ? (ThreadPoolExecutor) executor : null;
+    }
+
     @Override
     public void stop() {
         if (tomcat != null) {
@@ -32,8 +32,10 @@ import io.undertow.servlet.util.ImmediateInstanceFactory;
 import org.kohsuke.MetaInfServices;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.xnio.XnioWorker;
 import ro.pippo.core.AbstractWebServer;
 import ro.pippo.core.Application;
+import ro.pippo.core.ExecutorWebServerThreadPool;
 import ro.pippo.core.PippoFilter;
 import ro.pippo.core.PippoRuntimeException;
 import ro.pippo.core.WebServer;
@@ -50,7 +52,9 @@ import javax.servlet.ServletException;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.InputStream;
+import java.lang.reflect.Field;
 import java.security.KeyStore;
+import java.util.concurrent.ThreadPoolExecutor;
 
 /**
  * An implementation of WebServer based on Undertow.
@@ -67,8 +71,13 @@ public class UndertowServer extends AbstractWebServer<UndertowSettings> {
     private Undertow server;
     private DeploymentManager pippoDeploymentManager;
 
+    private volatile ThreadPoolExecutor workerExecutor;
+    private volatile boolean workerExecutorResolved;
+
     @Override
     public void start() {
+        pippoFilter.getApplication().setWebServerThreadPool(new ExecutorWebServerThreadPool(this::getWorkerExecutor));
+
         try {
             pippoDeploymentManager = createPippoDeploymentManager();
             HttpHandler pippoHandler = pippoDeploymentManager.start();
@@ -190,6 +199,53 @@ public class UndertowServer extends AbstractWebServer<UndertowSettings> {
         return deploymentManager;
     }
 
+    /**
+     * Returns the task pool of the XNIO worker, once the server is started.
+     * This version of Undertow doesn't expose the worker nor its statistics, so the task pool is read by reflection
+     * from the <code>Undertow.worker</code> and <code>XnioWorker.taskPool</code> fields.
+     */
+    private ThreadPoolExecutor getWorkerExecutor() {
+        if (!workerExecutorResolved && server != null) {
+            try {
+                XnioWorker worker = getFieldValue(server, "worker", XnioWorker.class);
+                if (worker != null) {
+                    workerExecutor = getFieldValue(worker, "taskPool", ThreadPoolExecutor.class);
+                    workerExecutorResolved = true;
+                }
+            } catch (Exception e) {
+                log.info("Cannot find the worker pool of Undertow, the server thread pool metrics are not available ({})",
+                    e.toString());
+                workerExecutorResolved = true;
+            }
+        }
+
+        return workerExecutor;
+    }
+
+    /**
+     * Returns the value of the field with the given name, declared by the class of the object or a super class.
+     *
+     * @throws NoSuchFieldException if there is no such field or its type is not the expected one
+     */
+    private static <T> T getFieldValue(Object object, String name, Class<T> type) throws NoSuchFieldException, IllegalAccessException {
+        for (Class<?> clazz = object.getClass(); clazz != null; clazz = clazz.getSuperclass()) {
+            Field field;
+            try {
+                field = clazz.getDeclaredField(name);
+            } catch (NoSuchFieldException e) {
+                continue;
+            }
+            if (!type.isAssignableFrom(field.getType())) {
+                throw new NoSuchFieldException(clazz.getName() + "." + name + " is not a " + type.getName());
+            }
+            field.setAccessible(true);
+
+            return type.cast(field.get(object));
+        }
+
+        throw new NoSuchFieldException(object.getClass().getName() + "." + name);
+    }
+
     private SSLContext createSSLContext(final KeyStore keyStore, final KeyStore trustStore) throws Exception {
         KeyManager[] keyManagers;
         KeyManagerFactory keyManagerFactory = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());